@@ -0,0 +1,87 @@
+package com.example.priceclient.kafka;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of decoding a JSON price update record value into {@link PriceUpdateMessage}:
+ * the former String based paths against reading the raw bytes with a pre-built {@link ObjectReader}.
+ * <p>
+ * Сравнивает способы декодирования JSON-значения записи с обновлением цены в {@link PriceUpdateMessage}:
+ * прежние пути через String против чтения исходных байтов заранее созданным {@link ObjectReader}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PriceUpdateDecodingBenchmark {
+
+    private static final int MESSAGES = 1024;
+
+    // Configured like the Spring Boot ObjectMapper the consumer gets injected
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final ObjectReader reader = objectMapper.readerFor(PriceUpdateMessage.class);
+
+    private byte[][] messages;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Same shape as the provider's JsonSerializer output, which writes the timestamp as decimal seconds
+        ObjectMapper producerMapper = JsonMapper.builder().findAndAddModules().build();
+        messages = new byte[MESSAGES][];
+        Instant now = Instant.now();
+        for (int i = 0; i < MESSAGES; i++) {
+            BigDecimal bid = BigDecimal.valueOf(10_000 + i, 2);
+            messages[i] = producerMapper.writeValueAsBytes(PriceUpdateMessage.builder()
+                    .instrumentId("INSTR-" + i)
+                    .bidPrice(bid)
+                    .askPrice(bid.add(BigDecimal.valueOf(25, 2)))
+                    .lastUpdated(now.plusMillis(i))
+                    .build());
+        }
+    }
+
+    private byte[] nextMessage() {
+        return messages[next++ & (MESSAGES - 1)];
+    }
+
+    /**
+     * Former listener path: bytes to String, then ObjectMapper.readValue
+     */
+    @Benchmark
+    public PriceUpdateMessage stringThenReadValue() throws IOException {
+        String message = new String(nextMessage(), StandardCharsets.UTF_8);
+        return objectMapper.readValue(message, PriceUpdateMessage.class);
+    }
+
+    /**
+     * Bytes to String to tree to POJO
+     */
+    @Benchmark
+    public PriceUpdateMessage stringThenTree() throws IOException {
+        String message = new String(nextMessage(), StandardCharsets.UTF_8);
+        JsonNode tree = objectMapper.readTree(message);
+        return objectMapper.treeToValue(tree, PriceUpdateMessage.class);
+    }
+
+    /**
+     * Current listener path: the raw bytes read by a pre-built ObjectReader
+     */
+    @Benchmark
+    public PriceUpdateMessage bytesWithObjectReader() throws IOException {
+        return reader.readValue(nextMessage());
+    }
+}
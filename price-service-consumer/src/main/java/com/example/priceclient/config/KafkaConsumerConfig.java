@@ -1,41 +1,33 @@
 package com.example.priceclient.config;
 
-import com.example.priceclient.kafka.PriceUpdateMessage;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import org.springframework.beans.factory.annotation.Value;
+import com.example.priceclient.kafka.KeyOrderedRecordProcessor;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
-import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
-
-import java.util.HashMap;
-import java.util.Map;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaConsumerConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    private final KeyOrderedListenerFactoryBuilder factoryBuilder;
+
+    /**
+     * JSON values are consumed as raw bytes and decoded by the listener, see {@code PriceKafkaConsumer}
+     */
+    @Bean
+    public ConsumerFactory<String, byte[]> consumerFactory() {
+        return factoryBuilder.consumerFactory();
+    }
 
     @Bean
-    public ConsumerFactory<String, PriceUpdateMessage> consumerFactory() {
-        JsonDeserializer<PriceUpdateMessage> deserializer = new JsonDeserializer<>(PriceUpdateMessage.class);
-        deserializer.setRemoveTypeHeaders(false);
-        deserializer.addTrustedPackages("*");
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer);
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), deserializer);
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> kafkaListenerContainerFactory() {
+        return factoryBuilder.containerFactory(consumerFactory(), priceUpdateProcessor());
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, PriceUpdateMessage> kafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, PriceUpdateMessage> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
-        return factory;
+    public KeyOrderedRecordProcessor<byte[]> priceUpdateProcessor() {
+        return factoryBuilder.processor("price-updates");
     }
 }
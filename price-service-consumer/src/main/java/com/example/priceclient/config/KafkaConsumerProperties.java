@@ -0,0 +1,34 @@
+package com.example.priceclient.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumer settings shared by the price, order book and delta listeners
+ */
+@Component
+@Getter
+public class KafkaConsumerProperties {
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${price.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${price.kafka.consumer.max-poll-interval-ms:300000}")
+    private int maxPollIntervalMillis;
+
+    @Value("${price.kafka.processing.workers:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int workers;
+
+    @Value("${price.kafka.processing.max-in-flight:10000}")
+    private int maxInFlight;
+
+    @Value("${price.kafka.processing.revoke-timeout-ms:10000}")
+    private long revokeTimeoutMillis;
+
+    @Value("${price.kafka.processing.dead-letter-suffix:-dlt}")
+    private String deadLetterSuffix;
+}
@@ -1,37 +1,53 @@
 package com.example.priceclient.config;
 
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.common.serialization.ByteArrayDeserializer;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import org.springframework.beans.factory.annotation.Value;
+import com.example.priceclient.kafka.KeyOrderedRecordProcessor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
-import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-
-import java.util.HashMap;
-import java.util.Map;
 
 @Configuration
+@RequiredArgsConstructor
 public class KafkaProtoConsumerConfig {
 
-    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
-    private String bootstrapServers;
+    private final KeyOrderedListenerFactoryBuilder factoryBuilder;
 
     @Bean
     public ConsumerFactory<String, byte[]> protoConsumerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
-        return new DefaultKafkaConsumerFactory<>(props);
+        return factoryBuilder.consumerFactory();
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, byte[]> protoKafkaListenerContainerFactory() {
-        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(protoConsumerFactory());
-        return factory;
+        return factoryBuilder.containerFactory(protoConsumerFactory(), protoPriceUpdateProcessor());
+    }
+
+    @Bean
+    public KeyOrderedRecordProcessor<byte[]> protoPriceUpdateProcessor() {
+        return factoryBuilder.processor("price-updates-proto");
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> orderBookKafkaListenerContainerFactory() {
+        return factoryBuilder.containerFactory(protoConsumerFactory(), orderBookUpdateProcessor());
+    }
+
+    @Bean
+    public KeyOrderedRecordProcessor<byte[]> orderBookUpdateProcessor() {
+        return factoryBuilder.processor("order-book-updates");
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "price.kafka.delta.enabled", havingValue = "true")
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> deltaKafkaListenerContainerFactory() {
+        return factoryBuilder.containerFactory(protoConsumerFactory(), priceDeltaProcessor());
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "price.kafka.delta.enabled", havingValue = "true")
+    public KeyOrderedRecordProcessor<byte[]> priceDeltaProcessor() {
+        return factoryBuilder.processor("price-deltas");
     }
 }
@@ -0,0 +1,73 @@
+package com.example.priceclient.config;
+
+import com.example.priceclient.kafka.KeyOrderedRecordProcessor;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the consumer factories, record processors and listener container factories of the listeners that
+ * process their records with a {@link KeyOrderedRecordProcessor}.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeyOrderedListenerFactoryBuilder {
+
+    private final KafkaConsumerProperties properties;
+    private final KafkaTemplate<String, byte[]> deadLetterKafkaTemplate;
+
+    /**
+     * Values are consumed as raw bytes and decoded by the listeners; offsets are committed by the record processor
+     */
+    public ConsumerFactory<String, byte[]> consumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.getBootstrapServers());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, properties.getMaxPollRecords());
+        props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, properties.getMaxPollIntervalMillis());
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    /**
+     * Records that fail are published unchanged to the dead letter topic, named after their topic with the
+     * {@code dead-letter-suffix}. Dispatching a batch waits for the workers for at most half the poll interval.
+     *
+     * @param name prefix of the worker thread names and name used in the logs
+     */
+    public KeyOrderedRecordProcessor<byte[]> processor(String name) {
+        DeadLetterPublishingRecoverer deadLetters = new DeadLetterPublishingRecoverer(deadLetterKafkaTemplate,
+                (record, exception) -> new TopicPartition(record.topic() + properties.getDeadLetterSuffix(), -1));
+        return new KeyOrderedRecordProcessor<>(name, properties.getWorkers(), properties.getMaxInFlight(),
+                properties.getRevokeTimeoutMillis(), properties.getMaxPollIntervalMillis() / 2, deadLetters);
+    }
+
+    /**
+     * Whole polls are handed to the listener, which dispatches them to the processor. Offsets are committed by the
+     * processor with MANUAL ack mode, on the listener thread after each batch it receives. The container does not
+     * call the listener for an empty poll, so records that finish after the last batch are only committed with the
+     * next non-empty poll or when their partitions are revoked.
+     */
+    public ConcurrentKafkaListenerContainerFactory<String, byte[]> containerFactory(
+            ConsumerFactory<String, byte[]> consumerFactory, KeyOrderedRecordProcessor<byte[]> processor) {
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(processor);
+        return factory;
+    }
+}
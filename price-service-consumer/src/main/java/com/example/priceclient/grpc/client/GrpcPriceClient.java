@@ -1,11 +1,14 @@
 package com.example.priceclient.grpc.client;
 
 import com.example.priceservice.grpc.*;
+import io.grpc.Context;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +23,9 @@ public class GrpcPriceClient {
     @GrpcClient("price-service")
     private PriceServiceGrpc.PriceServiceBlockingStub priceServiceStub;
 
+    @GrpcClient("price-service")
+    private PriceServiceGrpc.PriceServiceStub priceServiceAsyncStub;
+
     /**
      * Retrieves all prices from the gRPC service
      *
@@ -53,6 +59,36 @@ public class GrpcPriceClient {
         }
     }
 
+    /**
+     * Retrieves one page of prices using the continuation token of the previous page.
+     * Unlike page numbers, tokens keep the cost of each page constant on the provider.
+     *
+     * @param pageToken next_page_token of the previous response, or null for the first page
+     * @param size      page size (optional)
+     * @return GetAllPricesResponse containing the prices and the token for the next page
+     */
+    public GetAllPricesResponse getPricesPage(String pageToken, Integer size) {
+        try {
+            log.debug("Calling gRPC getAllPrices with page token: {}, size: {}", pageToken, size);
+
+            GetAllPricesRequest.Builder requestBuilder = GetAllPricesRequest.newBuilder();
+            if (pageToken != null) {
+                requestBuilder.setPageToken(pageToken);
+            }
+            if (size != null && size > 0) {
+                requestBuilder.setSize(size);
+            }
+
+            GetAllPricesResponse response = priceServiceStub.getAllPrices(requestBuilder.build());
+            log.debug("Received {} prices from gRPC service", response.getPricesCount());
+            return response;
+
+        } catch (StatusRuntimeException e) {
+            log.error("gRPC error in getPricesPage: {}", e.getStatus().getDescription(), e);
+            throw e;
+        }
+    }
+
     /**
      * Retrieves a specific price by instrument ID
      *
@@ -86,9 +122,10 @@ public class GrpcPriceClient {
     }
 
     /**
-     * Subscribes to price updates for specified instruments
+     * Reads the current prices of the specified instruments.
+     * Asks the provider for a snapshot-only stream, which completes once the current prices are sent.
      *
-     * @param instrumentIds list of instrument IDs to subscribe to
+     * @param instrumentIds list of instrument IDs to read
      * @return list of price updates
      */
     public List<PriceUpdate> streamPrices(List<String> instrumentIds) {
@@ -97,11 +134,10 @@ public class GrpcPriceClient {
 
             StreamPricesRequest request = StreamPricesRequest.newBuilder()
                     .addAllInstrumentIds(instrumentIds)
+                    .setSnapshotOnly(true)
                     .build();
 
-            // For this demo, we'll collect all updates and return them
-            // In a real implementation, this would handle streaming responses
-            List<PriceUpdate> updates = new java.util.ArrayList<>();
+            List<PriceUpdate> updates = new ArrayList<>();
             priceServiceStub.streamPrices(request).forEachRemaining(updates::add);
 
             log.debug("Received {} price updates", updates.size());
@@ -116,6 +152,103 @@ public class GrpcPriceClient {
         }
     }
 
+    /**
+     * Subscribes to live price updates for specified instruments.
+     * The observer first receives the current prices and then every change, until the returned context is cancelled.
+     *
+     * @param instrumentIds list of instrument IDs to subscribe to
+     * @param observer      receives the price updates
+     * @return context to cancel in order to close the stream
+     */
+    public Context.CancellableContext subscribePrices(List<String> instrumentIds, StreamObserver<PriceUpdate> observer) {
+        log.debug("Subscribing to gRPC price stream for instruments: {}", instrumentIds);
+        StreamPricesRequest request = StreamPricesRequest.newBuilder()
+                .addAllInstrumentIds(instrumentIds)
+                .build();
+        Context.CancellableContext context = Context.current().withCancellation();
+        context.run(() -> priceServiceAsyncStub.streamPrices(request, observer));
+        return context;
+    }
+
+    /**
+     * Subscribes to live price changes of the specified instruments as compact deltas.
+     * The first message of every instrument is a snapshot; apply the messages with a
+     * {@link com.example.priceclient.service.PriceDeltaState} to rebuild the prices.
+     *
+     * @param instrumentIds list of instrument IDs to subscribe to
+     * @param observer      receives the price deltas
+     * @return context to cancel in order to close the stream
+     */
+    public Context.CancellableContext subscribePriceDeltas(List<String> instrumentIds, StreamObserver<PriceDelta> observer) {
+        log.debug("Subscribing to gRPC price delta stream for instruments: {}", instrumentIds);
+        StreamPricesRequest request = StreamPricesRequest.newBuilder()
+                .addAllInstrumentIds(instrumentIds)
+                .build();
+        Context.CancellableContext context = Context.current().withCancellation();
+        context.run(() -> priceServiceAsyncStub.streamPriceDeltas(request, observer));
+        return context;
+    }
+
+    /**
+     * Retrieves the order book of an instrument as a snapshot
+     *
+     * @param instrumentId the instrument identifier
+     * @param depth        maximum number of levels per side, 0 for all levels
+     * @return Optional containing the order book if found
+     */
+    public Optional<OrderBookUpdate> getOrderBook(String instrumentId, int depth) {
+        try {
+            log.debug("Calling gRPC getOrderBook for instrument: {}, depth: {}", instrumentId, depth);
+            GetOrderBookRequest request = GetOrderBookRequest.newBuilder()
+                    .setInstrumentId(instrumentId)
+                    .setDepth(depth)
+                    .build();
+            return Optional.of(priceServiceStub.getOrderBook(request).getOrderBook());
+
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == io.grpc.Status.Code.NOT_FOUND) {
+                log.debug("Order book not found for instrument: {}", instrumentId);
+                return Optional.empty();
+            }
+            log.error("gRPC error in getOrderBook for instrument {}: {}", instrumentId, e.getStatus().getDescription(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Subscribes to the order book of an instrument. The first message is a snapshot, every later one a diff
+     * to apply on top of the previous message.
+     *
+     * @param instrumentId the instrument identifier
+     * @param depth        maximum number of levels per side, 0 for all levels
+     * @param observer     receives the order book updates
+     * @return context to cancel in order to close the stream
+     */
+    public Context.CancellableContext subscribeOrderBook(String instrumentId, int depth, StreamObserver<OrderBookUpdate> observer) {
+        log.debug("Subscribing to gRPC order book stream for instrument: {}, depth: {}", instrumentId, depth);
+        StreamOrderBookRequest request = StreamOrderBookRequest.newBuilder()
+                .setInstrumentId(instrumentId)
+                .setDepth(depth)
+                .build();
+        Context.CancellableContext context = Context.current().withCancellation();
+        context.run(() -> priceServiceAsyncStub.streamOrderBook(request, observer));
+        return context;
+    }
+
+    /**
+     * Opens a stream carrying any number of instrument subscriptions.
+     * Send {@link SubscriptionCommand}s on the returned observer to add or remove instruments; the observer passed in
+     * receives command acknowledgements and the price updates tagged with their subscription IDs.
+     * Completing the returned observer closes the stream.
+     *
+     * @param observer receives acknowledgements and price updates
+     * @return observer to send subscription commands to
+     */
+    public StreamObserver<SubscriptionCommand> openSubscriptionStream(StreamObserver<SubscriptionUpdate> observer) {
+        log.debug("Opening gRPC subscription stream");
+        return priceServiceAsyncStub.subscribe(observer);
+    }
+
     void setPriceServiceStub(PriceServiceGrpc.PriceServiceBlockingStub priceServiceStub) {
         this.priceServiceStub = priceServiceStub;
     }
@@ -0,0 +1,40 @@
+package com.example.priceclient.kafka;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size and processing time of the batches handled by one batch listener,
+ * recorded as {@code price.kafka.consumer.batch.size} and {@code price.kafka.consumer.batch.processing}
+ * tagged with the listener ID.
+ */
+public class BatchListenerMetrics {
+
+    private final DistributionSummary batchSize;
+    private final Timer processingTime;
+
+    public BatchListenerMetrics(MeterRegistry meterRegistry, String listenerId) {
+        this.batchSize = DistributionSummary.builder("price.kafka.consumer.batch.size")
+                .tag("listener", listenerId)
+                .description("Records delivered to the listener per poll")
+                .register(meterRegistry);
+        this.processingTime = Timer.builder("price.kafka.consumer.batch.processing")
+                .tag("listener", listenerId)
+                .description("Time the listener spent on one batch, including waiting for free workers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a processed batch
+     *
+     * @param size       number of records in the batch
+     * @param startNanos {@link System#nanoTime()} taken when processing started
+     */
+    public void record(int size, long startNanos) {
+        batchSize.record(size);
+        processingTime.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.priceclient.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Processes the records of a batch listener on a pool of workers while keeping the order per record key.
+ * <p>
+ * Every record is handed to the worker chosen by the hash of its key (the instrument ID), so updates of one
+ * instrument are processed one after another in partition order while different instruments are processed in
+ * parallel, however many partitions the topic has. Records without a key are ordered by partition instead.
+ * <p>
+ * Offsets are tracked per consumer and partition and only committed up to the first record that is not processed
+ * yet, so a restart never skips an unprocessed record. Every consumer, i.e. every container of a listener with
+ * {@code concurrency > 1}, only commits its own partitions and has its own limit of {@code maxInFlight} records.
+ * Commits are asynchronous and happen on the listener thread, after each batch is dispatched; when partitions are
+ * revoked their records in flight are awaited and committed synchronously. Empty polls do not reach the listener,
+ * so records that finish after the last batch of a quiet partition stay uncommitted until the next non-empty poll
+ * or the revocation of the partition, and are redelivered after a crash.
+ * <p>
+ * Dispatching waits while {@code maxInFlight} records of the consumer are not processed yet, for at most
+ * {@code dispatchTimeoutMillis} per batch, which keeps the listener well within {@code max.poll.interval.ms}. Records
+ * not dispatched by then are fetched again by the next poll.
+ * <p>
+ * A record whose handler throws is passed to the {@code recoverer}, e.g. a dead letter publisher, and counts as
+ * processed once it was recovered. If the recoverer fails too, the record is never committed and its partition
+ * is redelivered from it after a restart or rebalance.
+ *
+ * @param <V> type of the record values
+ */
+@Slf4j
+public class KeyOrderedRecordProcessor<V> implements ConsumerAwareRebalanceListener, AutoCloseable {
+
+    private final String name;
+    private final ExecutorService[] workers;
+    private final int maxInFlight;
+    private final long revokeTimeoutMillis;
+    private final long dispatchTimeoutMillis;
+    private final ConsumerRecordRecoverer recoverer;
+    private final ConcurrentHashMap<Consumer<?, ?>, ConsumerState> consumers = new ConcurrentHashMap<>();
+
+    public KeyOrderedRecordProcessor(String name, int workerCount, int maxInFlight, long revokeTimeoutMillis,
+                                     long dispatchTimeoutMillis, ConsumerRecordRecoverer recoverer) {
+        this.name = name;
+        this.maxInFlight = maxInFlight;
+        this.revokeTimeoutMillis = revokeTimeoutMillis;
+        this.dispatchTimeoutMillis = dispatchTimeoutMillis;
+        this.recoverer = recoverer;
+        this.workers = new ExecutorService[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            String threadName = name + "-worker-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Dispatches the records to the workers and commits the offsets of the consumer that are fully processed.
+     * Must be called on the listener thread, which owns the consumer.
+     *
+     * @param handler processes one record; a record it throws for is passed to the recoverer
+     */
+    public void process(List<ConsumerRecord<String, V>> records,
+                        java.util.function.Consumer<ConsumerRecord<String, V>> handler,
+                        Consumer<?, ?> consumer) {
+        ConsumerState state = consumers.computeIfAbsent(consumer, key -> new ConsumerState(maxInFlight));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dispatchTimeoutMillis);
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, V> record = records.get(i);
+            if (!acquire(state.inFlight, deadline)) {
+                log.warn("Workers of {} did not keep up within {} ms, {} records are fetched again",
+                        name, dispatchTimeoutMillis, records.size() - i);
+                seekToUndispatched(records.subList(i, records.size()), consumer);
+                break;
+            }
+            PartitionOffsets offsets = state.partitions.computeIfAbsent(
+                    new TopicPartition(record.topic(), record.partition()), partition -> new PartitionOffsets());
+            offsets.dispatched(record.offset());
+            workerFor(record).execute(() -> {
+                try {
+                    if (handle(record, handler)) {
+                        offsets.completed(record.offset());
+                    }
+                } finally {
+                    state.inFlight.release();
+                }
+            });
+        }
+        Map<TopicPartition, OffsetAndMetadata> committable = committable(state, state.partitions.keySet());
+        if (!committable.isEmpty()) {
+            consumer.commitAsync(committable, (offsets, exception) -> {
+                if (exception != null) {
+                    log.warn("Failed to commit offsets {} of {}", offsets, name, exception);
+                }
+            });
+        }
+    }
+
+    /**
+     * Waits for the records of the revoked partitions and commits them before another consumer takes over
+     */
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        ConsumerState state = consumers.get(consumer);
+        if (state == null) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(revokeTimeoutMillis);
+        for (TopicPartition partition : revoked) {
+            PartitionOffsets offsets = state.partitions.get(partition);
+            if (offsets != null && !offsets.awaitProcessed(deadline)) {
+                log.warn("Records of {} still in flight after {} ms, they may be processed again", partition, revokeTimeoutMillis);
+            }
+        }
+        Map<TopicPartition, OffsetAndMetadata> committable = committable(state, revoked);
+        try {
+            if (!committable.isEmpty()) {
+                consumer.commitSync(committable);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to commit offsets {} of {} on revocation", committable, name, e);
+        }
+        forget(consumer, state, revoked);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        ConsumerState state = consumers.get(consumer);
+        if (state != null) {
+            forget(consumer, state, lost);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+
+    /**
+     * @return true if the record was processed or recovered, false if it must not be committed
+     */
+    private boolean handle(ConsumerRecord<String, V> record, java.util.function.Consumer<ConsumerRecord<String, V>> handler) {
+        try {
+            handler.accept(record);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to process record {}-{}@{}, passing it to the recoverer",
+                    record.topic(), record.partition(), record.offset(), e);
+            try {
+                recoverer.accept(record, e);
+                return true;
+            } catch (RuntimeException recoveryFailure) {
+                log.error("Failed to recover record {}-{}@{}, its partition is not committed past it",
+                        record.topic(), record.partition(), record.offset(), recoveryFailure);
+                return false;
+            }
+        }
+    }
+
+    private void forget(Consumer<?, ?> consumer, ConsumerState state, Collection<TopicPartition> partitions) {
+        partitions.forEach(state.partitions::remove);
+        if (state.partitions.isEmpty()) {
+            consumers.remove(consumer, state);
+        }
+    }
+
+    /**
+     * Rewinds every partition of the records to its first record, so that the next poll returns them again
+     */
+    private static void seekToUndispatched(List<? extends ConsumerRecord<String, ?>> undispatched, Consumer<?, ?> consumer) {
+        Map<TopicPartition, Long> firstOffsets = new LinkedHashMap<>();
+        for (ConsumerRecord<String, ?> record : undispatched) {
+            firstOffsets.putIfAbsent(new TopicPartition(record.topic(), record.partition()), record.offset());
+        }
+        firstOffsets.forEach(consumer::seek);
+    }
+
+    private ExecutorService workerFor(ConsumerRecord<String, V> record) {
+        int hash = record.key() != null ? record.key().hashCode() : record.partition();
+        return workers[Math.floorMod(hash ^ (hash >>> 16), workers.length)];
+    }
+
+    private boolean acquire(Semaphore inFlight, long deadlineNanos) {
+        try {
+            return inFlight.tryAcquire(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + name + " workers", e);
+        }
+    }
+
+    private static Map<TopicPartition, OffsetAndMetadata> committable(ConsumerState state,
+                                                                      Collection<TopicPartition> candidates) {
+        Map<TopicPartition, OffsetAndMetadata> committable = new HashMap<>();
+        for (TopicPartition partition : candidates) {
+            PartitionOffsets offsets = state.partitions.get(partition);
+            long offset = offsets != null ? offsets.takeCommittable() : -1;
+            if (offset >= 0) {
+                committable.put(partition, new OffsetAndMetadata(offset));
+            }
+        }
+        return committable;
+    }
+
+    /**
+     * Records of one consumer that were dispatched but are not processed yet
+     */
+    private static final class ConsumerState {
+
+        private final Semaphore inFlight;
+        private final ConcurrentHashMap<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+
+        ConsumerState(int maxInFlight) {
+            this.inFlight = new Semaphore(maxInFlight);
+        }
+    }
+
+    /**
+     * Offsets of one partition that were dispatched but are not processed yet
+     */
+    private static final class PartitionOffsets {
+
+        private final TreeSet<Long> pending = new TreeSet<>();
+        private long nextOffset = -1;
+        private long committed = -1;
+
+        synchronized void dispatched(long offset) {
+            pending.add(offset);
+            nextOffset = offset + 1;
+        }
+
+        synchronized void completed(long offset) {
+            pending.remove(offset);
+            if (pending.isEmpty()) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * @return offset to commit, the first one not processed yet, or -1 if it was already committed
+         */
+        synchronized long takeCommittable() {
+            long offset = pending.isEmpty() ? nextOffset : pending.first();
+            if (offset <= committed) {
+                return -1;
+            }
+            committed = offset;
+            return offset;
+        }
+
+        synchronized boolean awaitProcessed(long deadlineNanos) {
+            try {
+                long remaining;
+                while (!pending.isEmpty() && (remaining = deadlineNanos - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return pending.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.priceclient.kafka;
+
+import com.example.priceclient.service.LatestPriceView;
+import com.example.priceservice.grpc.Price;
+import com.example.priceservice.grpc.PriceUpdate;
+import com.example.priceservice.grpc.UpdateType;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bootstraps the consumer state from the compacted latest price topic before live processing starts.
+ * <p>
+ * On startup, on a background thread, the end offsets of the live topics are captured first, then the latest price
+ * topic is read from the beginning up to its end offsets seen at that moment and every record is passed to
+ * {@link ProtoPriceKafkaConsumer#processPriceUpdate}. Tombstones are passed as {@link UpdateType#DELETED} updates.
+ * Because the topic is compacted, the time this takes grows with the number of instruments, not with the update
+ * history. Afterwards the live listeners, which do not start on their own in bootstrap mode, are started from the
+ * captured live offsets, so every update published meanwhile is processed whatever its timestamp. Updates published
+ * between both captures may be applied twice, which the view ignores as they are not newer.
+ * <p>
+ * A successful bootstrap marks the {@link LatestPriceView} complete. The replay is given up after
+ * {@code price.kafka.bootstrap.max-replay-ms}, leaving the view incomplete; the live listeners are started in any case,
+ * from their committed offsets if the live offsets could not be captured.
+ */
+@Component
+@ConditionalOnProperty(value = "price.kafka.bootstrap.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class LatestPriceBootstrap {
+
+    private final ConsumerFactory<String, byte[]> protoConsumerFactory;
+    private final ProtoPriceKafkaConsumer protoPriceKafkaConsumer;
+    private final PriceKafkaConsumer priceKafkaConsumer;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final LatestPriceView latestPriceView;
+
+    @Value("${price.kafka.latest.topic:price-latest}")
+    private String topic;
+
+    @Value("${price.kafka.topic:price-updates}")
+    private String liveTopic;
+
+    @Value("${price.kafka.proto.topic:price-updates.proto}")
+    private String liveProtoTopic;
+
+    @Value("${price.kafka.bootstrap.timeout-ms:30000}")
+    private int timeoutMillis;
+
+    @Value("${price.kafka.bootstrap.max-replay-ms:120000}")
+    private long maxReplayMillis;
+
+    private volatile Consumer<String, byte[]> consumer;
+    private volatile boolean stopped;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::bootstrap, "latest-price-bootstrap");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        stopped = true;
+        Consumer<String, byte[]> current = consumer;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    private void bootstrap() {
+        Instant startedAt = Instant.now();
+        Map<TopicPartition, Long> liveOffsets = new HashMap<>();
+        try {
+            Replay replay = replay(liveOffsets);
+            if (replay.complete()) {
+                log.info("Bootstrapped {} latest prices from {} in {} ms",
+                        replay.records(), topic, Duration.between(startedAt, Instant.now()).toMillis());
+                latestPriceView.markComplete();
+            } else if (!stopped) {
+                log.warn("Gave up bootstrapping from {} after {} ms and {} latest prices, starting live processing",
+                        topic, maxReplayMillis, replay.records());
+            }
+        } catch (WakeupException e) {
+            return;
+        } catch (Exception e) {
+            log.error("Failed to bootstrap from {}, starting live processing without it", topic, e);
+        }
+        if (stopped) {
+            return;
+        }
+        if (liveOffsets.isEmpty()) {
+            log.warn("Offsets of {} and {} were not captured, starting from the committed offsets", liveProtoTopic, liveTopic);
+        } else {
+            protoPriceKafkaConsumer.startFrom(liveOffsets);
+            priceKafkaConsumer.startFrom(liveOffsets);
+        }
+        listenerRegistry.getListenerContainer(ProtoPriceKafkaConsumer.LISTENER_ID).start();
+        listenerRegistry.getListenerContainer(PriceKafkaConsumer.LISTENER_ID).start();
+    }
+
+    /**
+     * Captures the end offsets of the live topics into {@code liveOffsets}, then replays the latest price topic
+     * up to its end offsets or until {@code maxReplayMillis} passed
+     */
+    private Replay replay(Map<TopicPartition, Long> liveOffsets) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        overrides.put(ConsumerConfig.DEFAULT_API_TIMEOUT_MS_CONFIG, timeoutMillis);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxReplayMillis);
+        try (Consumer<String, byte[]> bootstrapConsumer = protoConsumerFactory.createConsumer(null, null, "-bootstrap", overrides)) {
+            consumer = bootstrapConsumer;
+            List<TopicPartition> live = new ArrayList<>(partitionsOf(bootstrapConsumer, liveProtoTopic));
+            live.addAll(partitionsOf(bootstrapConsumer, liveTopic));
+            liveOffsets.putAll(bootstrapConsumer.endOffsets(live));
+
+            List<TopicPartition> partitions = partitionsOf(bootstrapConsumer, topic);
+            bootstrapConsumer.assign(partitions);
+            bootstrapConsumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> endOffsets = bootstrapConsumer.endOffsets(partitions);
+
+            int records = 0;
+            while (!stopped && !reachedEnd(bootstrapConsumer, endOffsets)) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return new Replay(records, false);
+                }
+                for (ConsumerRecord<String, byte[]> record : bootstrapConsumer.poll(Duration.ofMillis(500))) {
+                    // Records appended after the end offsets were captured are left to the live listeners
+                    if (record.offset() >= endOffsets.get(new TopicPartition(record.topic(), record.partition()))) {
+                        continue;
+                    }
+                    try {
+                        protoPriceKafkaConsumer.processPriceUpdate(toPriceUpdate(record));
+                        records++;
+                    } catch (InvalidProtocolBufferException e) {
+                        log.warn("Skipping unreadable latest price for {}", record.key(), e);
+                    }
+                }
+            }
+            return new Replay(records, !stopped);
+        } finally {
+            consumer = null;
+        }
+    }
+
+    private static List<TopicPartition> partitionsOf(Consumer<String, byte[]> consumer, String topic) {
+        return consumer.partitionsFor(topic).stream()
+                .map(info -> new TopicPartition(topic, info.partition()))
+                .toList();
+    }
+
+    private static boolean reachedEnd(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(end -> consumer.position(end.getKey()) >= end.getValue());
+    }
+
+    private static PriceUpdate toPriceUpdate(ConsumerRecord<String, byte[]> record) throws InvalidProtocolBufferException {
+        if (record.value() == null) {
+            return PriceUpdate.newBuilder()
+                    .setPrice(Price.newBuilder().setInstrumentId(record.key()))
+                    .setUpdateType(UpdateType.DELETED)
+                    .build();
+        }
+        return PriceUpdate.parseFrom(record.value());
+    }
+
+    private record Replay(int records, boolean complete) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.priceclient.kafka;
+
+import com.example.priceclient.service.OrderBookReplica;
+import com.example.priceservice.grpc.OrderBookUpdate;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Kafka consumer of the protobuf order book updates, applying them to the {@link OrderBookReplica}.
+ * Records are processed in parallel per instrument by a {@link KeyOrderedRecordProcessor}.
+ */
+@Component
+@Slf4j
+public class OrderBookKafkaConsumer {
+
+    public static final String LISTENER_ID = "order-book-updates";
+
+    private final KeyOrderedRecordProcessor<byte[]> processor;
+    private final OrderBookReplica orderBookReplica;
+    private final BatchListenerMetrics batchMetrics;
+
+    public OrderBookKafkaConsumer(@Qualifier("orderBookUpdateProcessor") KeyOrderedRecordProcessor<byte[]> processor,
+                                  OrderBookReplica orderBookReplica,
+                                  MeterRegistry meterRegistry) {
+        this.processor = processor;
+        this.orderBookReplica = orderBookReplica;
+        this.batchMetrics = new BatchListenerMetrics(meterRegistry, LISTENER_ID);
+    }
+
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${price.kafka.orderbook.topic:order-book-updates.proto}", groupId = "price-client-orderbook",
+            containerFactory = "orderBookKafkaListenerContainerFactory")
+    public void listenBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        long start = System.nanoTime();
+        processor.process(records, record -> listen(record.value()), consumer);
+        batchMetrics.record(records.size(), start);
+    }
+
+    /**
+     * Processes a single protobuf encoded order book update
+     *
+     * @throws IllegalArgumentException if the message is not a valid {@code OrderBookUpdate}
+     */
+    public void listen(byte[] message) {
+        OrderBookUpdate update;
+        try {
+            update = OrderBookUpdate.parseFrom(message);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Invalid protobuf order book update", e);
+        }
+        processOrderBookUpdate(update);
+    }
+
+    void processOrderBookUpdate(OrderBookUpdate message) {
+        log.debug("Received order book update of {} sequence {}, snapshot: {}",
+                message.getInstrumentId(), message.getSequence(), message.getSnapshot());
+        orderBookReplica.apply(message);
+    }
+}
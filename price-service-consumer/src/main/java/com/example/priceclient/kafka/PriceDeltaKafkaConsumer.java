@@ -0,0 +1,80 @@
+package com.example.priceclient.kafka;
+
+import com.example.priceclient.service.LatestPriceView;
+import com.example.priceclient.service.PriceDeltaState;
+import com.example.priceservice.grpc.PriceDelta;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Kafka consumer of the compact price delta topic, an alternative to the full protobuf price updates.
+ * Deltas are rebuilt into prices by a {@link PriceDeltaState} and applied to the {@link LatestPriceView};
+ * after a sequence gap an instrument is skipped until the provider sends its next snapshot.
+ */
+@Component
+@ConditionalOnProperty(value = "price.kafka.delta.enabled", havingValue = "true")
+@Slf4j
+public class PriceDeltaKafkaConsumer {
+
+    public static final String LISTENER_ID = "price-deltas";
+
+    private final KeyOrderedRecordProcessor<byte[]> processor;
+    private final LatestPriceView latestPriceView;
+    private final PriceDeltaState deltaState;
+    private final BatchListenerMetrics batchMetrics;
+
+    public PriceDeltaKafkaConsumer(@Qualifier("priceDeltaProcessor") KeyOrderedRecordProcessor<byte[]> processor,
+                                   LatestPriceView latestPriceView,
+                                   MeterRegistry meterRegistry) {
+        this.processor = processor;
+        this.latestPriceView = latestPriceView;
+        this.deltaState = new PriceDeltaState(meterRegistry, LISTENER_ID);
+        this.batchMetrics = new BatchListenerMetrics(meterRegistry, LISTENER_ID);
+    }
+
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${price.kafka.delta.topic:price-deltas.proto}", groupId = "price-client-delta",
+            containerFactory = "deltaKafkaListenerContainerFactory")
+    public void listenBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        long start = System.nanoTime();
+        processor.process(records, record -> listen(record.key(), record.value()), consumer);
+        batchMetrics.record(records.size(), start);
+    }
+
+    /**
+     * Processes a single protobuf encoded price delta
+     *
+     * @param instrumentId record key
+     * @throws IllegalArgumentException if the message is not a valid {@code PriceDelta}
+     */
+    public void listen(String instrumentId, byte[] message) {
+        PriceDelta delta;
+        try {
+            delta = PriceDelta.parseFrom(message);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Invalid protobuf price delta", e);
+        }
+        processPriceDelta(instrumentId, delta);
+    }
+
+    void processPriceDelta(String instrumentId, PriceDelta message) {
+        log.debug("Received protobuf price delta: {}", message);
+        deltaState.apply(instrumentId, message).ifPresent(update -> {
+            if (update.deleted() && update.lastUpdated() != null) {
+                latestPriceView.remove(update.instrumentId(), update.lastUpdated());
+            } else if (update.deleted()) {
+                latestPriceView.remove(update.instrumentId());
+            } else {
+                latestPriceView.update(update.instrumentId(), update.bidPrice(), update.askPrice(), update.lastUpdated());
+            }
+        });
+    }
+}
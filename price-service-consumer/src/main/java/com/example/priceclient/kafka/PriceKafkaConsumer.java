@@ -1,25 +1,76 @@
 package com.example.priceclient.kafka;
 
+import com.example.priceclient.service.LatestPriceView;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 /**
  * Kafka consumer that processes price update events.
+ * The listener receives every poll as one batch and hands it to a {@link KeyOrderedRecordProcessor},
+ * which processes the records in parallel per instrument and commits their offsets once processed.
+ * Record values arrive as raw bytes and are decoded straight into {@link PriceUpdateMessage} by a reader built
+ * once, without an intermediate String. Every update is applied to the {@link LatestPriceView}.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
-public class PriceKafkaConsumer {
+public class PriceKafkaConsumer extends StartFromOffsetsSeekAware {
+
+    public static final String LISTENER_ID = "price-updates";
+
+    private final ObjectReader reader;
+    private final KeyOrderedRecordProcessor<byte[]> processor;
+    private final LatestPriceView latestPriceView;
+    private final BatchListenerMetrics batchMetrics;
+
+    public PriceKafkaConsumer(ObjectMapper objectMapper,
+                              @Qualifier("priceUpdateProcessor") KeyOrderedRecordProcessor<byte[]> processor,
+                              LatestPriceView latestPriceView,
+                              MeterRegistry meterRegistry) {
+        this.reader = objectMapper.readerFor(PriceUpdateMessage.class);
+        this.processor = processor;
+        this.latestPriceView = latestPriceView;
+        this.batchMetrics = new BatchListenerMetrics(meterRegistry, LISTENER_ID);
+    }
 
-    private final ObjectMapper objectMapper;
+    // In bootstrap mode the listener is started by LatestPriceBootstrap once the latest prices are loaded
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${price.kafka.topic:price-updates}", groupId = "price-client",
+            autoStartup = "#{!${price.kafka.bootstrap.enabled:false}}")
+    public void listenBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        long start = System.nanoTime();
+        processor.process(records, record -> listen(record.value()), consumer);
+        batchMetrics.record(records.size(), start);
+    }
+
+    /**
+     * Processes a single JSON encoded price update
+     *
+     * @throws UncheckedIOException if the message is not a valid price update
+     */
+    public void listen(byte[] message) {
+        try {
+            processPriceUpdate(reader.readValue(message));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid price update", e);
+        }
+    }
 
-    @KafkaListener(topics = "${price.kafka.topic:price-updates}", groupId = "price-client")
+    /**
+     * Processes a single JSON encoded price update given as text
+     */
     public void listen(String message) {
         try {
-            PriceUpdateMessage event = objectMapper.readValue(message, PriceUpdateMessage.class);
+            PriceUpdateMessage event = reader.readValue(message);
             processPriceUpdate(event);
         } catch (Exception e) {
             log.error("Failed to process price update", e);
@@ -27,7 +78,8 @@ public class PriceKafkaConsumer {
     }
 
     void processPriceUpdate(PriceUpdateMessage message) {
-        log.info("Received price update: {}", message);
-        // further processing logic would go here
+        log.debug("Received price update: {}", message);
+        latestPriceView.update(message.getInstrumentId(), message.getBidPrice(), message.getAskPrice(),
+                message.getLastUpdated());
     }
 }
@@ -1,31 +1,87 @@
 package com.example.priceclient.kafka;
 
+import com.example.priceclient.service.LatestPriceView;
 import com.example.priceservice.grpc.PriceUpdate;
-import lombok.RequiredArgsConstructor;
+import com.example.priceservice.grpc.UpdateType;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
 /**
  * Kafka consumer that processes protobuf price update events.
+ * The listener receives every poll as one batch and hands it to a {@link KeyOrderedRecordProcessor},
+ * which processes the records in parallel per instrument and commits their offsets once processed.
+ * Every update is applied to the {@link LatestPriceView}, deletions included: the provider publishes them on this topic
+ * as {@code DELETED} updates, so deleted instruments leave the view without the latest price bootstrap.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
-public class ProtoPriceKafkaConsumer {
+public class ProtoPriceKafkaConsumer extends StartFromOffsetsSeekAware {
+
+    public static final String LISTENER_ID = "price-updates-proto";
+
+    private final KeyOrderedRecordProcessor<byte[]> processor;
+    private final LatestPriceView latestPriceView;
+    private final BatchListenerMetrics batchMetrics;
+
+    public ProtoPriceKafkaConsumer(@Qualifier("protoPriceUpdateProcessor") KeyOrderedRecordProcessor<byte[]> processor,
+                                   LatestPriceView latestPriceView,
+                                   MeterRegistry meterRegistry) {
+        this.processor = processor;
+        this.latestPriceView = latestPriceView;
+        this.batchMetrics = new BatchListenerMetrics(meterRegistry, LISTENER_ID);
+    }
+
+    // In bootstrap mode the listener is started by LatestPriceBootstrap once the latest prices are loaded
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "${price.kafka.proto.topic:price-updates.proto}", groupId = "price-client-proto",
+            containerFactory = "protoKafkaListenerContainerFactory", autoStartup = "#{!${price.kafka.bootstrap.enabled:false}}")
+    public void listenBatch(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        long start = System.nanoTime();
+        processor.process(records, record -> listen(record.value()), consumer);
+        batchMetrics.record(records.size(), start);
+    }
 
-    @KafkaListener(topics = "${price.kafka.proto.topic:price-updates.proto}", groupId = "price-client-proto", containerFactory = "protoKafkaListenerContainerFactory")
+    /**
+     * Processes a single protobuf encoded price update
+     *
+     * @throws IllegalArgumentException if the message is not a valid {@code PriceUpdate}
+     */
     public void listen(byte[] message) {
+        PriceUpdate event;
         try {
-            PriceUpdate event = PriceUpdate.parseFrom(message);
-            processPriceUpdate(event);
-        } catch (Exception e) {
-            log.error("Failed to process protobuf price update", e);
+            event = PriceUpdate.parseFrom(message);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Invalid protobuf price update", e);
         }
+        processPriceUpdate(event);
     }
 
     void processPriceUpdate(PriceUpdate message) {
-        log.info("Received protobuf price update: {}", message);
-        // further processing logic would go here
+        log.debug("Received protobuf price update: {}", message);
+        String instrumentId = message.getPrice().getInstrumentId();
+        if (message.getUpdateType() == UpdateType.DELETED) {
+            // Tombstones of the latest price topic carry no time, live deletions do
+            if (message.getPrice().hasLastUpdated()) {
+                latestPriceView.remove(instrumentId, Instant.ofEpochSecond(message.getPrice().getLastUpdated().getSeconds(),
+                        message.getPrice().getLastUpdated().getNanos()));
+            } else {
+                latestPriceView.remove(instrumentId);
+            }
+        } else {
+            latestPriceView.update(instrumentId,
+                    BigDecimal.valueOf(message.getPrice().getBidPrice()),
+                    BigDecimal.valueOf(message.getPrice().getAskPrice()),
+                    Instant.ofEpochSecond(message.getPrice().getLastUpdated().getSeconds(),
+                            message.getPrice().getLastUpdated().getNanos()));
+        }
     }
 }
@@ -0,0 +1,37 @@
+package com.example.priceclient.kafka;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
+
+import java.util.Map;
+
+/**
+ * Base for listeners that can be told to start from given offsets instead of their committed offsets.
+ * The seek is applied to the first partition assignment only, later rebalances resume from committed offsets.
+ * Assigned partitions without a given offset were created afterwards and are read from the beginning.
+ */
+public abstract class StartFromOffsetsSeekAware extends AbstractConsumerSeekAware {
+
+    private volatile Map<TopicPartition, Long> startFrom;
+
+    /**
+     * Makes the listener seek to the given offsets once its partitions are assigned
+     *
+     * @param offsets offset to start consuming from per partition
+     */
+    public void startFrom(Map<TopicPartition, Long> offsets) {
+        this.startFrom = Map.copyOf(offsets);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        super.onPartitionsAssigned(assignments, callback);
+        Map<TopicPartition, Long> offsets = startFrom;
+        if (offsets != null && !assignments.isEmpty()) {
+            startFrom = null;
+            for (TopicPartition partition : assignments.keySet()) {
+                callback.seek(partition.topic(), partition.partition(), offsets.getOrDefault(partition, 0L));
+            }
+        }
+    }
+}
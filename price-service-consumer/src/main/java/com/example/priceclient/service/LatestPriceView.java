@@ -0,0 +1,154 @@
+package com.example.priceclient.service;
+
+import com.example.priceservice.client.api.model.PriceDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory view of the latest price of every instrument, maintained from the Kafka price streams.
+ * <p>
+ * Updates may arrive from both price topics, from the latest price bootstrap and from REST fallbacks, in any order
+ * across sources, so an update only replaces a price that is not newer than itself. A timed removal is kept as
+ * a tombstone, so an older update arriving late, e.g. from the JSON topic that carries no deletions, does not bring
+ * the instrument back. Tombstones are dropped {@code tombstoneTtl} after the removal arrived, by then late updates
+ * of the other sources have long been applied. Reads never block and return
+ * copies, the view itself is never exposed. The view is complete once it was loaded from a full snapshot, either the
+ * latest price bootstrap or a REST listing; before that a miss does not mean the instrument has no price.
+ */
+@Component
+@Slf4j
+public class LatestPriceView {
+
+    private final ConcurrentSkipListMap<String, LatestPrice> prices = new ConcurrentSkipListMap<>();
+    // Tombstones in the order they were stored, the oldest are dropped on later writes
+    private final ConcurrentLinkedQueue<Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+    private final long tombstoneTtlNanos;
+    private final LongSupplier nanoTime;
+    private volatile boolean complete;
+
+    @Autowired
+    public LatestPriceView(MeterRegistry meterRegistry,
+                           @Value("${price.view.tombstone-ttl-ms:600000}") long tombstoneTtlMillis) {
+        this(meterRegistry, Duration.ofMillis(tombstoneTtlMillis), System::nanoTime);
+    }
+
+    LatestPriceView(MeterRegistry meterRegistry, Duration tombstoneTtl, LongSupplier nanoTime) {
+        this.tombstoneTtlNanos = tombstoneTtl.toNanos();
+        this.nanoTime = nanoTime;
+        Gauge.builder("price.view.instruments", prices,
+                        view -> view.values().stream().filter(LatestPrice::present).count())
+                .description("Instruments held by the local latest price view")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores the price unless the view already holds a newer one
+     */
+    public void update(String instrumentId, BigDecimal bidPrice, BigDecimal askPrice, Instant lastUpdated) {
+        expireTombstones();
+        prices.merge(instrumentId, new LatestPrice(bidPrice, askPrice, lastUpdated), LatestPrice::newest);
+    }
+
+    public void update(PriceDto price) {
+        update(price.getInstrumentId(), price.getBidPrice(), price.getAskPrice(), price.getLastUpdated().toInstant());
+    }
+
+    /**
+     * Removes the price unless the view already holds a newer one, and keeps prices older than the removal out
+     */
+    public void remove(String instrumentId, Instant deletedAt) {
+        expireTombstones();
+        LatestPrice tombstone = new LatestPrice(null, null, deletedAt);
+        if (prices.merge(instrumentId, tombstone, LatestPrice::newest) == tombstone) {
+            tombstones.add(new Tombstone(instrumentId, tombstone, nanoTime.getAsLong()));
+        }
+    }
+
+    /**
+     * Removes the price whatever its time, for deletions that carry none, e.g. tombstones of the latest price topic
+     */
+    public void remove(String instrumentId) {
+        prices.remove(instrumentId);
+    }
+
+    /**
+     * Marks the view as holding every instrument, called once a full snapshot has been applied
+     */
+    public void markComplete() {
+        if (!complete) {
+            complete = true;
+            log.info("Latest price view complete with {} instruments", prices.size());
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public Optional<PriceDto> get(String instrumentId) {
+        LatestPrice price = prices.get(instrumentId);
+        return price != null && price.present() ? Optional.of(price.toDto(instrumentId)) : Optional.empty();
+    }
+
+    /**
+     * @return all prices ordered by instrument ID
+     */
+    public List<PriceDto> getAll() {
+        return prices.entrySet().stream()
+                .filter(entry -> entry.getValue().present())
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * Drops tombstones stored longer than the time to live, unless a newer price or removal replaced them already
+     */
+    private void expireTombstones() {
+        long now = nanoTime.getAsLong();
+        Tombstone oldest;
+        while ((oldest = tombstones.peek()) != null && now - oldest.storedAt() >= tombstoneTtlNanos) {
+            if (tombstones.remove(oldest)) {
+                prices.remove(oldest.instrumentId(), oldest.price());
+            }
+        }
+    }
+
+    private record Tombstone(String instrumentId, LatestPrice price, long storedAt) {
+    }
+
+    /**
+     * Price of an instrument, or a tombstone without prices if the instrument was removed
+     */
+    private record LatestPrice(BigDecimal bidPrice, BigDecimal askPrice, Instant lastUpdated) {
+
+        boolean present() {
+            return bidPrice != null;
+        }
+
+        static LatestPrice newest(LatestPrice current, LatestPrice update) {
+            return update.lastUpdated().isBefore(current.lastUpdated()) ? current : update;
+        }
+
+        PriceDto toDto(String instrumentId) {
+            return new PriceDto()
+                    .instrumentId(instrumentId)
+                    .bidPrice(bidPrice)
+                    .askPrice(askPrice)
+                    .lastUpdated(lastUpdated.atOffset(ZoneOffset.UTC));
+        }
+    }
+}
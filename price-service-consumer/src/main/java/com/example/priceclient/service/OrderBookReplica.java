@@ -0,0 +1,157 @@
+package com.example.priceclient.service;
+
+import com.example.priceservice.client.api.model.OrderBookDto;
+import com.example.priceservice.client.api.model.OrderDto;
+import com.example.priceservice.grpc.BookSide;
+import com.example.priceservice.grpc.LevelChangeType;
+import com.example.priceservice.grpc.OrderBookLevel;
+import com.example.priceservice.grpc.OrderBookLevelChange;
+import com.example.priceservice.grpc.OrderBookUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local replica of the order books, maintained from the order book updates on Kafka.
+ * <p>
+ * A snapshot replaces the book of its instrument, a diff is only applied on top of the book with the previous
+ * sequence. After a gap the book is dropped until the provider sends its next snapshot, the gap is counted as
+ * {@code orderbook.replica.gaps}; updates at or below the current sequence are redeliveries and ignored.
+ * Updates of one instrument must be applied in order, reads may happen concurrently and return copies.
+ */
+@Component
+@Slf4j
+public class OrderBookReplica {
+
+    private final ConcurrentHashMap<String, Book> books = new ConcurrentHashMap<>();
+    private final Counter gaps;
+
+    public OrderBookReplica(MeterRegistry meterRegistry) {
+        this.gaps = Counter.builder("orderbook.replica.gaps")
+                .description("Order book diffs dropped because the previous update of the book was missing")
+                .register(meterRegistry);
+        Gauge.builder("orderbook.replica.books", books, ConcurrentHashMap::size)
+                .description("Order books held by the local replica")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Applies an update to the book of its instrument
+     *
+     * @return true if the update was applied
+     */
+    public boolean apply(OrderBookUpdate update) {
+        String instrumentId = update.getInstrumentId();
+        if (update.getSnapshot()) {
+            Book current = books.get(instrumentId);
+            if (current != null && current.sequence() >= update.getSequence()) {
+                return false;
+            }
+            books.put(instrumentId, Book.of(update));
+            return true;
+        }
+        Book book = books.get(instrumentId);
+        if (book == null) {
+            gaps.increment();
+            log.debug("Order book diff {} of {} without a snapshot, waiting for the next one", update.getSequence(), instrumentId);
+            return false;
+        }
+        synchronized (book) {
+            if (update.getSequence() <= book.sequence) {
+                return false;
+            }
+            if (update.getSequence() != book.sequence + 1) {
+                books.remove(instrumentId, book);
+                gaps.increment();
+                log.debug("Gap in order book updates of {}: got {} after {}, waiting for the next snapshot",
+                        instrumentId, update.getSequence(), book.sequence);
+                return false;
+            }
+            book.apply(update);
+            return true;
+        }
+    }
+
+    /**
+     * @return copy of the book with bids from the highest and asks from the lowest price
+     */
+    public Optional<OrderBookDto> get(String instrumentId) {
+        Book book = books.get(instrumentId);
+        if (book == null) {
+            return Optional.empty();
+        }
+        synchronized (book) {
+            return Optional.of(book.toDto(instrumentId));
+        }
+    }
+
+    /**
+     * Aggregated levels of one book
+     */
+    private static final class Book {
+
+        // guarded by this
+        private final NavigableMap<BigDecimal, BigDecimal> bids = new TreeMap<>(Comparator.reverseOrder());
+        private final NavigableMap<BigDecimal, BigDecimal> asks = new TreeMap<>();
+        private long sequence;
+        private long timestampMicros;
+
+        static Book of(OrderBookUpdate snapshot) {
+            Book book = new Book();
+            snapshot.getBidsList().forEach(level -> book.bids.put(price(level), volume(level)));
+            snapshot.getAsksList().forEach(level -> book.asks.put(price(level), volume(level)));
+            book.sequence = snapshot.getSequence();
+            book.timestampMicros = snapshot.getTimestampMicros();
+            return book;
+        }
+
+        synchronized long sequence() {
+            return sequence;
+        }
+
+        void apply(OrderBookUpdate diff) {
+            for (OrderBookLevelChange change : diff.getChangesList()) {
+                NavigableMap<BigDecimal, BigDecimal> side = change.getSide() == BookSide.BID ? bids : asks;
+                BigDecimal price = BigDecimal.valueOf(change.getPrice());
+                if (change.getType() == LevelChangeType.LEVEL_REMOVED) {
+                    side.remove(price);
+                } else {
+                    side.put(price, BigDecimal.valueOf(change.getVolume()));
+                }
+            }
+            sequence = diff.getSequence();
+            timestampMicros = diff.getTimestampMicros();
+        }
+
+        OrderBookDto toDto(String instrumentId) {
+            return new OrderBookDto()
+                    .instrumentId(instrumentId)
+                    .bidOrders(toOrders(bids))
+                    .askOrders(toOrders(asks))
+                    .lastUpdated(Instant.EPOCH.plus(timestampMicros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC));
+        }
+
+        private static List<OrderDto> toOrders(NavigableMap<BigDecimal, BigDecimal> levels) {
+            List<OrderDto> orders = new ArrayList<>(levels.size());
+            levels.forEach((price, volume) -> orders.add(new OrderDto().price(price).volume(volume)));
+            return orders;
+        }
+
+        private static BigDecimal price(OrderBookLevel level) {
+            return BigDecimal.valueOf(level.getPrice());
+        }
+
+        private static BigDecimal volume(OrderBookLevel level) {
+            return BigDecimal.valueOf(level.getVolume());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.priceclient.service;
+
+import com.example.priceservice.grpc.PriceDelta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rebuilds prices from a stream of {@code PriceDelta} messages.
+ * <p>
+ * A snapshot replaces the state of its instrument, a delta is only applied on top of the update with the previous
+ * sequence. After a gap the instrument is dropped until its next snapshot and the gap is counted as
+ * {@code price.delta.gaps}; messages at or below the last applied sequence are redeliveries and ignored.
+ * Messages of one instrument must be applied in order, different instruments may be applied concurrently.
+ */
+@Slf4j
+public class PriceDeltaState {
+
+    private final ConcurrentHashMap<String, InstrumentPrice> prices = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> instrumentIds = new ConcurrentHashMap<>();
+    private final Counter gaps;
+
+    /**
+     * @param source tag of the gap counter, e.g. the topic or stream the deltas come from
+     */
+    public PriceDeltaState(MeterRegistry meterRegistry, String source) {
+        this.gaps = Counter.builder("price.delta.gaps")
+                .description("Price deltas dropped because the previous update of the instrument was missing")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param key instrument ID known from outside the message, e.g. the Kafka record key, or null
+     * @return the resulting price, or empty if the message could not be applied or was a redelivery
+     */
+    public Optional<Update> apply(String key, PriceDelta delta) {
+        String instrumentId = resolve(key, delta);
+        if (instrumentId == null) {
+            gaps.increment();
+            log.debug("Dropped price delta of unknown instrument ref {}", delta.getInstrumentRef());
+            return Optional.empty();
+        }
+        if (delta.getDeleted()) {
+            prices.remove(instrumentId);
+            // Deletions of older providers carry no time
+            Instant deletedAt = delta.getTimestampMicros() != 0
+                    ? Instant.EPOCH.plus(delta.getTimestampMicros(), ChronoUnit.MICROS)
+                    : null;
+            return Optional.of(new Update(instrumentId, true, null, null, deletedAt));
+        }
+        InstrumentPrice current = prices.get(instrumentId);
+        long sequence = delta.getSequence();
+        if (current != null && sequence != 0 && sequence <= current.sequence()) {
+            return Optional.empty();
+        }
+        InstrumentPrice updated;
+        if (delta.getSnapshot()) {
+            updated = new InstrumentPrice(sequence, delta.getBidPrice(), delta.getAskPrice(), delta.getTimestampMicros());
+        } else if (current != null && sequence == current.sequence() + 1) {
+            updated = new InstrumentPrice(sequence,
+                    delta.hasBidPrice() ? delta.getBidPrice() : current.bidPrice(),
+                    delta.hasAskPrice() ? delta.getAskPrice() : current.askPrice(),
+                    current.timestampMicros() + delta.getTimestampDeltaMicros());
+        } else {
+            prices.remove(instrumentId);
+            gaps.increment();
+            log.debug("Gap in price deltas of {}: got {} after {}, waiting for the next snapshot",
+                    instrumentId, sequence, current != null ? current.sequence() : "nothing");
+            return Optional.empty();
+        }
+        prices.put(instrumentId, updated);
+        return Optional.of(updated.toUpdate(instrumentId));
+    }
+
+    private String resolve(String key, PriceDelta delta) {
+        if (!delta.getInstrumentId().isEmpty()) {
+            instrumentIds.put(delta.getInstrumentRef(), delta.getInstrumentId());
+            return delta.getInstrumentId();
+        }
+        return key != null ? key : instrumentIds.get(delta.getInstrumentRef());
+    }
+
+    /**
+     * Price after applying a message; prices are null for deletions, as is the time of deletions without one
+     */
+    public record Update(String instrumentId, boolean deleted, BigDecimal bidPrice, BigDecimal askPrice,
+                         Instant lastUpdated) {
+    }
+
+    private record InstrumentPrice(long sequence, double bidPrice, double askPrice, long timestampMicros) {
+
+        Update toUpdate(String instrumentId) {
+            return new Update(instrumentId, false, BigDecimal.valueOf(bidPrice), BigDecimal.valueOf(askPrice),
+                    Instant.EPOCH.plus(timestampMicros, ChronoUnit.MICROS));
+        }
+    }
+}
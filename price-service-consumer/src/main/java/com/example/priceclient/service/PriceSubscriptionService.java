@@ -9,10 +9,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Service for managing price subscriptions and retrieving price information.
  * This service uses the PriceServiceClient to communicate with the provider.
+ * Prices are read from the {@link LatestPriceView} kept up to date from Kafka; the REST API is only called
+ * while the view does not know the instrument yet, and the answer is added to the view.
  */
 @Service
 @RequiredArgsConstructor
@@ -21,6 +24,8 @@ public class PriceSubscriptionService {
 
     private final PricesApi pricesApi;
     private final OrderBookApi orderBookApi;
+    private final LatestPriceView latestPriceView;
+    private final OrderBookReplica orderBookReplica;
 
     /**
      * Gets all available prices
@@ -28,8 +33,14 @@ public class PriceSubscriptionService {
      * @return list of all prices
      */
     public List<PriceDto> getAllPrices() {
-        log.debug("Getting all prices");
-        return pricesApi.getAllPrices();
+        if (latestPriceView.isComplete()) {
+            return latestPriceView.getAll();
+        }
+        log.debug("Latest price view not complete yet, getting all prices from the provider");
+        List<PriceDto> prices = pricesApi.getAllPrices();
+        prices.forEach(latestPriceView::update);
+        latestPriceView.markComplete();
+        return prices;
     }
 
     /**
@@ -39,19 +50,31 @@ public class PriceSubscriptionService {
      * @return the price if available
      */
     public PriceDto getPriceForInstrument(String instrumentId) {
-        log.debug("Getting price for instrument: {}", instrumentId);
-        return pricesApi.getPrice(instrumentId);
+        Optional<PriceDto> cached = latestPriceView.get(instrumentId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        log.debug("Price for instrument {} not in the latest price view, getting it from the provider", instrumentId);
+        PriceDto price = pricesApi.getPrice(instrumentId);
+        latestPriceView.update(price);
+        return price;
     }
 
     /**
-     * Gets the order book for a specific instrument
+     * Gets the order book for a specific instrument.
+     * Served from the Kafka-fed order book replica, the provider is only asked if the replica does not hold the book.
      *
      * @param instrumentId the unique identifier of the instrument
      * @return the order book if available
      */
     public OrderBookDto getOrderBookForInstrument(String instrumentId) {
         log.debug("Getting order book for instrument: {}", instrumentId);
-        return orderBookApi.getOrderBook(instrumentId);
+        Optional<OrderBookDto> replicated = orderBookReplica.get(instrumentId);
+        if (replicated.isPresent()) {
+            return replicated.get();
+        }
+        log.debug("Order book of {} not in the replica, getting it from the provider", instrumentId);
+        return orderBookApi.getOrderBook(instrumentId, null, null, null);
     }
 
     /**
@@ -62,6 +85,9 @@ public class PriceSubscriptionService {
      */
     public PriceDto updatePrice(PriceDto priceDto) {
         log.debug("Updating price for instrument: {}", priceDto.getInstrumentId());
-        return pricesApi.savePrice(priceDto.getInstrumentId(), priceDto);
+        PriceDto saved = pricesApi.savePrice(priceDto.getInstrumentId(), priceDto);
+        // Read your own write without waiting for the update to come back through Kafka
+        latestPriceView.update(saved);
+        return saved;
     }
 }
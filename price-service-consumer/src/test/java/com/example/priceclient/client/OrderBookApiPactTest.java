@@ -129,7 +129,7 @@ public class OrderBookApiPactTest {
     @Test
     @PactTestFor(pactMethod = "getOrderBookPact")
     void testGetOrderBook() {
-        var orderBook = orderBookApi.getOrderBook("AAPL");
+        var orderBook = orderBookApi.getOrderBook("AAPL", null, null, null);
 
         assertThat(orderBook.getInstrumentId()).isEqualTo("AAPL");
         assertThat(orderBook.getBidOrders()).hasSize(2);
@@ -173,7 +173,7 @@ public class OrderBookApiPactTest {
     @Test
     @PactTestFor(pactMethod = "getOrderBookNotFoundPact")
     void testGetOrderBookNotFound() {
-        assertThatThrownBy(() -> orderBookApi.getOrderBook("UNKNOWN"))
+        assertThatThrownBy(() -> orderBookApi.getOrderBook("UNKNOWN", null, null, null))
                 .isInstanceOf(HttpClientErrorException.NotFound.class);
     }
 
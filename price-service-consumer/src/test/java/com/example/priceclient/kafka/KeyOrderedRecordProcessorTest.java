@@ -0,0 +1,202 @@
+package com.example.priceclient.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the key ordered parallel record processor.
+ * <p>
+ * Модульные тесты для параллельного обработчика записей с сохранением порядка по ключу.
+ */
+class KeyOrderedRecordProcessorTest {
+
+    private static final String TOPIC = "price-updates";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    private final List<ConsumerRecord<?, ?>> recovered = new CopyOnWriteArrayList<>();
+    private final KeyOrderedRecordProcessor<String> processor =
+            new KeyOrderedRecordProcessor<>("test", 4, 100, 5000, 5000, (record, exception) -> recovered.add(record));
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, String> consumer = mock(Consumer.class);
+
+    @AfterEach
+    void tearDown() {
+        processor.close();
+    }
+
+    /**
+     * Records of one instrument are processed in offset order even though instruments are processed in parallel.
+     * <p>
+     * Записи одного инструмента обрабатываются в порядке смещений, хотя инструменты обрабатываются параллельно.
+     */
+    @Test
+    void keepsOrderPerKey() throws Exception {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int offset = 0; offset < 400; offset++) {
+            records.add(record(offset, "INSTR-" + offset % 10));
+        }
+        Map<String, List<Long>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(records.size());
+
+        processor.process(records, record -> {
+            processed.computeIfAbsent(record.key(), key -> new CopyOnWriteArrayList<>()).add(record.offset());
+            done.countDown();
+        }, consumer);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(processed).hasSize(10);
+        processed.values().forEach(offsets -> assertThat(offsets).isSorted().hasSize(40));
+    }
+
+    /**
+     * Offsets are only committed up to the first record that is not processed yet.
+     * <p>
+     * Смещения фиксируются только до первой ещё не обработанной записи.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void commitsOnlyUpToFirstUnprocessedRecord() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        processor.process(List.of(record(10, "AAPL"), record(11, "MSFT"), record(12, "GOOG")), record -> {
+            if (record.offset() == 10) {
+                await(release);
+            }
+            done.countDown();
+        }, consumer);
+
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> commits = ArgumentCaptor.forClass(Map.class);
+        verify(consumer).commitAsync(commits.capture(), any());
+        assertThat(commits.getValue().get(PARTITION).offset()).isEqualTo(10);
+
+        release.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        processor.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> revokeCommit = ArgumentCaptor.forClass(Map.class);
+        verify(consumer).commitSync(revokeCommit.capture());
+        assertThat(revokeCommit.getValue().get(PARTITION).offset()).isEqualTo(13);
+    }
+
+    /**
+     * A record whose processing fails is passed to the recoverer and committed once recovered; if the recovery
+     * fails too, the partition is not committed past the record.
+     * <p>
+     * Запись, обработка которой завершилась ошибкой, передаётся в recoverer и фиксируется после восстановления;
+     * если и восстановление не удалось, раздел не фиксируется дальше этой записи.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void commitsFailedRecordsOnlyOnceRecovered() {
+        processor.process(List.of(record(10, "AAPL"), record(11, "MSFT")), record -> {
+            if (record.offset() == 10) {
+                throw new IllegalArgumentException("invalid record");
+            }
+        }, consumer);
+        processor.onPartitionsRevokedBeforeCommit(consumer, List.of(PARTITION));
+
+        assertThat(recovered).extracting(ConsumerRecord::offset).containsExactly(10L);
+        assertThat(lastCommitted(consumer)).containsEntry(PARTITION, 12L);
+
+        Consumer<String, String> otherConsumer = mock(Consumer.class);
+        KeyOrderedRecordProcessor<String> failingRecovery = new KeyOrderedRecordProcessor<>("failing", 1, 100, 100, 5000,
+                (record, exception) -> {
+                    throw new IllegalStateException("dead letter topic unavailable");
+                });
+        try {
+            failingRecovery.process(List.of(record(20, "AAPL"), record(21, "AAPL")), record -> {
+                if (record.offset() == 20) {
+                    throw new IllegalArgumentException("invalid record");
+                }
+            }, otherConsumer);
+            failingRecovery.onPartitionsRevokedBeforeCommit(otherConsumer, List.of(PARTITION));
+        } finally {
+            failingRecovery.close();
+        }
+
+        assertThat(lastCommitted(otherConsumer)).containsEntry(PARTITION, 20L);
+    }
+
+    /**
+     * Each consumer of a processor shared by several containers only commits its own partitions.
+     * <p>
+     * Каждый потребитель обработчика, общего для нескольких контейнеров, фиксирует только свои разделы.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void commitsOnlyPartitionsOfTheCallingConsumer() throws Exception {
+        Consumer<String, String> otherConsumer = mock(Consumer.class);
+        CountDownLatch done = new CountDownLatch(2);
+        processor.process(List.of(record(10, "AAPL")), record -> done.countDown(), consumer);
+        processor.process(List.of(new ConsumerRecord<>(TOPIC, 1, 20, "MSFT", "value-20")), record -> done.countDown(),
+                otherConsumer);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+        processor.onPartitionsRevokedBeforeCommit(otherConsumer, List.of(PARTITION, new TopicPartition(TOPIC, 1)));
+
+        assertThat(lastCommitted(otherConsumer)).containsOnlyKeys(new TopicPartition(TOPIC, 1));
+        assertThat(lastCommitted(consumer)).containsOnlyKeys(PARTITION);
+    }
+
+    /**
+     * Records that cannot be dispatched within the timeout are left for the next poll.
+     * <p>
+     * Записи, которые не удалось передать обработчикам за отведённое время, остаются для следующего опроса.
+     */
+    @Test
+    void seeksBackToRecordsNotDispatchedInTime() {
+        KeyOrderedRecordProcessor<String> saturated = new KeyOrderedRecordProcessor<>("saturated", 1, 1, 5000, 50,
+                (record, exception) -> recovered.add(record));
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            saturated.process(List.of(record(10, "AAPL"), record(11, "AAPL"), record(12, "MSFT")),
+                    record -> await(release), consumer);
+
+            verify(consumer).seek(PARTITION, 11L);
+        } finally {
+            release.countDown();
+            saturated.close();
+        }
+    }
+
+    /**
+     * @return highest offset committed per partition, asynchronously or on revocation
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<TopicPartition, Long> lastCommitted(Consumer<String, String> consumer) {
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> commits = ArgumentCaptor.forClass(Map.class);
+        verify(consumer, atLeast(0)).commitAsync(commits.capture(), any());
+        verify(consumer, atLeast(0)).commitSync(commits.capture());
+        Map<TopicPartition, Long> last = new HashMap<>();
+        commits.getAllValues().forEach(commit ->
+                commit.forEach((partition, offset) -> last.merge(partition, offset.offset(), Math::max)));
+        return last;
+    }
+
+    private static ConsumerRecord<String, String> record(long offset, String key) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, key, "value-" + offset);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
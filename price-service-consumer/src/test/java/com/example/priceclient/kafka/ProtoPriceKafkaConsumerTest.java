@@ -0,0 +1,56 @@
+package com.example.priceclient.kafka;
+
+import com.example.priceclient.service.LatestPriceView;
+import com.example.priceservice.grpc.Price;
+import com.example.priceservice.grpc.PriceUpdate;
+import com.example.priceservice.grpc.UpdateType;
+import com.google.protobuf.Timestamp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for applying protobuf price updates to the latest price view.
+ * <p>
+ * Модульные тесты применения protobuf обновлений цен к представлению последних цен.
+ */
+class ProtoPriceKafkaConsumerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LatestPriceView view = new LatestPriceView(meterRegistry, 600_000);
+    @SuppressWarnings("unchecked")
+    private final ProtoPriceKafkaConsumer consumer =
+            new ProtoPriceKafkaConsumer(mock(KeyOrderedRecordProcessor.class), view, meterRegistry);
+
+    /**
+     * A DELETED update removes the instrument from the view.
+     * <p>
+     * Обновление DELETED удаляет инструмент из представления.
+     */
+    @Test
+    void removesDeletedInstrument() {
+        Instant now = Instant.now();
+        consumer.listen(update("AAPL", UpdateType.UPDATED, now).toByteArray());
+        assertThat(view.get("AAPL")).isPresent();
+
+        consumer.listen(update("AAPL", UpdateType.DELETED, now.plusSeconds(1)).toByteArray());
+
+        assertThat(view.get("AAPL")).isEmpty();
+        assertThat(view.getAll()).isEmpty();
+        assertThat(meterRegistry.get("price.view.instruments").gauge().value()).isZero();
+    }
+
+    private static PriceUpdate update(String instrumentId, UpdateType type, Instant time) {
+        Price.Builder price = Price.newBuilder()
+                .setInstrumentId(instrumentId)
+                .setLastUpdated(Timestamp.newBuilder().setSeconds(time.getEpochSecond()).setNanos(time.getNano()));
+        if (type == UpdateType.UPDATED) {
+            price.setBidPrice(175.50).setAskPrice(175.75);
+        }
+        return PriceUpdate.newBuilder().setPrice(price).setUpdateType(type).build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.priceclient.service;
+
+import com.example.priceservice.client.api.model.PriceDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the local latest price view.
+ * <p>
+ * Модульные тесты для локального представления последних цен.
+ */
+class LatestPriceViewTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final LatestPriceView view =
+            new LatestPriceView(new SimpleMeterRegistry(), Duration.ofMinutes(10), nanoTime::get);
+
+    /**
+     * An older update arriving late, e.g. from the other topic, does not replace a newer price.
+     * <p>
+     * Более старое обновление, пришедшее позже, например из другого топика, не заменяет более новую цену.
+     */
+    @Test
+    void keepsNewestPrice() {
+        Instant now = Instant.now();
+        view.update("AAPL", new BigDecimal("175.50"), new BigDecimal("175.75"), now);
+        view.update("AAPL", new BigDecimal("174.00"), new BigDecimal("174.25"), now.minusSeconds(1));
+
+        assertThat(view.get("AAPL")).map(PriceDto::getBidPrice).contains(new BigDecimal("175.50"));
+
+        view.update("AAPL", new BigDecimal("176.00"), new BigDecimal("176.25"), now.plusSeconds(1));
+        assertThat(view.get("AAPL")).map(PriceDto::getBidPrice).contains(new BigDecimal("176.00"));
+    }
+
+    /**
+     * Prices are listed by instrument ID and removed ones are gone.
+     * <p>
+     * Цены перечисляются по идентификатору инструмента, удалённые отсутствуют.
+     */
+    @Test
+    void listsPricesByInstrument() {
+        Instant now = Instant.now();
+        view.update("MSFT", BigDecimal.ONE, BigDecimal.TEN, now);
+        view.update("AAPL", BigDecimal.ONE, BigDecimal.TEN, now);
+        view.update("GOOG", BigDecimal.ONE, BigDecimal.TEN, now);
+        view.remove("GOOG");
+
+        assertThat(view.getAll()).extracting(PriceDto::getInstrumentId).containsExactly("AAPL", "MSFT");
+        assertThat(view.get("GOOG")).isEmpty();
+        assertThat(view.isComplete()).isFalse();
+    }
+
+    /**
+     * An update older than a removal, e.g. from the JSON topic that carries no deletions, does not bring
+     * the instrument back, a newer one does.
+     * <p>
+     * Обновление старше удаления, например из JSON топика без удалений, не возвращает инструмент, более новое возвращает.
+     */
+    @Test
+    void keepsRemovalAgainstOlderUpdates() {
+        Instant now = Instant.now();
+        view.update("AAPL", new BigDecimal("175.50"), new BigDecimal("175.75"), now.minusSeconds(2));
+        view.remove("AAPL", now);
+
+        view.update("AAPL", new BigDecimal("175.50"), new BigDecimal("175.75"), now.minusSeconds(1));
+        assertThat(view.get("AAPL")).isEmpty();
+        assertThat(view.getAll()).isEmpty();
+
+        view.update("AAPL", new BigDecimal("176.00"), new BigDecimal("176.25"), now.plusSeconds(1));
+        assertThat(view.get("AAPL")).map(PriceDto::getBidPrice).contains(new BigDecimal("176.00"));
+    }
+
+    /**
+     * A tombstone is dropped once its time to live passed, later updates are then applied whatever their time.
+     * <p>
+     * Надгробие удаляется по истечении времени жизни, после этого обновления применяются независимо от времени.
+     */
+    @Test
+    void expiresTombstones() {
+        Instant now = Instant.now();
+        view.remove("AAPL", now);
+        view.update("AAPL", new BigDecimal("175.50"), new BigDecimal("175.75"), now.minusSeconds(1));
+        assertThat(view.get("AAPL")).isEmpty();
+
+        nanoTime.addAndGet(Duration.ofMinutes(10).toNanos());
+        view.update("AAPL", new BigDecimal("175.50"), new BigDecimal("175.75"), now.minusSeconds(1));
+        assertThat(view.get("AAPL")).map(PriceDto::getBidPrice).contains(new BigDecimal("175.50"));
+    }
+}
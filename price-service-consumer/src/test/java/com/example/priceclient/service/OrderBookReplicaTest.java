@@ -0,0 +1,75 @@
+package com.example.priceclient.service;
+
+import com.example.priceservice.client.api.model.OrderBookDto;
+import com.example.priceservice.client.api.model.OrderDto;
+import com.example.priceservice.grpc.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the local order book replica.
+ * <p>
+ * Модульные тесты для локальной реплики стаканов заявок.
+ */
+class OrderBookReplicaTest {
+
+    private final OrderBookReplica replica = new OrderBookReplica(new SimpleMeterRegistry());
+
+    /**
+     * Diffs are applied on top of the snapshot in sequence order.
+     * <p>
+     * Изменения применяются поверх снимка в порядке последовательности.
+     */
+    @Test
+    void appliesDiffsOnTopOfSnapshot() {
+        assertThat(replica.apply(snapshot(1))).isTrue();
+        assertThat(replica.apply(OrderBookUpdate.newBuilder()
+                .setInstrumentId("AAPL")
+                .setSequence(2)
+                .addChanges(change(BookSide.BID, LevelChangeType.LEVEL_ADDED, 100.5, 3))
+                .addChanges(change(BookSide.BID, LevelChangeType.LEVEL_REMOVED, 99, 0))
+                .addChanges(change(BookSide.ASK, LevelChangeType.LEVEL_CHANGED, 101, 7))
+                .build())).isTrue();
+
+        OrderBookDto book = replica.get("AAPL").orElseThrow();
+        assertThat(book.getBidOrders()).extracting(OrderDto::getPrice)
+                .containsExactly(BigDecimal.valueOf(100.5), BigDecimal.valueOf(100.0));
+        assertThat(book.getAskOrders()).extracting(OrderDto::getVolume).containsExactly(BigDecimal.valueOf(7.0));
+    }
+
+    /**
+     * After a gap the book is dropped until the next snapshot, redeliveries are ignored.
+     * <p>
+     * После пропуска стакан удаляется до следующего снимка, повторные доставки игнорируются.
+     */
+    @Test
+    void dropsBookOnGapUntilNextSnapshot() {
+        replica.apply(snapshot(1));
+
+        assertThat(replica.apply(snapshot(1))).isFalse();
+        assertThat(replica.apply(OrderBookUpdate.newBuilder().setInstrumentId("AAPL").setSequence(3).build())).isFalse();
+        assertThat(replica.get("AAPL")).isEmpty();
+
+        assertThat(replica.apply(snapshot(4))).isTrue();
+        assertThat(replica.get("AAPL")).isPresent();
+    }
+
+    private static OrderBookUpdate snapshot(long sequence) {
+        return OrderBookUpdate.newBuilder()
+                .setInstrumentId("AAPL")
+                .setSequence(sequence)
+                .setSnapshot(true)
+                .addBids(OrderBookLevel.newBuilder().setPrice(100).setVolume(5))
+                .addBids(OrderBookLevel.newBuilder().setPrice(99).setVolume(2))
+                .addAsks(OrderBookLevel.newBuilder().setPrice(101).setVolume(4))
+                .build();
+    }
+
+    private static OrderBookLevelChange change(BookSide side, LevelChangeType type, double price, double volume) {
+        return OrderBookLevelChange.newBuilder().setSide(side).setType(type).setPrice(price).setVolume(volume).build();
+    }
+}
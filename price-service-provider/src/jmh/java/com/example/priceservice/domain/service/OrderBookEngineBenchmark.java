@@ -0,0 +1,92 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.OrderBook;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fixed-point {@link OrderBookEngine} for books of different depths: loading a book ordered from the
+ * best price on, and a top-10 snapshot compared with the {@link OrderBook} object model it replaces as the hot copy.
+ * <p>
+ * Измеряет {@link OrderBookEngine} с фиксированной точкой для стаканов разной глубины: загрузку стакана,
+ * упорядоченного от лучшей цены, и снимок 10 лучших уровней в сравнении с объектной моделью {@link OrderBook},
+ * которую он заменяет в качестве горячей копии.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderBookEngineBenchmark {
+
+    private static final String INSTRUMENT = "AAPL";
+    private static final int TOP = 10;
+
+    @Param({"10", "100", "1000"})
+    public int levels;
+
+    private final OrderBookEngine engine = new OrderBookEngine(1, Duration.ofDays(1).toMillis());
+    private OrderBook objectBook;
+    private OrderBook sortedBook;
+
+    @Setup
+    public void setUp() {
+        List<OrderBook.Order> bids = new ArrayList<>(levels);
+        List<OrderBook.Order> asks = new ArrayList<>(levels);
+        for (int i = 0; i < levels; i++) {
+            // Unsorted, like the order lists the object model was built from
+            int level = (i * 7919) % levels;
+            bids.add(new OrderBook.Order(BigDecimal.valueOf(100_0000L - level * 100L, 4), BigDecimal.valueOf(100 + i)));
+            asks.add(new OrderBook.Order(BigDecimal.valueOf(100_0100L + level * 100L, 4), BigDecimal.valueOf(100 + i)));
+        }
+        objectBook = OrderBook.builder()
+                .instrumentId(INSTRUMENT)
+                .bidOrders(bids)
+                .askOrders(asks)
+                .lastUpdated(Instant.now())
+                .build();
+        // Ordered from the best price on, as the repository returns saved and read books
+        sortedBook = OrderBook.builder()
+                .instrumentId(INSTRUMENT)
+                .bidOrders(bids.stream().sorted(Comparator.comparing(OrderBook.Order::getPrice).reversed()).toList())
+                .askOrders(asks.stream().sorted(Comparator.comparing(OrderBook.Order::getPrice)).toList())
+                .lastUpdated(Instant.now())
+                .build();
+        engine.load(sortedBook);
+    }
+
+    // The reload done after every save and once the held book is older than the maximum age
+    @Benchmark
+    public void engineLoad() {
+        sortedBook.setSequence(sortedBook.getSequence() + 1);
+        engine.load(sortedBook);
+    }
+
+    // Served from the view cache after the first call, as for repeated reads of an unchanged book
+    @Benchmark
+    public Optional<OrderBook> engineTopLevels() {
+        return engine.getView(INSTRUMENT, TOP, 1);
+    }
+
+    @Benchmark
+    public OrderBook objectTopLevels() {
+        return OrderBook.builder()
+                .instrumentId(INSTRUMENT)
+                .bidOrders(objectBook.getBidOrders().stream()
+                        .sorted(Comparator.comparing(OrderBook.Order::getPrice).reversed())
+                        .limit(TOP)
+                        .toList())
+                .askOrders(objectBook.getAskOrders().stream()
+                        .sorted(Comparator.comparing(OrderBook.Order::getPrice))
+                        .limit(TOP)
+                        .toList())
+                .lastUpdated(objectBook.getLastUpdated())
+                .build();
+    }
+}
@@ -2,12 +2,14 @@ package com.example.priceservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for the Price Service Provider.
  * This service provides price information for financial instruments.
  */
 @SpringBootApplication
+@EnableScheduling
 public class PriceServiceApplication {
 
     public static void main(String[] args) {
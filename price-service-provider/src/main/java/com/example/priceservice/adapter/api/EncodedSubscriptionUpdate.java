@@ -0,0 +1,80 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.grpc.SubscriptionUpdate;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * {@code SubscriptionUpdate} written to a {@code Subscribe} call.
+ * <p>
+ * A price update reuses the shared {@link EncodedPriceUpdate} bytes as its {@code price_update} field and only
+ * appends the subscription IDs of the call, which is the same wire format as the generated message.
+ * Acknowledgements and other control messages are plain generated messages.
+ */
+final class EncodedSubscriptionUpdate {
+
+    private final SubscriptionUpdate message;
+    private final EncodedPriceUpdate priceUpdate;
+    private final List<String> subscriptionIds;
+
+    private EncodedSubscriptionUpdate(SubscriptionUpdate message, EncodedPriceUpdate priceUpdate,
+                                      List<String> subscriptionIds) {
+        this.message = message;
+        this.priceUpdate = priceUpdate;
+        this.subscriptionIds = subscriptionIds;
+    }
+
+    static EncodedSubscriptionUpdate of(SubscriptionUpdate message) {
+        return new EncodedSubscriptionUpdate(message, null, List.of());
+    }
+
+    static EncodedSubscriptionUpdate of(EncodedPriceUpdate priceUpdate, List<String> subscriptionIds) {
+        return new EncodedSubscriptionUpdate(null, priceUpdate, subscriptionIds);
+    }
+
+    static EncodedSubscriptionUpdate parse(byte[] bytes) {
+        try {
+            return of(SubscriptionUpdate.parseFrom(bytes));
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Invalid SubscriptionUpdate", e);
+        }
+    }
+
+    byte[] toByteArray() {
+        if (message != null) {
+            return message.toByteArray();
+        }
+        byte[] price = priceUpdate.toByteArray();
+        int size = CodedOutputStream.computeByteArraySize(SubscriptionUpdate.PRICE_UPDATE_FIELD_NUMBER, price);
+        for (String subscriptionId : subscriptionIds) {
+            size += CodedOutputStream.computeStringSize(SubscriptionUpdate.SUBSCRIPTION_IDS_FIELD_NUMBER, subscriptionId);
+        }
+        byte[] bytes = new byte[size];
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        try {
+            output.writeByteArray(SubscriptionUpdate.PRICE_UPDATE_FIELD_NUMBER, price);
+            for (String subscriptionId : subscriptionIds) {
+                output.writeString(SubscriptionUpdate.SUBSCRIPTION_IDS_FIELD_NUMBER, subscriptionId);
+            }
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode SubscriptionUpdate", e);
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes the message, meant for tests and diagnostics rather than the hot path
+     */
+    SubscriptionUpdate toSubscriptionUpdate() {
+        if (message != null) {
+            return message;
+        }
+        return parse(toByteArray()).message;
+    }
+}
@@ -1,17 +1,44 @@
 package com.example.priceservice.adapter.api;
 
+import com.example.priceservice.adapter.proto.EncodedPriceDelta;
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.adapter.proto.OrderBookUpdates;
+import com.example.priceservice.adapter.proto.PriceDeltaTracker;
+import com.example.priceservice.config.RemoteAddressServerInterceptor;
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.OrderBookEvent;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.domain.service.OrderBookUpdateHub;
 import com.example.priceservice.domain.service.PriceServiceImpl;
+import com.example.priceservice.domain.service.PriceUpdateHub;
 import com.example.priceservice.grpc.*;
 import com.google.protobuf.Timestamp;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
 import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.beans.factory.annotation.Value;
 
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * gRPC service implementation for Price Service.
@@ -23,35 +50,87 @@ import java.util.stream.Collectors;
 public class GrpcPriceServiceController extends PriceServiceGrpc.PriceServiceImplBase {
 
     private final PriceServiceImpl priceService;
+    private final PriceUpdateHub priceUpdateHub;
+    private final PriceStreamRegistry priceStreamRegistry;
+    private final OrderBookUpdateHub orderBookUpdateHub;
+
+    @Value("${grpc.prices.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${grpc.prices.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${grpc.prices.publish.batch-size:500}")
+    private int publishBatchSize;
+
+    @Value("${grpc.prices.publish.max-delay-ms:50}")
+    private long publishMaxDelayMillis;
+
+    @Value("${grpc.prices.publish.flush-threads:2}")
+    private int publishFlushThreads;
+
+    @Value("${price.delta.snapshot-interval:100}")
+    private int deltaSnapshotInterval;
+
+    // Shared by all StreamPriceDeltas streams, so each delta is encoded once
+    private PriceDeltaTracker priceDeltaTracker;
+
+    // Flushes partially filled PublishPrices batches of all sessions, each flush saves its batch to the database
+    private ScheduledExecutorService publishFlushScheduler;
 
     @Override
     public void getAllPrices(GetAllPricesRequest request, StreamObserver<GetAllPricesResponse> responseObserver) {
         try {
-            log.debug("gRPC getAllPrices called with page: {}, size: {}", request.getPage(), request.getSize());
-
-            List<com.example.priceservice.domain.model.Price> prices = priceService.getAllPrices();
+            log.debug("gRPC getAllPrices called with page: {}, size: {}, token: {}",
+                    request.getPage(), request.getSize(), request.getPageToken());
 
-            // Apply pagination if requested
             int page = request.getPage() > 0 ? request.getPage() : 1;
-            int size = request.getSize() > 0 ? request.getSize() : prices.size();
-            int startIndex = (page - 1) * size;
-            int endIndex = Math.min(startIndex + size, prices.size());
+            // Without size and token the whole listing is returned, as before paging was introduced
+            boolean everything = request.getSize() <= 0 && request.getPageToken().isEmpty();
+            int size = request.getSize() > 0 ? Math.min(request.getSize(), maxPageSize) : defaultPageSize;
 
-            List<com.example.priceservice.domain.model.Price> paginatedPrices =
-                    startIndex < prices.size() ? prices.subList(startIndex, endIndex) : List.of();
+            String after = null;
+            if (!request.getPageToken().isEmpty()) {
+                try {
+                    after = decodePageToken(request.getPageToken());
+                } catch (IllegalArgumentException e) {
+                    responseObserver.onError(Status.INVALID_ARGUMENT
+                            .withDescription("Invalid page token")
+                            .asRuntimeException());
+                    return;
+                }
+            }
 
-            List<Price> grpcPrices = paginatedPrices.stream()
-                    .map(this::convertToGrpcPrice)
-                    .collect(Collectors.toList());
+            // Counting scans the whole table, so continuation pages do not repeat it
+            long totalCount = after == null ? priceService.countPrices() : 0;
+            if (everything) {
+                size = (int) Math.min(Math.max(totalCount, 1), Integer.MAX_VALUE - 1);
+            }
+            List<com.example.priceservice.domain.model.Price> prices;
+            boolean hasMore;
+            if (after != null || page == 1) {
+                // Keyset pagination: fetch one extra row to know whether another page exists
+                prices = priceService.getPricesAfter(after, size + 1);
+                hasMore = prices.size() > size;
+                if (hasMore) {
+                    prices = prices.subList(0, size);
+                }
+            } else {
+                // Legacy page numbers are still supported, but pushed down to the database as an offset query
+                prices = priceService.getPricesPage(page - 1, size);
+                hasMore = (long) (page - 1) * size + prices.size() < totalCount;
+            }
 
-            GetAllPricesResponse response = GetAllPricesResponse.newBuilder()
-                    .addAllPrices(grpcPrices)
-                    .setTotalCount(prices.size())
+            GetAllPricesResponse.Builder response = GetAllPricesResponse.newBuilder()
+                    .setTotalCount((int) totalCount)
                     .setPage(page)
-                    .setSize(size)
-                    .build();
+                    .setSize(size);
+            prices.forEach(price -> response.addPrices(convertToGrpcPrice(price)));
+            if (hasMore) {
+                response.setNextPageToken(encodePageToken(prices.get(prices.size() - 1).getInstrumentId()));
+            }
 
-            responseObserver.onNext(response);
+            responseObserver.onNext(response.build());
             responseObserver.onCompleted();
 
         } catch (Exception e) {
@@ -92,38 +171,259 @@ public class GrpcPriceServiceController extends PriceServiceGrpc.PriceServiceImp
         }
     }
 
+    /**
+     * Replaces the generated bindings of the streaming methods with ones that write pre-encoded messages,
+     * so every price change is serialized once however many streams it is sent to.
+     * The wire format is unchanged.
+     */
     @Override
-    public void streamPrices(StreamPricesRequest request, StreamObserver<PriceUpdate> responseObserver) {
+    public ServerServiceDefinition bindService() {
+        ServerServiceDefinition generated = super.bindService();
+        MethodDescriptor<StreamPricesRequest, EncodedPriceUpdate> streamPricesMethod = PriceServiceGrpc.getStreamPricesMethod()
+                .toBuilder(PriceServiceGrpc.getStreamPricesMethod().getRequestMarshaller(),
+                        new PreEncodedMarshaller<>(EncodedPriceUpdate::toByteArray, EncodedPriceUpdate::parse))
+                .build();
+        MethodDescriptor<SubscriptionCommand, EncodedSubscriptionUpdate> subscribeMethod = PriceServiceGrpc.getSubscribeMethod()
+                .toBuilder(PriceServiceGrpc.getSubscribeMethod().getRequestMarshaller(),
+                        new PreEncodedMarshaller<>(EncodedSubscriptionUpdate::toByteArray, EncodedSubscriptionUpdate::parse))
+                .build();
+        MethodDescriptor<StreamPricesRequest, EncodedPriceDelta> streamPriceDeltasMethod = PriceServiceGrpc.getStreamPriceDeltasMethod()
+                .toBuilder(PriceServiceGrpc.getStreamPriceDeltasMethod().getRequestMarshaller(),
+                        new PreEncodedMarshaller<>(EncodedPriceDelta::toByteArray, EncodedPriceDelta::parse))
+                .build();
+        Set<String> replaced = Set.of(streamPricesMethod.getFullMethodName(), subscribeMethod.getFullMethodName(),
+                streamPriceDeltasMethod.getFullMethodName());
+
+        ServiceDescriptor.Builder serviceDescriptor = ServiceDescriptor.newBuilder(PriceServiceGrpc.SERVICE_NAME)
+                .setSchemaDescriptor(generated.getServiceDescriptor().getSchemaDescriptor())
+                .addMethod(streamPricesMethod)
+                .addMethod(subscribeMethod)
+                .addMethod(streamPriceDeltasMethod);
+        List<ServerMethodDefinition<?, ?>> kept = generated.getMethods().stream()
+                .filter(method -> !replaced.contains(method.getMethodDescriptor().getFullMethodName()))
+                .toList();
+        kept.forEach(method -> serviceDescriptor.addMethod(method.getMethodDescriptor()));
+
+        ServerServiceDefinition.Builder definition = ServerServiceDefinition.builder(serviceDescriptor.build())
+                .addMethod(streamPricesMethod, ServerCalls.asyncServerStreamingCall(this::streamEncodedPrices))
+                .addMethod(subscribeMethod, ServerCalls.asyncBidiStreamingCall(this::subscribeEncoded))
+                .addMethod(streamPriceDeltasMethod, ServerCalls.asyncServerStreamingCall(this::streamEncodedPriceDeltas));
+        kept.forEach(definition::addMethod);
+        return definition.build();
+    }
+
+    /**
+     * {@code StreamPrices} handler, bound in {@link #bindService()}
+     */
+    void streamEncodedPrices(StreamPricesRequest request, StreamObserver<EncodedPriceUpdate> responseObserver) {
+        log.debug("gRPC streamPrices called for instruments: {}", request.getInstrumentIdsList());
+        stream(request, responseObserver, EncodedPriceUpdate::of);
+    }
+
+    /**
+     * {@code StreamPriceDeltas} handler, bound in {@link #bindService()}
+     */
+    void streamEncodedPriceDeltas(StreamPricesRequest request, StreamObserver<EncodedPriceDelta> responseObserver) {
+        log.debug("gRPC streamPriceDeltas called for instruments: {}", request.getInstrumentIdsList());
+        stream(request, responseObserver, new PriceDeltaStreamEncoder(priceDeltaTracker));
+    }
+
+    /**
+     * Sends the current prices of the requested instruments and, unless only a snapshot was requested,
+     * every change until the client cancels
+     */
+    private <T> void stream(StreamPricesRequest request, StreamObserver<T> responseObserver,
+                            Function<PriceEvent, T> encoder) {
+        Runnable unsubscribe = null;
         try {
-            log.debug("gRPC streamPrices called for instruments: {}", request.getInstrumentIdsList());
-
-            // For demonstration purposes, we'll send current prices and complete
-            // In a real implementation, this would maintain an active stream
-            for (String instrumentId : request.getInstrumentIdsList()) {
-                Optional<com.example.priceservice.domain.model.Price> priceOpt =
-                        priceService.getPrice(instrumentId);
-
-                if (priceOpt.isPresent()) {
-                    Price grpcPrice = convertToGrpcPrice(priceOpt.get());
-                    PriceUpdate update = PriceUpdate.newBuilder()
-                            .setPrice(grpcPrice)
-                            .setUpdateType(UpdateType.UPDATED)
-                            .build();
-
-                    responseObserver.onNext(update);
+            if (request.getSnapshotOnly()) {
+                for (String instrumentId : request.getInstrumentIdsList()) {
+                    priceService.getPrice(instrumentId)
+                            .ifPresent(price -> responseObserver.onNext(encoder.apply(PriceEvent.updated(price))));
                 }
+                responseObserver.onCompleted();
+                return;
             }
 
-            responseObserver.onCompleted();
+            // Hold back events and subscribe before reading the snapshot so that no change can fall in between
+            ServerCallStreamObserver<T> serverObserver = (ServerCallStreamObserver<T>) responseObserver;
+            List<String> instrumentIds = request.getInstrumentIdsList();
+            PriceStreamSubscriber<T> subscriber = new PriceStreamSubscriber<>(
+                    currentPeer(), serverObserver, encoder, priceStreamRegistry.conflatedCounter(),
+                    priceStreamRegistry.drainExecutor());
+            subscriber.setInstrumentCount(instrumentIds.size());
+            subscriber.beginSnapshot(instrumentIds);
+            Runnable hubUnsubscribe = priceUpdateHub.subscribe(instrumentIds, subscriber::onEvent);
+            priceStreamRegistry.register(subscriber);
+            unsubscribe = () -> {
+                hubUnsubscribe.run();
+                priceStreamRegistry.unregister(subscriber);
+            };
+            Runnable cancel = unsubscribe;
+            serverObserver.setOnCancelHandler(() -> {
+                log.debug("gRPC price stream cancelled for instruments: {}", instrumentIds);
+                subscriber.close();
+                cancel.run();
+            });
+
+            subscriber.completeSnapshot(instrumentIds, readSnapshot(instrumentIds));
 
         } catch (Exception e) {
             log.error("Error in streamPrices", e);
+            if (unsubscribe != null) {
+                unsubscribe.run();
+            }
             responseObserver.onError(Status.INTERNAL
                     .withDescription("Failed to stream prices: " + e.getMessage())
                     .asRuntimeException());
         }
     }
 
+    /**
+     * {@code Subscribe} handler, bound in {@link #bindService()}
+     */
+    StreamObserver<SubscriptionCommand> subscribeEncoded(StreamObserver<EncodedSubscriptionUpdate> responseObserver) {
+        log.debug("gRPC subscribe stream opened");
+        PriceSubscriptionSession session = new PriceSubscriptionSession(
+                (ServerCallStreamObserver<EncodedSubscriptionUpdate>) responseObserver, currentPeer(),
+                priceUpdateHub, priceStreamRegistry, this::readSnapshot);
+        session.start();
+        return session;
+    }
+
+    @Override
+    public StreamObserver<Price> publishPrices(StreamObserver<PublishPricesAck> responseObserver) {
+        log.debug("gRPC publishPrices stream opened");
+        return new PriceIngestionSession((ServerCallStreamObserver<PublishPricesAck>) responseObserver,
+                priceService::savePrices, publishBatchSize, publishMaxDelayMillis, publishFlushScheduler);
+    }
+
+    @Override
+    public void getOrderBook(GetOrderBookRequest request, StreamObserver<GetOrderBookResponse> responseObserver) {
+        try {
+            log.debug("gRPC getOrderBook called for instrument: {}, depth: {}", request.getInstrumentId(), request.getDepth());
+            if (request.getDepth() < 0) {
+                responseObserver.onError(Status.INVALID_ARGUMENT
+                        .withDescription("Depth must not be negative")
+                        .asRuntimeException());
+                return;
+            }
+
+            Optional<OrderBook> orderBook = priceService.getOrderBook(request.getInstrumentId(),
+                    toDepth(request.getDepth()), null, true);
+            if (orderBook.isPresent()) {
+                responseObserver.onNext(GetOrderBookResponse.newBuilder()
+                        .setOrderBook(OrderBookUpdates.toOrderBookUpdate(OrderBookEvent.snapshot(orderBook.get())))
+                        .build());
+                responseObserver.onCompleted();
+            } else {
+                responseObserver.onError(Status.NOT_FOUND
+                        .withDescription("Order book not found for instrument: " + request.getInstrumentId())
+                        .asRuntimeException());
+            }
+
+        } catch (Exception e) {
+            log.error("Error in getOrderBook for instrument: {}", request.getInstrumentId(), e);
+            responseObserver.onError(Status.INTERNAL
+                    .withDescription("Failed to retrieve order book: " + e.getMessage())
+                    .asRuntimeException());
+        }
+    }
+
+    @Override
+    public void streamOrderBook(StreamOrderBookRequest request, StreamObserver<OrderBookUpdate> responseObserver) {
+        log.debug("gRPC streamOrderBook called for instrument: {}, depth: {}", request.getInstrumentId(), request.getDepth());
+        if (request.getInstrumentId().isEmpty() || request.getDepth() < 0) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("Instrument ID is required and depth must not be negative")
+                    .asRuntimeException());
+            return;
+        }
+        Runnable unsubscribe = null;
+        try {
+            String instrumentId = request.getInstrumentId();
+            int depth = toDepth(request.getDepth());
+            ServerCallStreamObserver<OrderBookUpdate> serverObserver = (ServerCallStreamObserver<OrderBookUpdate>) responseObserver;
+            OrderBookStreamSubscriber subscriber = new OrderBookStreamSubscriber(serverObserver,
+                    () -> priceService.getOrderBook(instrumentId, depth, null, true));
+            unsubscribe = orderBookUpdateHub.subscribe(List.of(instrumentId), subscriber::onEvent);
+            Runnable cancel = unsubscribe;
+            serverObserver.setOnCancelHandler(() -> {
+                log.debug("gRPC order book stream cancelled for instrument: {}", instrumentId);
+                subscriber.close();
+                cancel.run();
+            });
+
+            subscriber.start();
+
+        } catch (Exception e) {
+            log.error("Error in streamOrderBook for instrument: {}", request.getInstrumentId(), e);
+            if (unsubscribe != null) {
+                unsubscribe.run();
+            }
+            responseObserver.onError(Status.INTERNAL
+                    .withDescription("Failed to stream order book: " + e.getMessage())
+                    .asRuntimeException());
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        priceDeltaTracker = new PriceDeltaTracker(deltaSnapshotInterval);
+        AtomicInteger flushThread = new AtomicInteger();
+        publishFlushScheduler = Executors.newScheduledThreadPool(publishFlushThreads, runnable -> {
+            Thread thread = new Thread(runnable, "price-publish-flush-" + flushThread.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        publishFlushScheduler.shutdownNow();
+    }
+
+    /**
+     * Reads the current prices of the instruments, skipping unknown ones
+     */
+    private List<com.example.priceservice.domain.model.Price> readSnapshot(Collection<String> instrumentIds) {
+        return instrumentIds.stream()
+                .map(priceService::getPrice)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    /**
+     * @return the requested depth, where 0 means all levels
+     */
+    private static int toDepth(int requestedDepth) {
+        return requestedDepth > 0 ? requestedDepth : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return remote address of the client of the current call
+     */
+    private static String currentPeer() {
+        SocketAddress remoteAddress = RemoteAddressServerInterceptor.REMOTE_ADDRESS.get();
+        return remoteAddress != null ? remoteAddress.toString() : "unknown";
+    }
+
+    /**
+     * Encodes the last instrument of a page as an opaque continuation token
+     */
+    private static String encodePageToken(String lastInstrumentId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastInstrumentId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a continuation token back into the last instrument of the previous page
+     *
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    private static String decodePageToken(String pageToken) {
+        return new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+    }
+
     /**
      * Converts domain Price model to gRPC Price message
      */
@@ -2,12 +2,15 @@ package com.example.priceservice.adapter.api;
 
 import com.example.priceservice.adapter.api.model.OrderBookDto;
 import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.service.OrderBookEngine;
 import com.example.priceservice.domain.service.PriceServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.math.BigDecimal;
+
 /**
  * REST controller for order book operations.
  * This adapter exposes the domain service as a REST API.
@@ -21,9 +24,17 @@ public class OrderBookController implements OrderBookApi {
     private final OrderBookMapper orderBookMapper;
 
     @Override
-    public ResponseEntity<OrderBookDto> getOrderBook(String instrumentId) {
-        log.info("REST request to get order book for instrument: {}", instrumentId);
-        return priceService.getOrderBook(instrumentId)
+    public ResponseEntity<OrderBookDto> getOrderBook(String instrumentId, Integer depth, BigDecimal bucket,
+                                                     Boolean aggregate) {
+        log.info("REST request to get order book for instrument: {}, depth: {}, bucket: {}, aggregate: {}",
+                instrumentId, depth, bucket, aggregate);
+        // A bucket finer than the stored precision would round to zero ticks
+        if ((depth != null && depth < 1)
+                || (bucket != null && (!OrderBookEngine.isSupported(bucket) || OrderBookEngine.toTicks(bucket) < 1))) {
+            return ResponseEntity.badRequest().build();
+        }
+        return priceService.getOrderBook(instrumentId, depth != null ? depth : Integer.MAX_VALUE, bucket,
+                        Boolean.TRUE.equals(aggregate))
                 .map(orderBookMapper::toDto)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
@@ -39,6 +50,10 @@ public class OrderBookController implements OrderBookApi {
         }
 
         OrderBook orderBook = orderBookMapper.toEntity(orderBookDto);
+        // Prices and volumes must fit into the fixed-point ticks of the order book engine
+        if (!OrderBookEngine.isSupported(orderBook)) {
+            return ResponseEntity.badRequest().build();
+        }
         OrderBook savedOrderBook = priceService.saveOrderBook(orderBook);
         return ResponseEntity.ok(orderBookMapper.toDto(savedOrderBook));
     }
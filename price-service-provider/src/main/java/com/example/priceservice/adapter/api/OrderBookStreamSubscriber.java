@@ -0,0 +1,95 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.adapter.proto.OrderBookUpdates;
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.OrderBookEvent;
+import com.example.priceservice.grpc.OrderBookUpdate;
+import io.grpc.stub.ServerCallStreamObserver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * One live gRPC order book stream of a single instrument.
+ * <p>
+ * Saved books only mark the stream as stale; the current view of the book is read when the transport is ready
+ * and sent as a diff against the last view sent, or as a snapshot for the first one. A slow client therefore
+ * receives fewer diffs that span several saved books instead of a growing queue, and views whose levels within
+ * the requested depth did not change are not sent at all. Draining resumes from the on-ready handler.
+ */
+@Slf4j
+class OrderBookStreamSubscriber {
+
+    private final ServerCallStreamObserver<OrderBookUpdate> observer;
+    private final Supplier<Optional<OrderBook>> view;
+
+    // guarded by this
+    private OrderBook lastSent;
+    private boolean stale;
+    private boolean closed;
+
+    /**
+     * @param view reads the current view of the book, limited to the requested depth
+     */
+    OrderBookStreamSubscriber(ServerCallStreamObserver<OrderBookUpdate> observer, Supplier<Optional<OrderBook>> view) {
+        this.observer = observer;
+        this.view = view;
+        observer.setOnReadyHandler(this::drain);
+    }
+
+    /**
+     * Sends the snapshot, or waits for the first saved book if there is none yet.
+     * Must be called after subscribing to the hub, so that no book saved in between is missed.
+     */
+    synchronized void start() {
+        stale = true;
+        drain();
+    }
+
+    /**
+     * Hub listener, called on the publishing thread
+     */
+    synchronized void onEvent(OrderBook book) {
+        if (!closed && (lastSent == null || book.getSequence() > lastSent.getSequence())) {
+            stale = true;
+            drain();
+        }
+    }
+
+    /**
+     * Stops delivery, e.g. when the client cancelled the call
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    private synchronized void drain() {
+        while (!closed && stale && observer.isReady()) {
+            stale = false;
+            Optional<OrderBook> current = view.get();
+            if (current.isEmpty() || lastSent != null && current.get().getSequence() <= lastSent.getSequence()) {
+                continue;
+            }
+            OrderBook book = current.get();
+            OrderBookEvent event = lastSent == null ? OrderBookEvent.snapshot(book) : OrderBookEvent.diff(lastSent, book);
+            lastSent = book;
+            if (event.isSnapshot() || !event.getChanges().isEmpty()) {
+                write(OrderBookUpdates.toOrderBookUpdate(event));
+            }
+        }
+    }
+
+    private void write(OrderBookUpdate update) {
+        if (observer.isCancelled()) {
+            close();
+            return;
+        }
+        try {
+            observer.onNext(update);
+        } catch (RuntimeException e) {
+            log.debug("Failed to send to order book stream of {}, closing it", update.getInstrumentId(), e);
+            close();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.priceservice.adapter.api;
+
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * gRPC marshaller for messages that already hold their serialized form.
+ * <p>
+ * The bytes are handed to the transport as they are: the returned stream reports its length and drains
+ * straight into the transport buffer, so writing a message to a stream is a copy and not an encode.
+ *
+ * @param <T> type of the pre-encoded message
+ */
+class PreEncodedMarshaller<T> implements MethodDescriptor.Marshaller<T> {
+
+    private final Function<T, byte[]> encoder;
+    private final Function<byte[], T> decoder;
+
+    PreEncodedMarshaller(Function<T, byte[]> encoder, Function<byte[], T> decoder) {
+        this.encoder = encoder;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public InputStream stream(T value) {
+        return new BytesStream(encoder.apply(value));
+    }
+
+    @Override
+    public T parse(InputStream stream) {
+        try {
+            return decoder.apply(stream.readAllBytes());
+        } catch (IOException | IllegalArgumentException e) {
+            throw Status.INTERNAL.withDescription("Invalid protobuf message").withCause(e).asRuntimeException();
+        }
+    }
+
+    private static final class BytesStream extends ByteArrayInputStream implements KnownLength, Drainable {
+
+        BytesStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            int length = count - pos;
+            target.write(buf, pos, length);
+            pos = count;
+            return length;
+        }
+    }
+}
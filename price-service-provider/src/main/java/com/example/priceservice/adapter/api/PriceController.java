@@ -5,6 +5,7 @@ import com.example.priceservice.domain.model.Price;
 import com.example.priceservice.domain.service.PriceServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -23,6 +24,9 @@ public class PriceController implements PricesApi {
     private final PriceServiceImpl priceService;
     private final PriceMapper priceMapper;
 
+    @Value("${price.batch.max-size:10000}")
+    private int maxBatchSize;
+
     @Override
     public ResponseEntity<List<PriceDto>> getAllPrices() {
         log.info("REST request to get all prices");
@@ -56,6 +60,21 @@ public class PriceController implements PricesApi {
         return ResponseEntity.ok(priceMapper.toDto(savedPrice));
     }
 
+    @Override
+    public ResponseEntity<List<PriceDto>> savePrices(List<PriceDto> priceDtos) {
+        log.info("REST request to save {} prices", priceDtos.size());
+        if (priceDtos.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Price> prices = priceDtos.stream()
+                .map(priceMapper::toEntity)
+                .collect(Collectors.toList());
+        List<PriceDto> saved = priceService.savePrices(prices).stream()
+                .map(priceMapper::toDto)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(saved);
+    }
+
     @Override
     public ResponseEntity<Void> deletePrice(String instrumentId) {
         log.info("REST request to delete price for instrument: {}", instrumentId);
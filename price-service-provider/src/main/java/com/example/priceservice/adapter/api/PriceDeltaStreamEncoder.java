@@ -0,0 +1,41 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.adapter.proto.EncodedPriceDelta;
+import com.example.priceservice.adapter.proto.PriceDeltaTracker;
+import com.example.priceservice.domain.model.PriceEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Encoder of one {@code StreamPriceDeltas} stream.
+ * <p>
+ * The shared delta of an event is only sent when the stream sent the previous sequence of the instrument;
+ * after a conflated or skipped update, and for the first update of an instrument, the event is sent as a snapshot.
+ * Not thread safe, called by the stream subscriber under its lock.
+ */
+class PriceDeltaStreamEncoder implements Function<PriceEvent, EncodedPriceDelta> {
+
+    private final PriceDeltaTracker tracker;
+    private final Map<String, Long> lastSent = new HashMap<>();
+
+    PriceDeltaStreamEncoder(PriceDeltaTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public EncodedPriceDelta apply(PriceEvent event) {
+        EncodedPriceDelta shared = tracker.delta(event);
+        Long previous = lastSent.get(event.getInstrumentId());
+        boolean applicable = shared.isSnapshot() || shared.isDeletion()
+                || previous != null && previous == shared.getSequence() - 1;
+        EncodedPriceDelta delta = applicable ? shared : tracker.snapshot(event);
+        if (delta.isDeletion()) {
+            lastSent.remove(event.getInstrumentId());
+        } else {
+            lastSent.put(event.getInstrumentId(), delta.getSequence());
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.grpc.PublishPricesAck;
+import com.google.protobuf.Timestamp;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Server side of one {@code PublishPrices} call.
+ * <p>
+ * Incoming prices are buffered and saved as one batch once {@code batchSize} prices are buffered or
+ * {@code maxDelayMillis} has passed, whichever comes first. Saving a full batch happens on the calling gRPC thread,
+ * so a client that publishes faster than the database accepts is slowed down by inbound flow control.
+ * Each saved batch is acknowledged with the stream sequence it covers.
+ */
+@Slf4j
+class PriceIngestionSession implements StreamObserver<com.example.priceservice.grpc.Price> {
+
+    private final ServerCallStreamObserver<PublishPricesAck> responseObserver;
+    private final Consumer<List<Price>> batchSaver;
+    private final int batchSize;
+    private final ScheduledFuture<?> flushTask;
+
+    // guarded by this
+    private List<Price> buffer = new ArrayList<>();
+    private int rejected;
+    private long sequence;
+    private long totalAccepted;
+    private boolean finished;
+
+    PriceIngestionSession(ServerCallStreamObserver<PublishPricesAck> responseObserver,
+                          Consumer<List<Price>> batchSaver,
+                          int batchSize,
+                          long maxDelayMillis,
+                          ScheduledExecutorService scheduler) {
+        this.responseObserver = responseObserver;
+        this.batchSaver = batchSaver;
+        this.batchSize = batchSize;
+        this.flushTask = scheduler.scheduleWithFixedDelay(this::flush, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+        responseObserver.setOnCancelHandler(() -> {
+            log.debug("gRPC publishPrices stream cancelled");
+            finish();
+        });
+    }
+
+    @Override
+    public synchronized void onNext(com.example.priceservice.grpc.Price message) {
+        if (finished) {
+            return;
+        }
+        sequence++;
+        if (isValid(message)) {
+            buffer.add(Price.builder()
+                    .instrumentId(message.getInstrumentId())
+                    .bidPrice(BigDecimal.valueOf(message.getBidPrice()))
+                    .askPrice(BigDecimal.valueOf(message.getAskPrice()))
+                    .build());
+        } else {
+            rejected++;
+        }
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.debug("gRPC publishPrices stream failed on the client side, dropping unacknowledged prices", t);
+        finish();
+    }
+
+    @Override
+    public synchronized void onCompleted() {
+        flush();
+        if (!finished) {
+            finish();
+            responseObserver.onCompleted();
+        }
+    }
+
+    /**
+     * Saves and acknowledges the buffered prices, if any.
+     * Called when the buffer is full, by the periodic flush task and when the client completes.
+     */
+    private synchronized void flush() {
+        if (finished || (buffer.isEmpty() && rejected == 0)) {
+            return;
+        }
+        List<Price> batch = buffer;
+        buffer = new ArrayList<>(batchSize);
+        try {
+            if (!batch.isEmpty()) {
+                batchSaver.accept(batch);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to save batch of {} published prices", batch.size(), e);
+            finish();
+            responseObserver.onError(Status.UNAVAILABLE
+                    .withDescription("Failed to save prices after sequence " + (sequence - batch.size() - rejected))
+                    .asRuntimeException());
+            return;
+        }
+        totalAccepted += batch.size();
+        Instant now = Instant.now();
+        responseObserver.onNext(PublishPricesAck.newBuilder()
+                .setSequence(sequence)
+                .setAccepted(batch.size())
+                .setRejected(rejected)
+                .setTotalAccepted(totalAccepted)
+                .setSavedAt(Timestamp.newBuilder().setSeconds(now.getEpochSecond()).setNanos(now.getNano()))
+                .build());
+        rejected = 0;
+    }
+
+    private synchronized void finish() {
+        finished = true;
+        buffer.clear();
+        flushTask.cancel(false);
+    }
+
+    private static boolean isValid(com.example.priceservice.grpc.Price message) {
+        return !message.getInstrumentId().isEmpty()
+                && message.getBidPrice() >= 0 && Double.isFinite(message.getBidPrice())
+                && message.getAskPrice() >= 0 && Double.isFinite(message.getAskPrice());
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.priceservice.adapter.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the live gRPC price stream subscribers so that their lag can be inspected.
+ * <p>
+ * Also owns the threads that write the queued updates of all subscribers, so that publishing an update only
+ * enqueues it. A subscriber has at most one drain task queued at a time.
+ */
+@Component
+public class PriceStreamRegistry {
+
+    private final ConcurrentHashMap<Long, PriceStreamSubscriber<?>> subscribers = new ConcurrentHashMap<>();
+    private final Counter conflatedTotal;
+    private final ExecutorService drainExecutor;
+
+    public PriceStreamRegistry(MeterRegistry meterRegistry,
+                               @Value("${grpc.prices.stream.drain-threads:4}") int drainThreads) {
+        AtomicInteger drainThread = new AtomicInteger();
+        this.drainExecutor = Executors.newFixedThreadPool(drainThreads, runnable -> {
+            Thread thread = new Thread(runnable, "price-stream-drain-" + drainThread.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.conflatedTotal = Counter.builder("price.stream.conflated")
+                .description("Price updates replaced by a newer one before they were sent to a stream subscriber")
+                .register(meterRegistry);
+        Gauge.builder("price.stream.subscribers", subscribers, ConcurrentHashMap::size)
+                .description("Number of live gRPC price stream subscribers")
+                .register(meterRegistry);
+    }
+
+    Counter conflatedCounter() {
+        return conflatedTotal;
+    }
+
+    Executor drainExecutor() {
+        return drainExecutor;
+    }
+
+    void register(PriceStreamSubscriber<?> subscriber) {
+        subscribers.put(subscriber.getId(), subscriber);
+    }
+
+    void unregister(PriceStreamSubscriber<?> subscriber) {
+        subscribers.remove(subscriber.getId());
+    }
+
+    /**
+     * @return statistics of every live subscriber, most conflated first
+     */
+    public List<PriceStreamStats> stats() {
+        return subscribers.values().stream()
+                .map(PriceStreamSubscriber::stats)
+                .sorted(Comparator.comparingLong(PriceStreamStats::getConflated).reversed())
+                .toList();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        drainExecutor.shutdownNow();
+    }
+}
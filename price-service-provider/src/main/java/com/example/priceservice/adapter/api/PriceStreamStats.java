@@ -0,0 +1,21 @@
+package com.example.priceservice.adapter.api;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Point-in-time statistics of one gRPC price stream subscriber.
+ * A growing {@code conflated} count means the client reads slower than prices change.
+ */
+@Value
+public class PriceStreamStats {
+    long id;
+    String peer;
+    Instant subscribedAt;
+    int instruments;
+    long sent;
+    long conflated;
+    int pending;
+    boolean ready;
+}
@@ -0,0 +1,230 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * One live gRPC price stream with a conflating outbound queue.
+ * <p>
+ * Pending updates are kept per instrument, so a newer update replaces an unsent older one instead of queueing
+ * behind it: a slow client receives fewer but current updates, and the queue never holds more than one entry per
+ * subscribed instrument. Updates are written only while the transport reports {@link ServerCallStreamObserver#isReady()}
+ * and draining resumes from the on-ready handler.
+ * <p>
+ * Events only enqueue on the publishing thread; the writes happen in a drain task on the {@code drainExecutor},
+ * of which at most one is queued per subscriber, so a slow subscriber never delays the publisher or other subscribers.
+ * <p>
+ * Instruments are added between {@link #beginSnapshot(Collection)} and {@link #completeSnapshot(Collection, List)}.
+ * Events for them that arrive while the snapshot is being read are held back and win over the snapshot value,
+ * so a subscriber never sees a snapshot value that is older than an update it already received.
+ *
+ * @param <T> type of the messages written to the stream
+ */
+@Slf4j
+class PriceStreamSubscriber<T> {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final long id = IDS.incrementAndGet();
+    private final Instant subscribedAt = Instant.now();
+    private final String peer;
+    private final ServerCallStreamObserver<T> observer;
+    private final Function<PriceEvent, T> encoder;
+    private final Counter conflatedTotal;
+    private final Executor drainExecutor;
+
+    // guarded by this
+    private final LinkedHashMap<String, PriceEvent> pending = new LinkedHashMap<>();
+    private final Set<String> awaitingSnapshot = new HashSet<>();
+    private final Map<String, PriceEvent> heldBack = new HashMap<>();
+    private boolean closed;
+    private boolean terminated;
+    private boolean drainScheduled;
+    private int instrumentCount;
+    private long sent;
+    private long conflated;
+
+    PriceStreamSubscriber(String peer,
+                          ServerCallStreamObserver<T> observer,
+                          Function<PriceEvent, T> encoder,
+                          Counter conflatedTotal,
+                          Executor drainExecutor) {
+        this.peer = peer;
+        this.observer = observer;
+        this.encoder = encoder;
+        this.conflatedTotal = conflatedTotal;
+        this.drainExecutor = drainExecutor;
+        observer.setOnReadyHandler(this::drain);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Hub listener, called on the publishing thread
+     */
+    synchronized void onEvent(PriceEvent event) {
+        if (closed) {
+            return;
+        }
+        Map<String, PriceEvent> queue = awaitingSnapshot.contains(event.getInstrumentId()) ? heldBack : pending;
+        if (queue.put(event.getInstrumentId(), event) != null) {
+            conflated++;
+            conflatedTotal.increment();
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Starts holding back events of the instruments until their snapshot is queued.
+     * Must be called before subscribing to the instruments.
+     */
+    synchronized void beginSnapshot(Collection<String> instrumentIds) {
+        awaitingSnapshot.addAll(instrumentIds);
+    }
+
+    /**
+     * Queues the current prices of the instruments, or the update held back for an instrument if one arrived
+     * after {@link #beginSnapshot(Collection)} since it is at least as recent as the snapshot
+     */
+    synchronized void completeSnapshot(Collection<String> instrumentIds, List<Price> snapshot) {
+        Map<String, Price> snapshotById = new HashMap<>();
+        snapshot.forEach(price -> snapshotById.put(price.getInstrumentId(), price));
+        for (String instrumentId : instrumentIds) {
+            if (!awaitingSnapshot.remove(instrumentId)) {
+                continue;
+            }
+            PriceEvent event = heldBack.remove(instrumentId);
+            if (event == null) {
+                Price price = snapshotById.get(instrumentId);
+                event = price != null ? PriceEvent.updated(price) : null;
+            }
+            if (event != null && !closed) {
+                pending.put(instrumentId, event);
+            }
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * Drops queued updates of instruments the client is no longer subscribed to
+     */
+    synchronized void discard(Collection<String> instrumentIds) {
+        for (String instrumentId : instrumentIds) {
+            pending.remove(instrumentId);
+            heldBack.remove(instrumentId);
+            awaitingSnapshot.remove(instrumentId);
+        }
+    }
+
+    /**
+     * Writes a control message immediately, ahead of queued updates.
+     * Control messages are rare and small, so they are not subject to flow control.
+     */
+    synchronized void sendNow(T message) {
+        if (!closed) {
+            write(message);
+        }
+    }
+
+    synchronized void setInstrumentCount(int instrumentCount) {
+        this.instrumentCount = instrumentCount;
+    }
+
+    /**
+     * Stops delivery, e.g. when the client cancelled the call
+     */
+    synchronized void close() {
+        closed = true;
+        pending.clear();
+        heldBack.clear();
+        awaitingSnapshot.clear();
+    }
+
+    /**
+     * Stops delivery and completes the call
+     */
+    synchronized void complete() {
+        close();
+        if (!terminated && !observer.isCancelled()) {
+            terminated = true;
+            observer.onCompleted();
+        }
+    }
+
+    /**
+     * Stops delivery and fails the call
+     */
+    synchronized void fail(Throwable error) {
+        close();
+        if (!terminated && !observer.isCancelled()) {
+            terminated = true;
+            observer.onError(error);
+        }
+    }
+
+    synchronized PriceStreamStats stats() {
+        return new PriceStreamStats(id, peer, subscribedAt, instrumentCount, sent, conflated, pending.size(),
+                !closed && observer.isReady());
+    }
+
+    /**
+     * Queues a drain task unless one is queued already or there is nothing to write
+     */
+    private synchronized void scheduleDrain() {
+        if (drainScheduled || closed || pending.isEmpty()) {
+            return;
+        }
+        drainScheduled = true;
+        try {
+            drainExecutor.execute(this::runScheduledDrain);
+        } catch (RejectedExecutionException e) {
+            log.debug("Drain of price stream subscriber {} rejected, closing it", id, e);
+            drainScheduled = false;
+            close();
+        }
+    }
+
+    private synchronized void runScheduledDrain() {
+        drainScheduled = false;
+        drain();
+    }
+
+    /**
+     * Writes queued updates while the transport can take them.
+     * Called by the drain task and by gRPC whenever the stream becomes writable again.
+     */
+    private synchronized void drain() {
+        Iterator<Map.Entry<String, PriceEvent>> iterator = pending.entrySet().iterator();
+        while (!closed && iterator.hasNext() && observer.isReady()) {
+            PriceEvent event = iterator.next().getValue();
+            iterator.remove();
+            write(encoder.apply(event));
+        }
+    }
+
+    private void write(T message) {
+        if (observer.isCancelled()) {
+            close();
+            return;
+        }
+        try {
+            observer.onNext(message);
+            sent++;
+        } catch (RuntimeException e) {
+            log.debug("Failed to send to price stream subscriber {}, closing it", id, e);
+            close();
+        }
+    }
+}
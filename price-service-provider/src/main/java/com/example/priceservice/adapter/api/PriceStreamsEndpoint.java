@@ -0,0 +1,25 @@
+package com.example.priceservice.adapter.api;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint listing live gRPC price stream subscribers with their conflation counts,
+ * available at {@code /actuator/pricestreams}.
+ */
+@Component
+@Endpoint(id = "pricestreams")
+@RequiredArgsConstructor
+public class PriceStreamsEndpoint {
+
+    private final PriceStreamRegistry priceStreamRegistry;
+
+    @ReadOperation
+    public List<PriceStreamStats> subscribers() {
+        return priceStreamRegistry.stats();
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.domain.service.PriceUpdateHub;
+import com.example.priceservice.grpc.SubscriptionAck;
+import com.example.priceservice.grpc.SubscriptionAction;
+import com.example.priceservice.grpc.SubscriptionCommand;
+import com.example.priceservice.grpc.SubscriptionUpdate;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Server side of one {@code Subscribe} call.
+ * <p>
+ * Several client subscriptions share the call: every instrument is subscribed to the {@link PriceUpdateHub}
+ * once per call however many subscriptions include it, and each update is tagged with the subscriptions
+ * it belongs to. Updates go through a conflating {@link PriceStreamSubscriber}, so the call holds at most
+ * one pending update per instrument. The price part of an update is the event's shared encoding, only the
+ * subscription IDs are encoded per call. Commands are delivered by gRPC one at a time; they and the release of
+ * the call, which may run on the cancellation thread, hold the session lock, so a cancelled call never keeps
+ * a hub subscription made by a command running at the same time.
+ */
+@Slf4j
+class PriceSubscriptionSession implements StreamObserver<SubscriptionCommand> {
+
+    private final PriceUpdateHub priceUpdateHub;
+    private final PriceStreamRegistry priceStreamRegistry;
+    private final Function<Collection<String>, List<Price>> snapshotReader;
+    private final PriceStreamSubscriber<EncodedSubscriptionUpdate> subscriber;
+    private final Consumer<PriceEvent> listener;
+
+    // instrument -> subscriptions that include it, read by the encoder on publishing threads
+    private final ConcurrentHashMap<String, Set<String>> subscriptionsByInstrument = new ConcurrentHashMap<>();
+    // guarded by lock
+    private final Map<String, Set<String>> instrumentsBySubscription = new HashMap<>();
+    private final Object lock = new Object();
+    private volatile boolean finished;
+
+    PriceSubscriptionSession(ServerCallStreamObserver<EncodedSubscriptionUpdate> responseObserver,
+                             String peer,
+                             PriceUpdateHub priceUpdateHub,
+                             PriceStreamRegistry priceStreamRegistry,
+                             Function<Collection<String>, List<Price>> snapshotReader) {
+        this.priceUpdateHub = priceUpdateHub;
+        this.priceStreamRegistry = priceStreamRegistry;
+        this.snapshotReader = snapshotReader;
+        this.subscriber = new PriceStreamSubscriber<>(peer, responseObserver, this::encode,
+                priceStreamRegistry.conflatedCounter(), priceStreamRegistry.drainExecutor());
+        this.listener = subscriber::onEvent;
+        responseObserver.setOnCancelHandler(() -> {
+            log.debug("gRPC subscribe stream cancelled");
+            finish();
+        });
+    }
+
+    void start() {
+        priceStreamRegistry.register(subscriber);
+    }
+
+    @Override
+    public void onNext(SubscriptionCommand command) {
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+            if (command.getSubscriptionId().isEmpty()) {
+                fail(Status.INVALID_ARGUMENT.withDescription("subscription_id is required"));
+                return;
+            }
+            switch (command.getAction()) {
+                case SUBSCRIBE -> subscribe(command.getSubscriptionId(), command.getInstrumentIdsList());
+                case UNSUBSCRIBE -> unsubscribe(command.getSubscriptionId(), command.getInstrumentIdsList());
+                default -> fail(Status.INVALID_ARGUMENT.withDescription("Unsupported action: " + command.getAction()));
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.debug("gRPC subscribe stream failed on the client side", t);
+        finish();
+    }
+
+    @Override
+    public void onCompleted() {
+        log.debug("gRPC subscribe stream completed by the client");
+        finish();
+        subscriber.complete();
+    }
+
+    private void subscribe(String subscriptionId, List<String> requested) {
+        Set<String> instrumentIds = new LinkedHashSet<>(requested);
+        Set<String> owned = instrumentsBySubscription.computeIfAbsent(subscriptionId, id -> new HashSet<>());
+        List<String> newInstruments = new ArrayList<>();
+        for (String instrumentId : instrumentIds) {
+            owned.add(instrumentId);
+            Set<String> subscriptions = subscriptionsByInstrument.computeIfAbsent(instrumentId, id -> {
+                newInstruments.add(id);
+                return ConcurrentHashMap.newKeySet();
+            });
+            subscriptions.add(subscriptionId);
+        }
+
+        // Hold back events and subscribe before reading the snapshot so that no change can fall in between
+        subscriber.beginSnapshot(instrumentIds);
+        newInstruments.forEach(instrumentId -> priceUpdateHub.subscribe(instrumentId, listener));
+        subscriber.setInstrumentCount(subscriptionsByInstrument.size());
+        acknowledge(subscriptionId, SubscriptionAction.SUBSCRIBE, owned.size());
+        subscriber.completeSnapshot(instrumentIds, snapshotReader.apply(instrumentIds));
+    }
+
+    private void unsubscribe(String subscriptionId, List<String> requested) {
+        Set<String> owned = instrumentsBySubscription.getOrDefault(subscriptionId, Set.of());
+        Collection<String> instrumentIds = requested.isEmpty() ? List.copyOf(owned) : requested;
+        List<String> released = new ArrayList<>();
+        for (String instrumentId : instrumentIds) {
+            if (!owned.remove(instrumentId)) {
+                continue;
+            }
+            Set<String> remaining = subscriptionsByInstrument.computeIfPresent(instrumentId, (id, subscriptions) -> {
+                subscriptions.remove(subscriptionId);
+                return subscriptions.isEmpty() ? null : subscriptions;
+            });
+            if (remaining == null) {
+                priceUpdateHub.unsubscribe(instrumentId, listener);
+                released.add(instrumentId);
+            }
+        }
+        if (owned.isEmpty()) {
+            instrumentsBySubscription.remove(subscriptionId);
+        }
+        subscriber.discard(released);
+        subscriber.setInstrumentCount(subscriptionsByInstrument.size());
+        acknowledge(subscriptionId, SubscriptionAction.UNSUBSCRIBE, owned.size());
+    }
+
+    private void acknowledge(String subscriptionId, SubscriptionAction action, int instrumentCount) {
+        subscriber.sendNow(EncodedSubscriptionUpdate.of(SubscriptionUpdate.newBuilder()
+                .setAck(SubscriptionAck.newBuilder()
+                        .setSubscriptionId(subscriptionId)
+                        .setAction(action)
+                        .setInstrumentCount(instrumentCount))
+                .build()));
+    }
+
+    private EncodedSubscriptionUpdate encode(PriceEvent event) {
+        Set<String> subscriptions = subscriptionsByInstrument.getOrDefault(event.getInstrumentId(), Set.of());
+        return EncodedSubscriptionUpdate.of(EncodedPriceUpdate.of(event), List.copyOf(subscriptions));
+    }
+
+    private void fail(Status status) {
+        finish();
+        subscriber.fail(status.asRuntimeException());
+    }
+
+    /**
+     * Releases every hub subscription of the call. Safe to call more than once.
+     */
+    private void finish() {
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            subscriptionsByInstrument.keySet().forEach(instrumentId -> priceUpdateHub.unsubscribe(instrumentId, listener));
+            subscriptionsByInstrument.clear();
+            instrumentsBySubscription.clear();
+        }
+        priceStreamRegistry.unregister(subscriber);
+        subscriber.close();
+    }
+}
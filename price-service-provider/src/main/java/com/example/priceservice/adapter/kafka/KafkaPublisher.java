@@ -0,0 +1,107 @@
+package com.example.priceservice.adapter.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous Kafka publishing with per-topic in-flight limits and metrics.
+ * <p>
+ * {@link #send} never blocks: it fails immediately with {@link PublishRejectedException} when the topic already
+ * has {@code max-in-flight} unacknowledged records. A record holds its in-flight slot until it is acknowledged or
+ * finally failed.
+ * <p>
+ * Failed records are never resent here: a resend would go out after later records with the same key and break
+ * their order. Retries are left to the idempotent producer configured in {@code KafkaProducerConfig}, which keeps
+ * the order per partition until {@code delivery.timeout.ms} expires; after that the returned future fails.
+ * <p>
+ * Per topic the following meters are recorded: {@code price.kafka.send} (timer, tagged with the outcome),
+ * {@code price.kafka.send.rejected} and the {@code price.kafka.send.in-flight} gauge.
+ */
+@Component
+@Slf4j
+public class KafkaPublisher {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxInFlight;
+    private final ConcurrentHashMap<String, TopicMeters> topics = new ConcurrentHashMap<>();
+
+    public KafkaPublisher(MeterRegistry meterRegistry,
+                          @Value("${price.kafka.publisher.max-in-flight:10000}") int maxInFlight) {
+        this.meterRegistry = meterRegistry;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sends a record without blocking the caller
+     *
+     * @return future completed with the broker acknowledgement, or exceptionally once the producer gave up
+     * or with {@link PublishRejectedException} if too many records of the topic are in flight
+     */
+    public <V> CompletableFuture<SendResult<String, V>> send(KafkaTemplate<String, V> template, String topic, String key, V value) {
+        TopicMeters meters = topics.computeIfAbsent(topic, this::registerTopic);
+        if (!meters.inFlight.tryAcquire()) {
+            meters.rejected.increment();
+            return CompletableFuture.failedFuture(new PublishRejectedException(topic, maxInFlight));
+        }
+        long startNanos = System.nanoTime();
+        CompletableFuture<SendResult<String, V>> send;
+        try {
+            send = template.send(topic, key, value);
+        } catch (RuntimeException e) {
+            send = CompletableFuture.failedFuture(e);
+        }
+        return send.whenComplete((sendResult, error) -> {
+            meters.inFlight.release();
+            if (error == null) {
+                meters.success.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                log.debug("Sent record with key {} to {}", key, topic);
+            } else {
+                meters.failure.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                log.warn("Failed to send record with key {} to {}", key, topic, error);
+            }
+        });
+    }
+
+    private TopicMeters registerTopic(String topic) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        Gauge.builder("price.kafka.send.in-flight", inFlight, semaphore -> maxInFlight - semaphore.availablePermits())
+                .tag("topic", topic)
+                .description("Records sent to Kafka and not yet acknowledged")
+                .register(meterRegistry);
+        return new TopicMeters(
+                inFlight,
+                Timer.builder("price.kafka.send").tag("topic", topic).tag("outcome", "success")
+                        .description("Time from send to broker acknowledgement, including producer retries")
+                        .register(meterRegistry),
+                Timer.builder("price.kafka.send").tag("topic", topic).tag("outcome", "failure")
+                        .description("Time from send to final failure, including producer retries")
+                        .register(meterRegistry),
+                Counter.builder("price.kafka.send.rejected").tag("topic", topic)
+                        .description("Sends rejected because too many records were in flight")
+                        .register(meterRegistry));
+    }
+
+    private record TopicMeters(Semaphore inFlight, Timer success, Timer failure, Counter rejected) {
+    }
+
+    /**
+     * Thrown when a record is not sent because its topic reached the in-flight limit
+     */
+    public static class PublishRejectedException extends RuntimeException {
+        public PublishRejectedException(String topic, int maxInFlight) {
+            super("More than " + maxInFlight + " records in flight to " + topic);
+        }
+    }
+}
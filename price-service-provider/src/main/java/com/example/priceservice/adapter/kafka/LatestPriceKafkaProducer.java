@@ -0,0 +1,44 @@
+package com.example.priceservice.adapter.kafka;
+
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Kafka producer for the compacted latest price topic.
+ * Records are keyed by instrument ID and hold the protobuf {@code PriceUpdate}; a deleted instrument is
+ * published as a tombstone so that compaction eventually removes it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LatestPriceKafkaProducer {
+
+    private final KafkaTemplate<String, byte[]> protoKafkaTemplate;
+    private final KafkaPublisher kafkaPublisher;
+
+    @Value("${price.kafka.latest.topic:price-latest}")
+    private String topic;
+
+    /**
+     * Sends the updates without waiting for them, so the producer can batch them
+     *
+     * @return future completed once every update is acknowledged by the broker
+     */
+    public CompletableFuture<Void> sendLatest(List<EncodedPriceUpdate> updates) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[updates.size()];
+        for (int i = 0; i < updates.size(); i++) {
+            EncodedPriceUpdate update = updates.get(i);
+            byte[] value = update.isDeletion() ? null : update.toByteArray();
+            sends[i] = kafkaPublisher.send(protoKafkaTemplate, topic, update.getInstrumentId(), value);
+        }
+        log.debug("Sending {} latest prices to Kafka", updates.size());
+        return CompletableFuture.allOf(sends);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.priceservice.adapter.kafka;
+
+import com.example.priceservice.adapter.proto.OrderBookUpdates;
+import com.example.priceservice.domain.model.OrderBookEvent;
+import com.example.priceservice.domain.port.OrderBookEventPublisher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Kafka producer publishing order book changes as protobuf {@code OrderBookUpdate} messages keyed by instrument ID.
+ * A failed send is logged and reported through the returned future: consumers notice the sequence gap and wait for
+ * the next snapshot, which the diff tracker publishes right after the failure.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBookKafkaProducer implements OrderBookEventPublisher {
+
+    private final KafkaTemplate<String, byte[]> protoKafkaTemplate;
+    private final KafkaPublisher kafkaPublisher;
+
+    @Value("${price.kafka.orderbook.topic:order-book-updates.proto}")
+    private String topic;
+
+    @Override
+    public CompletableFuture<?> publish(OrderBookEvent event) {
+        return kafkaPublisher.send(protoKafkaTemplate, topic, event.getInstrumentId(), OrderBookUpdates.toOrderBookUpdate(event).toByteArray())
+                .whenComplete((result, exception) -> {
+                    if (exception != null) {
+                        log.warn("Failed to publish order book {} sequence {}", event.getInstrumentId(),
+                                event.getSequence(), exception);
+                    }
+                });
+    }
+}
@@ -8,6 +8,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Kafka producer for publishing price update events.
  */
@@ -17,13 +20,23 @@ import org.springframework.stereotype.Component;
 public class PriceKafkaProducer {
 
     private final KafkaTemplate<String, PriceUpdateMessage> kafkaTemplate;
+    private final KafkaPublisher kafkaPublisher;
 
     @Value("${price.kafka.topic:price-updates}")
     private String topic;
 
-    public void sendPriceUpdate(Price price) {
-        PriceUpdateMessage message = PriceUpdateMessage.fromDomain(price);
-        kafkaTemplate.send(topic, message.getInstrumentId(), message);
-        log.info("Sent price update to Kafka: {}", message);
+    /**
+     * Sends the updates without waiting for them, so the producer can batch them
+     *
+     * @return future completed once every update is acknowledged by the broker
+     */
+    public CompletableFuture<Void> sendPriceUpdates(List<Price> prices) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[prices.size()];
+        for (int i = 0; i < prices.size(); i++) {
+            PriceUpdateMessage message = PriceUpdateMessage.fromDomain(prices.get(i));
+            sends[i] = kafkaPublisher.send(kafkaTemplate, topic, message.getInstrumentId(), message);
+        }
+        log.debug("Sending {} price updates to Kafka", prices.size());
+        return CompletableFuture.allOf(sends);
     }
 }
@@ -0,0 +1,131 @@
+package com.example.priceservice.adapter.kafka;
+
+import com.example.priceservice.adapter.persistence.entity.PriceOutboxEntity;
+import com.example.priceservice.adapter.persistence.repository.PriceOutboxJpaRepository;
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Background relay publishing the price outbox to the JSON, protobuf and price delta Kafka topics
+ * and to the compacted latest price topic.
+ * <p>
+ * Every round locks a batch of the oldest outbox entries, sends all of them to every topic, waits for the
+ * broker acknowledgements and deletes the entries in the same transaction. A failed send rolls the
+ * transaction back, so the entries are retried on the next round and delivery is at-least-once.
+ * The protobuf update and latest price topics receive the payload stored with the entry, which was encoded once when
+ * the price changed, and the delta topic receives every event encoded against the previous event of its instrument.
+ * Deletions go to every protobuf topic, as {@code DELETED} updates and deltas and as tombstones on the latest price
+ * topic, so live consumers see them too; the JSON topic only carries updates.
+ * <p>
+ * Consumers rely on the events of an instrument arriving in outbox order, so only one relay publishes at a time:
+ * every round first takes a transaction-scoped Postgres advisory lock, and an instance that does not get it skips
+ * the round. Several provider instances can run the relay, one of them publishes while the others stand by and
+ * take over as soon as it stops.
+ */
+@Component
+@ConditionalOnProperty(value = "price.outbox.relay.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class PriceOutboxRelay {
+
+    private final PriceOutboxJpaRepository outboxRepository;
+    private final PriceKafkaProducer priceKafkaProducer;
+    private final ProtoPriceKafkaProducer protoPriceKafkaProducer;
+    private final LatestPriceKafkaProducer latestPriceKafkaProducer;
+    private final TransactionTemplate transactionTemplate;
+
+    // Advisory lock key shared by the relays of all instances
+    static final long RELAY_LOCK_KEY = 0x7072_6963_655F_6F62L;
+
+    @Value("${price.outbox.relay.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${price.outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMillis;
+
+    /**
+     * Relays batches until the outbox holds fewer entries than one batch
+     */
+    @Scheduled(fixedDelayString = "${price.outbox.relay.poll-interval-ms:100}")
+    public void relay() {
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed != null && relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Failed to relay price outbox, will retry", e);
+        }
+    }
+
+    private int relayBatch() {
+        if (!outboxRepository.tryLockRelay(RELAY_LOCK_KEY)) {
+            log.debug("Price outbox is relayed by another instance");
+            return 0;
+        }
+        List<PriceOutboxEntity> entries = outboxRepository.lockOldest(batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Price> updated = new ArrayList<>(entries.size());
+        List<EncodedPriceUpdate> encodedUpdated = new ArrayList<>(entries.size());
+        List<EncodedPriceUpdate> encoded = new ArrayList<>(entries.size());
+        List<PriceEvent> events = new ArrayList<>(entries.size());
+        for (PriceOutboxEntity entry : entries) {
+            PriceEvent event = toEvent(entry);
+            events.add(event);
+            EncodedPriceUpdate update = EncodedPriceUpdate.of(event);
+            encoded.add(update);
+            encodedUpdated.add(update);
+            // The JSON messages have no update type, deletions reach JSON consumers only through the other topics
+            if (event.getType() == PriceEvent.Type.UPDATED) {
+                updated.add(event.getPrice());
+            }
+        }
+        await(CompletableFuture.allOf(
+                priceKafkaProducer.sendPriceUpdates(updated),
+                protoPriceKafkaProducer.sendPriceUpdates(encodedUpdated),
+                protoPriceKafkaProducer.sendPriceDeltas(events),
+                latestPriceKafkaProducer.sendLatest(encoded)));
+        outboxRepository.deleteAllInBatch(entries);
+        log.debug("Relayed {} price events from the outbox", entries.size());
+        return entries.size();
+    }
+
+    private void await(CompletableFuture<Void> sends) {
+        try {
+            sends.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing price events", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to publish price events", e);
+        }
+    }
+
+    private static PriceEvent toEvent(PriceOutboxEntity entry) {
+        Price price = Price.builder()
+                .instrumentId(entry.getInstrumentId())
+                .bidPrice(entry.getBidPrice())
+                .askPrice(entry.getAskPrice())
+                .lastUpdated(entry.getLastUpdated())
+                .sequence(entry.getSequenceNumber())
+                .build();
+        return new PriceEvent(PriceEvent.Type.valueOf(entry.getEventType()), price, entry.getProtoPayload());
+    }
+}
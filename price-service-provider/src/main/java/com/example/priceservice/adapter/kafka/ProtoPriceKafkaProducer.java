@@ -1,42 +1,73 @@
 package com.example.priceservice.adapter.kafka;
 
-import com.example.priceservice.grpc.PriceUpdate;
-import com.example.priceservice.grpc.UpdateType;
-import com.google.protobuf.Timestamp;
-import lombok.RequiredArgsConstructor;
+import com.example.priceservice.adapter.proto.EncodedPriceDelta;
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.adapter.proto.PriceDeltaTracker;
+import com.example.priceservice.domain.model.PriceEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
- * Kafka producer that publishes price updates encoded with Protocol Buffers.
+ * Kafka producer that publishes price updates encoded with Protocol Buffers,
+ * as full {@code PriceUpdate} messages and as compact {@code PriceDelta} messages on a separate topic.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class ProtoPriceKafkaProducer {
 
     private final KafkaTemplate<String, byte[]> protoKafkaTemplate;
+    private final KafkaPublisher kafkaPublisher;
+    private final PriceDeltaTracker deltaTracker;
 
     @Value("${price.kafka.proto.topic:price-updates-proto.proto}")
     private String topic;
 
-    public void sendPriceUpdate(com.example.priceservice.domain.model.Price price) {
-        com.example.priceservice.grpc.Price priceMsg = com.example.priceservice.grpc.Price.newBuilder()
-                .setInstrumentId(price.getInstrumentId())
-                .setBidPrice(price.getBidPrice().doubleValue())
-                .setAskPrice(price.getAskPrice().doubleValue())
-                .setLastUpdated(Timestamp.newBuilder()
-                        .setSeconds(price.getLastUpdated().getEpochSecond())
-                        .setNanos(price.getLastUpdated().getNano())
-                        .build())
-                .build();
-        PriceUpdate message = PriceUpdate.newBuilder()
-                .setPrice(priceMsg)
-                .setUpdateType(UpdateType.UPDATED)
-                .build();
-        protoKafkaTemplate.send(topic, price.getInstrumentId(), message.toByteArray());
-        log.info("Sent protobuf price update to Kafka: {}", message);
+    @Value("${price.kafka.delta.topic:price-deltas.proto}")
+    private String deltaTopic;
+
+    public ProtoPriceKafkaProducer(KafkaTemplate<String, byte[]> protoKafkaTemplate,
+                                   KafkaPublisher kafkaPublisher,
+                                   @Value("${price.delta.snapshot-interval:100}") int deltaSnapshotInterval) {
+        this.protoKafkaTemplate = protoKafkaTemplate;
+        this.kafkaPublisher = kafkaPublisher;
+        this.deltaTracker = new PriceDeltaTracker(deltaSnapshotInterval);
+    }
+
+    /**
+     * Sends the updates without waiting for them, so the producer can batch them.
+     * The pre-encoded bytes are sent as they are.
+     *
+     * @return future completed once every update is acknowledged by the broker
+     */
+    public CompletableFuture<Void> sendPriceUpdates(List<EncodedPriceUpdate> updates) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[updates.size()];
+        for (int i = 0; i < updates.size(); i++) {
+            EncodedPriceUpdate update = updates.get(i);
+            sends[i] = kafkaPublisher.send(protoKafkaTemplate, topic, update.getInstrumentId(), update.toByteArray());
+        }
+        log.debug("Sending {} protobuf price updates to Kafka", updates.size());
+        return CompletableFuture.allOf(sends);
+    }
+
+    /**
+     * Sends the events as deltas against the previous event of the same instrument sent by this producer.
+     * Events must be passed in sequence order per instrument; an event whose predecessor was sent by another
+     * instance, or was never sent, goes out as a snapshot.
+     *
+     * @return future completed once every delta is acknowledged by the broker
+     */
+    public CompletableFuture<Void> sendPriceDeltas(List<PriceEvent> events) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            EncodedPriceDelta delta = deltaTracker.delta(events.get(i));
+            sends[i] = kafkaPublisher.send(protoKafkaTemplate, deltaTopic, delta.getInstrumentId(), delta.toByteArray());
+        }
+        log.debug("Sending {} protobuf price deltas to Kafka", events.size());
+        return CompletableFuture.allOf(sends);
     }
 }
@@ -0,0 +1,290 @@
+package com.example.priceservice.adapter.persistence;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.port.PriceRepository;
+import com.example.priceservice.domain.service.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-through in-memory cache in front of another {@link PriceRepository}.
+ * <p>
+ * In unbounded mode ({@code maxSize <= 0}) every price is loaded once the application is ready and the
+ * cache becomes authoritative for reads: lookups and {@link #findAll()} never reach the database and a
+ * miss means that the instrument does not exist. In bounded mode only the most recently used prices are
+ * kept, misses read through to the delegate and {@link #findAll()} always goes to the delegate.
+ * <p>
+ * Writes go to the delegate first and are applied to the cache once the surrounding transaction commits; of two
+ * values of one instrument the one with the higher sequence is kept. Rows changed behind the back of this
+ * repository, e.g. by another provider instance, are picked up within {@code refreshInterval}: the unbounded cache
+ * is reloaded from the delegate at that interval and bounded entries expire after it. With a zero interval the
+ * cache is never refreshed, which is only correct when this instance is the only writer of the prices.
+ * Cached {@link Price} instances are shared between callers and must be treated as read-only.
+ */
+@Slf4j
+public class CachingPriceRepository implements PriceRepository {
+
+    private final PriceRepository delegate;
+    private final boolean bounded;
+    private final Duration refreshInterval;
+    private final ConcurrentSkipListMap<String, Price> allPrices = new ConcurrentSkipListMap<>();
+    private final Cache<String, Price> recentPrices;
+    // Instruments saved or deleted while the unbounded cache is (re)loaded, their loaded values may be stale
+    private final Set<String> changedWhileLoading = ConcurrentHashMap.newKeySet();
+    // Increased by every deletion, so that a read-through started before it does not cache the deleted price
+    private final AtomicLong deletions = new AtomicLong();
+    private volatile boolean loading;
+    private volatile boolean loaded;
+    private ScheduledExecutorService refreshScheduler;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    /**
+     * @param refreshInterval time after which changes made behind the back of the cache are seen, zero for never
+     */
+    public CachingPriceRepository(PriceRepository delegate, long maxSize, Duration refreshInterval,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.bounded = maxSize > 0;
+        this.refreshInterval = refreshInterval;
+        this.hits = Counter.builder("price.cache.gets").tag("result", "hit")
+                .description("Price lookups served from memory").register(meterRegistry);
+        this.misses = Counter.builder("price.cache.gets").tag("result", "miss")
+                .description("Price lookups that were not found in memory").register(meterRegistry);
+        this.evictions = Counter.builder("price.cache.evictions")
+                .description("Prices evicted by the size bound").register(meterRegistry);
+        if (bounded) {
+            Caffeine<String, Price> builder = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .evictionListener((String key, Price value, RemovalCause cause) -> {
+                        if (cause == RemovalCause.SIZE) {
+                            evictions.increment();
+                        }
+                    });
+            if (!refreshInterval.isZero()) {
+                builder.expireAfterWrite(refreshInterval);
+            }
+            this.recentPrices = builder.build();
+        } else {
+            this.recentPrices = null;
+        }
+        Gauge.builder("price.cache.size", this, CachingPriceRepository::size)
+                .description("Number of cached prices")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fills the cache from the delegate once the application has started and schedules its refreshes.
+     * Until then reads are served by the delegate. Bounded caches are filled lazily instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (bounded) {
+            loaded = true;
+            return;
+        }
+        reload();
+        loaded = true;
+        log.info("Loaded {} prices into the price cache", allPrices.size());
+        if (!refreshInterval.isZero()) {
+            refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "price-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = refreshInterval.toMillis();
+            refreshScheduler.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reloads the unbounded cache from the delegate, picking up prices saved and deleted by other instances
+     */
+    public void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh the price cache, keeping the cached prices", e);
+        }
+    }
+
+    public void close() {
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public Optional<Price> findByInstrumentId(String instrumentId) {
+        if (!loaded) {
+            return delegate.findByInstrumentId(instrumentId);
+        }
+        Price cached = bounded ? recentPrices.getIfPresent(instrumentId) : allPrices.get(instrumentId);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        misses.increment();
+        if (!bounded) {
+            return Optional.empty();
+        }
+        long deletionsBefore = deletions.get();
+        Optional<Price> loadedPrice = delegate.findByInstrumentId(instrumentId);
+        // A price read before a concurrent deletion committed must not be cached after the deletion removed it
+        if (loadedPrice.isPresent() && deletions.get() == deletionsBefore) {
+            recentPrices.asMap().merge(instrumentId, loadedPrice.get(), CachingPriceRepository::newer);
+        }
+        return loadedPrice;
+    }
+
+    @Override
+    public Price save(Price price) {
+        Price saved = delegate.save(price);
+        AfterCommit.run(() -> put(saved));
+        return saved;
+    }
+
+    @Override
+    public List<Price> saveAll(List<Price> prices) {
+        List<Price> saved = delegate.saveAll(prices);
+        AfterCommit.run(() -> saved.forEach(this::put));
+        return saved;
+    }
+
+    @Override
+    public boolean deleteByInstrumentId(String instrumentId) {
+        boolean deleted = delegate.deleteByInstrumentId(instrumentId);
+        if (deleted) {
+            AfterCommit.run(() -> remove(instrumentId));
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Price> findAll() {
+        if (bounded || !loaded) {
+            return delegate.findAll();
+        }
+        hits.increment();
+        return new ArrayList<>(allPrices.values());
+    }
+
+    @Override
+    public List<Price> findPageAfter(String afterInstrumentId, int limit) {
+        if (bounded || !loaded) {
+            return delegate.findPageAfter(afterInstrumentId, limit);
+        }
+        hits.increment();
+        NavigableMap<String, Price> tail = afterInstrumentId == null ? allPrices : allPrices.tailMap(afterInstrumentId, false);
+        return tail.values().stream().limit(limit).toList();
+    }
+
+    @Override
+    public List<Price> findPage(int page, int size) {
+        if (bounded || !loaded) {
+            return delegate.findPage(page, size);
+        }
+        hits.increment();
+        return allPrices.values().stream().skip((long) page * size).limit(size).toList();
+    }
+
+    @Override
+    public long count() {
+        return bounded || !loaded ? delegate.count() : allPrices.size();
+    }
+
+    @Override
+    public Optional<OrderBook> findOrderBookByInstrumentId(String instrumentId) {
+        return delegate.findOrderBookByInstrumentId(instrumentId);
+    }
+
+    @Override
+    public OrderBook saveOrderBook(OrderBook orderBook) {
+        return delegate.saveOrderBook(orderBook);
+    }
+
+    /**
+     * @return number of prices currently held in memory
+     */
+    public long size() {
+        return bounded ? recentPrices.estimatedSize() : allPrices.size();
+    }
+
+    /**
+     * Replaces the unbounded cache with the prices of the delegate. Instruments saved or deleted through this
+     * repository while the delegate is read keep their cached state, as the read may predate those changes.
+     */
+    private synchronized void reload() {
+        loading = true;
+        try {
+            List<Price> prices = delegate.findAll();
+            Set<String> present = new HashSet<>();
+            for (Price price : prices) {
+                present.add(price.getInstrumentId());
+                if (!changedWhileLoading.contains(price.getInstrumentId())) {
+                    allPrices.merge(price.getInstrumentId(), price, CachingPriceRepository::newer);
+                }
+            }
+            allPrices.keySet().removeIf(instrumentId ->
+                    !present.contains(instrumentId) && !changedWhileLoading.contains(instrumentId));
+        } finally {
+            loading = false;
+            changedWhileLoading.clear();
+        }
+    }
+
+    private void put(Price price) {
+        if (bounded) {
+            recentPrices.asMap().merge(price.getInstrumentId(), price, CachingPriceRepository::newer);
+        } else {
+            if (loading) {
+                changedWhileLoading.add(price.getInstrumentId());
+            }
+            allPrices.merge(price.getInstrumentId(), price, CachingPriceRepository::newer);
+        }
+    }
+
+    private void remove(String instrumentId) {
+        deletions.incrementAndGet();
+        if (bounded) {
+            recentPrices.invalidate(instrumentId);
+        } else {
+            if (loading) {
+                changedWhileLoading.add(instrumentId);
+            }
+            allPrices.remove(instrumentId);
+        }
+    }
+
+    /**
+     * Keeps the price with the higher sequence, assigned by the database on every change, so that out-of-order
+     * commit callbacks or reloads for the same instrument cannot roll the cached value back.
+     */
+    private static Price newer(Price current, Price candidate) {
+        return candidate.getSequence() >= current.getSequence() ? candidate : current;
+    }
+}
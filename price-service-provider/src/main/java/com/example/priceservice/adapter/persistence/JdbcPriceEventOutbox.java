@@ -0,0 +1,51 @@
+package com.example.priceservice.adapter.persistence;
+
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.domain.port.PriceEventOutbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * JDBC implementation of the PriceEventOutbox port.
+ * Events are inserted as one JDBC batch into the {@code price_outbox} table, together with their protobuf
+ * encoding so that the relay publishes the bytes built for the event instead of encoding it again.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class JdbcPriceEventOutbox implements PriceEventOutbox {
+
+    private static final String INSERT_EVENT_SQL = """
+            INSERT INTO price_outbox (instrument_id, event_type, bid_price, ask_price, last_updated, sequence_number, proto_payload)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<PriceEvent> append(List<PriceEvent> events) {
+        log.debug("Appending {} price events to the outbox", events.size());
+        List<PriceEvent> encoded = events.stream()
+                .map(event -> event.withPayload(EncodedPriceUpdate.encode(event).toByteArray()))
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, encoded, encoded.size(), (ps, event) -> {
+            ps.setString(1, event.getInstrumentId());
+            ps.setString(2, event.getType().name());
+            ps.setBigDecimal(3, event.getPrice().getBidPrice());
+            ps.setBigDecimal(4, event.getPrice().getAskPrice());
+            ps.setObject(5, event.getPrice().getLastUpdated().atOffset(ZoneOffset.UTC));
+            ps.setLong(6, event.getPrice().getSequence());
+            ps.setBytes(7, event.getPayload());
+        });
+        return encoded;
+    }
+}
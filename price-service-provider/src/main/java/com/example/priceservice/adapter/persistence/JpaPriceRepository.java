@@ -10,12 +10,19 @@ import com.example.priceservice.domain.model.Price;
 import com.example.priceservice.domain.port.PriceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.time.Instant;
-import java.util.List;
-import java.util.Optional;
+import java.time.ZoneOffset;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -27,8 +34,66 @@ import java.util.stream.Collectors;
 @Slf4j
 public class JpaPriceRepository implements PriceRepository {
 
+    private static final String UPSERT_PRICE_SQL = """
+            INSERT INTO prices (instrument_id, bid_price, ask_price, last_updated, sequence_number)
+            VALUES (?, ?, ?, ?, 1)
+            ON CONFLICT (instrument_id) DO UPDATE
+            SET bid_price = EXCLUDED.bid_price, ask_price = EXCLUDED.ask_price, last_updated = EXCLUDED.last_updated,
+                sequence_number = prices.sequence_number + 1
+            """;
+
+    private static final String FIND_SEQUENCES_SQL = """
+            SELECT instrument_id, sequence_number FROM prices WHERE instrument_id = ANY (?)
+            """;
+
+    // Creates the row of a book saved for the first time, concurrent first saves then serialize on its row lock
+    private static final String INSERT_EMPTY_ORDER_BOOK_SQL = """
+            INSERT INTO order_books (instrument_id, last_updated, sequence_number)
+            VALUES (?, ?, 0)
+            ON CONFLICT (instrument_id) DO NOTHING
+            """;
+
+    // Replaces the orders of a book by its packed levels in one statement, dropping order rows of the row mode
+    private static final String UPSERT_PACKED_ORDER_BOOK_SQL = """
+            WITH deleted_orders AS (DELETE FROM orders WHERE order_book_id = ?)
+            INSERT INTO order_books (instrument_id, last_updated, sequence_number, packed_levels)
+            VALUES (?, ?, 1, ?)
+            ON CONFLICT (instrument_id) DO UPDATE
+            SET last_updated = EXCLUDED.last_updated, sequence_number = order_books.sequence_number + 1,
+                packed_levels = EXCLUDED.packed_levels
+            RETURNING sequence_number
+            """;
+
+    // Header and orders of a book in one ordered statement, one row without orders for empty and packed books
+    private static final String FIND_ORDER_BOOK_SQL = """
+            SELECT b.last_updated, b.sequence_number, b.packed_levels, o.order_type, o.price, o.volume
+            FROM order_books b
+            LEFT JOIN orders o ON o.order_book_id = b.instrument_id
+            WHERE b.instrument_id = ?
+            ORDER BY o.order_type DESC,
+                     CASE WHEN o.order_type = 'BID' THEN o.price END DESC,
+                     CASE WHEN o.order_type = 'ASK' THEN o.price END
+            """;
+
+    private static final Comparator<OrderBook.Order> BY_PRICE = Comparator.comparing(OrderBook.Order::getPrice);
+
     private final PriceJpaRepository priceJpaRepository;
     private final OrderBookJpaRepository orderBookJpaRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * How order books are written: {@code rows} stores one row per order, {@code packed} stores all orders of
+     * a book as one value of its row. Books are read in whichever format they were written.
+     */
+    @Value("${price.orderbook.storage:rows}")
+    private String orderBookStorage;
+
+    /**
+     * How order books are read: {@code query} reads them with one SQL statement straight into the domain model,
+     * {@code entity} loads the JPA entity and its order collections
+     */
+    @Value("${price.orderbook.read-path:query}")
+    private String orderBookReadPath;
 
     @Override
     public Optional<Price> findByInstrumentId(String instrumentId) {
@@ -41,10 +106,40 @@ public class JpaPriceRepository implements PriceRepository {
     @Transactional
     public Price save(Price price) {
         log.debug("Saving price for instrument: {}", price.getInstrumentId());
-        PriceEntity entity = mapToPriceEntity(price);
-        entity.setLastUpdated(Instant.now());
-        PriceEntity savedEntity = priceJpaRepository.save(entity);
-        return mapToPrice(savedEntity);
+        Price saved = price.toBuilder().lastUpdated(Instant.now()).build();
+        // Upsert instead of a JPA merge so that the sequence is increased atomically by the database
+        Long sequence = jdbcTemplate.queryForObject(UPSERT_PRICE_SQL + "RETURNING sequence_number", Long.class,
+                saved.getInstrumentId(), saved.getBidPrice(), saved.getAskPrice(),
+                saved.getLastUpdated().atOffset(ZoneOffset.UTC));
+        saved.setSequence(sequence);
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public List<Price> saveAll(List<Price> prices) {
+        log.debug("Saving {} prices in batch", prices.size());
+        Instant now = Instant.now();
+        List<Price> saved = prices.stream()
+                .map(price -> price.toBuilder().lastUpdated(now).build())
+                .toList();
+        // One multi-row upsert per JDBC batch instead of a select and an update/insert per price
+        jdbcTemplate.batchUpdate(UPSERT_PRICE_SQL, saved, saved.size(), (ps, price) -> {
+            ps.setString(1, price.getInstrumentId());
+            ps.setBigDecimal(2, price.getBidPrice());
+            ps.setBigDecimal(3, price.getAskPrice());
+            ps.setObject(4, price.getLastUpdated().atOffset(ZoneOffset.UTC));
+        });
+        // Batched statements cannot return rows, the assigned sequences are read back in one query
+        Map<String, Long> sequences = new HashMap<>();
+        jdbcTemplate.query(FIND_SEQUENCES_SQL,
+                (PreparedStatement ps) -> ps.setArray(1, ps.getConnection().createArrayOf("varchar",
+                        saved.stream().map(Price::getInstrumentId).toArray())),
+                (ResultSet rs) -> {
+                    sequences.put(rs.getString(1), rs.getLong(2));
+                });
+        saved.forEach(price -> price.setSequence(sequences.getOrDefault(price.getInstrumentId(), 0L)));
+        return saved;
     }
 
     @Override
@@ -67,20 +162,156 @@ public class JpaPriceRepository implements PriceRepository {
     }
 
     @Override
+    public List<Price> findPageAfter(String afterInstrumentId, int limit) {
+        log.debug("Finding {} prices after instrument: {}", limit, afterInstrumentId);
+        List<PriceEntity> entities = afterInstrumentId == null
+                ? priceJpaRepository.findAllByOrderByInstrumentIdAsc(PageRequest.ofSize(limit))
+                : priceJpaRepository.findByInstrumentIdGreaterThanOrderByInstrumentIdAsc(afterInstrumentId, PageRequest.ofSize(limit));
+        return entities.stream()
+                .map(this::mapToPrice)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Price> findPage(int page, int size) {
+        log.debug("Finding prices page {} of size {}", page, size);
+        return priceJpaRepository.findAllByOrderByInstrumentIdAsc(PageRequest.of(page, size)).stream()
+                .map(this::mapToPrice)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return priceJpaRepository.count();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<OrderBook> findOrderBookByInstrumentId(String instrumentId) {
         log.debug("Finding order book by instrument ID: {}", instrumentId);
-        return orderBookJpaRepository.findById(instrumentId)
-                .map(this::mapToOrderBook);
+        if ("entity".equalsIgnoreCase(orderBookReadPath)) {
+            return orderBookJpaRepository.findById(instrumentId)
+                    .map(this::mapToOrderBook);
+        }
+        return queryOrderBook(instrumentId);
+    }
+
+    /**
+     * Reads the book with a single statement, without managed entities; bids come from the highest and asks
+     * from the lowest price
+     */
+    private Optional<OrderBook> queryOrderBook(String instrumentId) {
+        List<OrderBook.Order> bids = new ArrayList<>();
+        List<OrderBook.Order> asks = new ArrayList<>();
+        OrderBook[] header = new OrderBook[1];
+        jdbcTemplate.query(FIND_ORDER_BOOK_SQL, (RowCallbackHandler) rs -> {
+            if (header[0] == null) {
+                byte[] packed = rs.getBytes("packed_levels");
+                if (packed != null) {
+                    PackedOrderBookLevels.Decoded levels = PackedOrderBookLevels.decode(packed);
+                    bids.addAll(levels.bids());
+                    asks.addAll(levels.asks());
+                }
+                header[0] = OrderBook.builder()
+                        .instrumentId(instrumentId)
+                        .bidOrders(bids)
+                        .askOrders(asks)
+                        .lastUpdated(rs.getTimestamp("last_updated").toInstant())
+                        .sequence(rs.getLong("sequence_number"))
+                        .build();
+            }
+            String orderType = rs.getString("order_type");
+            if (orderType != null) {
+                OrderBook.Order order = new OrderBook.Order(rs.getBigDecimal("price"), rs.getBigDecimal("volume"));
+                (OrderEntity.OrderType.BID.name().equals(orderType) ? bids : asks).add(order);
+            }
+        }, instrumentId);
+        return Optional.ofNullable(header[0]);
     }
     
+    /**
+     * Saves the order book by changing only the order rows that differ from the stored book: orders are matched
+     * by side and price, a matched order with another volume is updated, unmatched stored orders are deleted and
+     * unmatched new ones inserted. The resulting statements are sent in JDBC batches.
+     * <p>
+     * A book saved for the first time is created as an empty row first, without failing if a concurrent save
+     * created it meanwhile, so the row lock serializes every save of an instrument, the first ones included.
+     * The returned book lists bids from the highest and asks from the lowest price, like the books read back.
+     */
     @Override
     @Transactional
     public OrderBook saveOrderBook(OrderBook orderBook) {
         log.debug("Saving order book for instrument: {}", orderBook.getInstrumentId());
-        OrderBookEntity entity = mapToOrderBookEntity(orderBook);
+        if ("packed".equalsIgnoreCase(orderBookStorage)) {
+            return savePackedOrderBook(orderBook);
+        }
+        String instrumentId = orderBook.getInstrumentId();
+        jdbcTemplate.update(INSERT_EMPTY_ORDER_BOOK_SQL, instrumentId, Instant.now().atOffset(ZoneOffset.UTC));
+        OrderBookEntity entity = orderBookJpaRepository.findForUpdate(instrumentId)
+                .orElseThrow(() -> new IllegalStateException("Order book row of " + instrumentId + " not found"));
+        // A book written in packed mode has no order rows, so all of its orders are inserted
+        entity.setPackedLevels(null);
+        int changed = applyChanges(entity, entity.getBidOrders(), orderBook.getBidOrders(), OrderEntity.OrderType.BID)
+                + applyChanges(entity, entity.getAskOrders(), orderBook.getAskOrders(), OrderEntity.OrderType.ASK);
         entity.setLastUpdated(Instant.now());
-        OrderBookEntity savedEntity = orderBookJpaRepository.save(entity);
-        return mapToOrderBook(savedEntity);
+        entity.setSequenceNumber(entity.getSequenceNumber() + 1);
+        log.debug("Order book for instrument {} saved with {} changed order rows", orderBook.getInstrumentId(), changed);
+        return mapToOrderBook(entity);
+    }
+
+    /**
+     * Writes the book as a single row with its orders packed into one column, sorted like the books read back
+     */
+    private OrderBook savePackedOrderBook(OrderBook orderBook) {
+        Instant now = Instant.now();
+        List<OrderBook.Order> bids = bestFirst(orderBook.getBidOrders(), true);
+        List<OrderBook.Order> asks = bestFirst(orderBook.getAskOrders(), false);
+        byte[] packed = PackedOrderBookLevels.encode(bids, asks);
+        Long sequence = jdbcTemplate.queryForObject(UPSERT_PACKED_ORDER_BOOK_SQL, Long.class,
+                orderBook.getInstrumentId(), orderBook.getInstrumentId(), now.atOffset(ZoneOffset.UTC), packed);
+        return OrderBook.builder()
+                .instrumentId(orderBook.getInstrumentId())
+                .bidOrders(List.copyOf(bids))
+                .askOrders(List.copyOf(asks))
+                .lastUpdated(now)
+                .sequence(sequence)
+                .build();
+    }
+
+    /**
+     * Turns the stored orders of one side into the given ones with as few row changes as possible
+     *
+     * @return number of rows inserted, updated or deleted
+     */
+    private static int applyChanges(OrderBookEntity book, List<OrderEntity> storedOrders,
+                                    List<OrderBook.Order> orders, OrderEntity.OrderType orderType) {
+        // Compared with compareTo, so 175.5 matches the stored 175.5000
+        Map<BigDecimal, Deque<OrderEntity>> storedByPrice = new TreeMap<>();
+        storedOrders.forEach(order -> storedByPrice.computeIfAbsent(order.getPrice(), price -> new ArrayDeque<>()).add(order));
+
+        int changed = 0;
+        List<OrderEntity> inserted = new ArrayList<>();
+        for (OrderBook.Order order : orders) {
+            Deque<OrderEntity> samePrice = storedByPrice.get(order.getPrice());
+            OrderEntity match = samePrice != null ? samePrice.poll() : null;
+            if (match == null) {
+                inserted.add(OrderEntity.builder()
+                        .orderBook(book)
+                        .price(order.getPrice())
+                        .volume(order.getVolume())
+                        .orderType(orderType)
+                        .build());
+            } else if (match.getVolume().compareTo(order.getVolume()) != 0) {
+                match.setVolume(order.getVolume());
+                changed++;
+            }
+        }
+        Set<OrderEntity> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
+        storedByPrice.values().forEach(deleted::addAll);
+        // Orphan removal deletes the rows dropped from the collection
+        storedOrders.removeIf(deleted::contains);
+        storedOrders.addAll(inserted);
+        return changed + deleted.size() + inserted.size();
     }
 
     private Price mapToPrice(PriceEntity entity) {
@@ -89,25 +320,29 @@ public class JpaPriceRepository implements PriceRepository {
                 .bidPrice(entity.getBidPrice())
                 .askPrice(entity.getAskPrice())
                 .lastUpdated(entity.getLastUpdated())
-                .build();
-    }
-
-    private PriceEntity mapToPriceEntity(Price price) {
-        return PriceEntity.builder()
-                .instrumentId(price.getInstrumentId())
-                .bidPrice(price.getBidPrice())
-                .askPrice(price.getAskPrice())
-                .lastUpdated(price.getLastUpdated())
+                .sequence(entity.getSequenceNumber())
                 .build();
     }
 
     private OrderBook mapToOrderBook(OrderBookEntity entity) {
+        if (entity.getPackedLevels() != null) {
+            PackedOrderBookLevels.Decoded levels = PackedOrderBookLevels.decode(entity.getPackedLevels());
+            return OrderBook.builder()
+                    .instrumentId(entity.getInstrumentId())
+                    .bidOrders(bestFirst(levels.bids(), true))
+                    .askOrders(bestFirst(levels.asks(), false))
+                    .lastUpdated(entity.getLastUpdated())
+                    .sequence(entity.getSequenceNumber())
+                    .build();
+        }
         List<OrderBook.Order> bidOrders = entity.getBidOrders().stream()
                 .map(orderEntity -> new OrderBook.Order(orderEntity.getPrice(), orderEntity.getVolume()))
+                .sorted(BY_PRICE.reversed())
                 .collect(Collectors.toList());
 
         List<OrderBook.Order> askOrders = entity.getAskOrders().stream()
                 .map(orderEntity -> new OrderBook.Order(orderEntity.getPrice(), orderEntity.getVolume()))
+                .sorted(BY_PRICE)
                 .collect(Collectors.toList());
 
         return OrderBook.builder()
@@ -115,36 +350,16 @@ public class JpaPriceRepository implements PriceRepository {
                 .bidOrders(bidOrders)
                 .askOrders(askOrders)
                 .lastUpdated(entity.getLastUpdated())
+                .sequence(entity.getSequenceNumber())
                 .build();
     }
 
-    private OrderBookEntity mapToOrderBookEntity(OrderBook orderBook) {
-        OrderBookEntity entity = OrderBookEntity.builder()
-                .instrumentId(orderBook.getInstrumentId())
-                .lastUpdated(orderBook.getLastUpdated())
-                .build();
-
-        List<OrderEntity> bidOrders = orderBook.getBidOrders().stream()
-                .map(order -> OrderEntity.builder()
-                        .orderBook(entity)
-                        .price(order.getPrice())
-                        .volume(order.getVolume())
-                        .orderType(OrderEntity.OrderType.BID)
-                        .build())
-                .collect(Collectors.toList());
-
-        List<OrderEntity> askOrders = orderBook.getAskOrders().stream()
-                .map(order -> OrderEntity.builder()
-                        .orderBook(entity)
-                        .price(order.getPrice())
-                        .volume(order.getVolume())
-                        .orderType(OrderEntity.OrderType.ASK)
-                        .build())
-                .collect(Collectors.toList());
-
-        entity.setBidOrders(bidOrders);
-        entity.setAskOrders(askOrders);
-
-        return entity;
+    /**
+     * @return the orders from the best price on: bids from the highest, asks from the lowest
+     */
+    private static List<OrderBook.Order> bestFirst(List<OrderBook.Order> orders, boolean bids) {
+        List<OrderBook.Order> sorted = new ArrayList<>(orders);
+        sorted.sort(bids ? BY_PRICE.reversed() : BY_PRICE);
+        return sorted;
     }
 }
@@ -0,0 +1,70 @@
+package com.example.priceservice.adapter.persistence;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.service.OrderBookEngine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the orders of a book for the single-row packed storage mode.
+ * <p>
+ * Layout, big-endian: format version (1 byte), number of bids and of asks (int each), then every bid and then
+ * every ask as a price and a volume in fixed-point ticks of {@value OrderBookEngine#SCALE} decimal places
+ * (long each). Orders keep their order, so a book reads back exactly as it was written.
+ */
+public final class PackedOrderBookLevels {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 1 + 2 * Integer.BYTES;
+    private static final int ORDER_BYTES = 2 * Long.BYTES;
+
+    private PackedOrderBookLevels() {
+    }
+
+    public static byte[] encode(List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (bids.size() + asks.size()) * ORDER_BYTES);
+        buffer.put(VERSION).putInt(bids.size()).putInt(asks.size());
+        bids.forEach(order -> put(buffer, order));
+        asks.forEach(order -> put(buffer, order));
+        return buffer.array();
+    }
+
+    /**
+     * @return the bids and the asks
+     * @throws IllegalArgumentException if the bytes are not in a known format
+     */
+    public static Decoded decode(byte[] packed) {
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown packed order book format " + version);
+        }
+        int bidCount = buffer.getInt();
+        int askCount = buffer.getInt();
+        if (buffer.remaining() != (bidCount + askCount) * ORDER_BYTES) {
+            throw new IllegalArgumentException("Packed order book of " + packed.length + " bytes does not hold "
+                    + bidCount + " bids and " + askCount + " asks");
+        }
+        return new Decoded(get(buffer, bidCount), get(buffer, askCount));
+    }
+
+    private static void put(ByteBuffer buffer, OrderBook.Order order) {
+        buffer.putLong(OrderBookEngine.toTicks(order.getPrice())).putLong(OrderBookEngine.toTicks(order.getVolume()));
+    }
+
+    private static List<OrderBook.Order> get(ByteBuffer buffer, int count) {
+        List<OrderBook.Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(new OrderBook.Order(OrderBookEngine.fromTicks(buffer.getLong()), OrderBookEngine.fromTicks(buffer.getLong())));
+        }
+        return orders;
+    }
+
+    /**
+     * Orders read back from a packed value
+     */
+    public record Decoded(List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
+    }
+}
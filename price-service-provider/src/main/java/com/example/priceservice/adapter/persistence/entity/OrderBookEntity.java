@@ -38,4 +38,14 @@ public class OrderBookEntity {
 
     @Column(name = "last_updated", nullable = false)
     private Instant lastUpdated;
+
+    @Column(name = "sequence_number", nullable = false)
+    private long sequenceNumber;
+
+    /**
+     * Orders encoded by {@code PackedOrderBookLevels} when the book is stored in packed mode, null if the orders
+     * are stored as rows
+     */
+    @Column(name = "packed_levels")
+    private byte[] packedLevels;
 }
@@ -19,8 +19,10 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 public class OrderEntity {
 
+    // Sequence ids are allocated in blocks, unlike identity columns they let Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_id_seq")
+    @SequenceGenerator(name = "orders_id_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
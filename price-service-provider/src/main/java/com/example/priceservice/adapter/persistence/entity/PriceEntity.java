@@ -35,4 +35,7 @@ public class PriceEntity {
 
     @Column(name = "last_updated", nullable = false)
     private Instant lastUpdated;
+
+    @Column(name = "sequence_number", nullable = false)
+    private long sequenceNumber;
 }
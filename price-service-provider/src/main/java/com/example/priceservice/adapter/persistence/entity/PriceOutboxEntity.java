@@ -0,0 +1,50 @@
+package com.example.priceservice.adapter.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * JPA entity for a price event waiting in the outbox to be published to Kafka.
+ */
+@Entity
+@Table(name = "price_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "instrument_id", nullable = false)
+    private String instrumentId;
+
+    @Column(name = "event_type", nullable = false, length = 16)
+    private String eventType;
+
+    @Column(name = "bid_price", precision = 19, scale = 4)
+    private BigDecimal bidPrice;
+
+    @Column(name = "ask_price", precision = 19, scale = 4)
+    private BigDecimal askPrice;
+
+    @Column(name = "last_updated", nullable = false)
+    private Instant lastUpdated;
+
+    @Column(name = "sequence_number", nullable = false)
+    private long sequenceNumber;
+
+    /**
+     * Serialized protobuf {@code PriceUpdate} of the event
+     */
+    @Column(name = "proto_payload", nullable = false)
+    private byte[] protoPayload;
+}
@@ -1,13 +1,26 @@
 package com.example.priceservice.adapter.persistence.repository;
 
 import com.example.priceservice.adapter.persistence.entity.OrderBookEntity;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 /**
  * JPA repository for order book entities.
  */
 @Repository
 public interface OrderBookJpaRepository extends JpaRepository<OrderBookEntity, String> {
     // Spring Data JPA will automatically implement basic CRUD operations
+
+    /**
+     * Finds the order book and locks its row until the end of the transaction,
+     * so that concurrent saves of one instrument are assigned consecutive sequences
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM OrderBookEntity b WHERE b.instrumentId = :instrumentId")
+    Optional<OrderBookEntity> findForUpdate(String instrumentId);
 }
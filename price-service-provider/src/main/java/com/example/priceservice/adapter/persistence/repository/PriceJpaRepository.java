@@ -1,9 +1,12 @@
 package com.example.priceservice.adapter.persistence.repository;
 
 import com.example.priceservice.adapter.persistence.entity.PriceEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * JPA repository for price entities.
  */
@@ -11,4 +14,15 @@ import org.springframework.stereotype.Repository;
 public interface PriceJpaRepository extends JpaRepository<PriceEntity, String> {
     // Spring Data JPA will automatically implement basic CRUD operations
     // and methods like findById, save, deleteById, etc.
+
+    /**
+     * Keyset page: prices with an instrument ID greater than the given one, served by the primary key index.
+     * Only the limit of the pageable is used, so no count query is issued.
+     */
+    List<PriceEntity> findByInstrumentIdGreaterThanOrderByInstrumentIdAsc(String instrumentId, Pageable pageable);
+
+    /**
+     * Offset page ordered by instrument ID without the count query issued by {@code findAll(Pageable)}.
+     */
+    List<PriceEntity> findAllByOrderByInstrumentIdAsc(Pageable pageable);
 }
@@ -0,0 +1,30 @@
+package com.example.priceservice.adapter.persistence.repository;
+
+import com.example.priceservice.adapter.persistence.entity.PriceOutboxEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * JPA repository for price outbox entries.
+ */
+@Repository
+public interface PriceOutboxJpaRepository extends JpaRepository<PriceOutboxEntity, Long> {
+
+    /**
+     * Takes the transaction-scoped advisory lock that makes one relay at a time publish the outbox
+     *
+     * @return false if another transaction holds the lock
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLockRelay(@Param("key") long key);
+
+    /**
+     * Locks the oldest outbox entries for the current transaction
+     */
+    @Query(value = "SELECT * FROM price_outbox ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<PriceOutboxEntity> lockOldest(@Param("limit") int limit);
+}
@@ -0,0 +1,72 @@
+package com.example.priceservice.adapter.proto;
+
+import com.example.priceservice.grpc.PriceDelta;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * {@code PriceDelta} serialized once and shared by every stream it is written to.
+ * The byte array returned by {@link #toByteArray()} is shared, callers must not modify it.
+ */
+public final class EncodedPriceDelta {
+
+    private final String instrumentId;
+    private final long sequence;
+    private final boolean snapshot;
+    private final boolean deletion;
+    private final byte[] bytes;
+
+    public EncodedPriceDelta(String instrumentId, long sequence, boolean snapshot, boolean deletion, byte[] bytes) {
+        this.instrumentId = instrumentId;
+        this.sequence = sequence;
+        this.snapshot = snapshot;
+        this.deletion = deletion;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Wraps serialized bytes of unknown content, reading the header fields from them
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid {@code PriceDelta}
+     */
+    public static EncodedPriceDelta parse(byte[] bytes) {
+        try {
+            PriceDelta delta = PriceDelta.parseFrom(bytes);
+            return new EncodedPriceDelta(delta.getInstrumentId(), delta.getSequence(), delta.getSnapshot(),
+                    delta.getDeleted(), bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Invalid PriceDelta", e);
+        }
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return true if the message carries the full price and can be applied without earlier updates
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public boolean isDeletion() {
+        return deletion;
+    }
+
+    /**
+     * @return serialized {@code PriceDelta}, shared and not to be modified
+     */
+    public byte[] toByteArray() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedPriceDelta(instrumentId=" + instrumentId + ", sequence=" + sequence + ", snapshot=" + snapshot
+                + ", deletion=" + deletion + ", size=" + bytes.length + ")";
+    }
+}
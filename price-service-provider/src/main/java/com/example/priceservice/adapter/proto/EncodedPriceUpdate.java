@@ -0,0 +1,129 @@
+package com.example.priceservice.adapter.proto;
+
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.grpc.PriceUpdate;
+import com.example.priceservice.grpc.UpdateType;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+
+/**
+ * Price change serialized once as a protobuf {@code PriceUpdate}.
+ * <p>
+ * The same bytes are written to the protobuf Kafka topics and to every gRPC stream the change is fanned out to,
+ * so the cost of encoding does not grow with the number of subscribers. Instances are immutable and the byte
+ * array returned by {@link #toByteArray()} is shared, callers must not modify it.
+ */
+public final class EncodedPriceUpdate {
+
+    private final String instrumentId;
+    private final boolean deletion;
+    private final byte[] bytes;
+
+    private EncodedPriceUpdate(String instrumentId, boolean deletion, byte[] bytes) {
+        this.instrumentId = instrumentId;
+        this.deletion = deletion;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns the encoding of the event: the payload attached by the outbox when there is one, so that every
+     * gRPC stream the event is fanned out to shares those bytes, otherwise a new serialization
+     */
+    public static EncodedPriceUpdate of(PriceEvent event) {
+        return event.getPayload() != null
+                ? wrap(event.getInstrumentId(), event.getType() == PriceEvent.Type.DELETED, event.getPayload())
+                : encode(event);
+    }
+
+    /**
+     * Serializes the event, ignoring any attached payload
+     */
+    public static EncodedPriceUpdate encode(PriceEvent event) {
+        return new EncodedPriceUpdate(event.getInstrumentId(), event.getType() == PriceEvent.Type.DELETED,
+                toPriceUpdate(event).toByteArray());
+    }
+
+    /**
+     * Wraps bytes that were serialized earlier, e.g. stored in the outbox
+     */
+    public static EncodedPriceUpdate wrap(String instrumentId, boolean deletion, byte[] bytes) {
+        return new EncodedPriceUpdate(instrumentId, deletion, bytes);
+    }
+
+    /**
+     * Wraps serialized bytes of unknown content, reading the instrument and type from them
+     *
+     * @throws IllegalArgumentException if the bytes are not a valid {@code PriceUpdate}
+     */
+    public static EncodedPriceUpdate parse(byte[] bytes) {
+        try {
+            PriceUpdate update = PriceUpdate.parseFrom(bytes);
+            return new EncodedPriceUpdate(update.getPrice().getInstrumentId(),
+                    update.getUpdateType() == UpdateType.DELETED, bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalArgumentException("Invalid PriceUpdate", e);
+        }
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public boolean isDeletion() {
+        return deletion;
+    }
+
+    /**
+     * @return serialized {@code PriceUpdate}, shared and not to be modified
+     */
+    public byte[] toByteArray() {
+        return bytes;
+    }
+
+    public int getSerializedSize() {
+        return bytes.length;
+    }
+
+    /**
+     * Decodes the message again, meant for tests and diagnostics rather than the hot path
+     */
+    public PriceUpdate toPriceUpdate() {
+        try {
+            return PriceUpdate.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("Invalid PriceUpdate bytes for " + instrumentId, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EncodedPriceUpdate(instrumentId=" + instrumentId + ", deletion=" + deletion + ", size=" + bytes.length + ")";
+    }
+
+    private static PriceUpdate toPriceUpdate(PriceEvent event) {
+        Price price = event.getPrice();
+        if (event.getType() == PriceEvent.Type.DELETED) {
+            return PriceUpdate.newBuilder()
+                    .setPrice(com.example.priceservice.grpc.Price.newBuilder()
+                            .setInstrumentId(price.getInstrumentId())
+                            // Time of the deletion, lets consumers drop older updates arriving after it
+                            .setLastUpdated(Timestamp.newBuilder()
+                                    .setSeconds(price.getLastUpdated().getEpochSecond())
+                                    .setNanos(price.getLastUpdated().getNano())))
+                    .setUpdateType(UpdateType.DELETED)
+                    .build();
+        }
+        return PriceUpdate.newBuilder()
+                .setPrice(com.example.priceservice.grpc.Price.newBuilder()
+                        .setInstrumentId(price.getInstrumentId())
+                        .setBidPrice(price.getBidPrice().doubleValue())
+                        .setAskPrice(price.getAskPrice().doubleValue())
+                        .setLastUpdated(Timestamp.newBuilder()
+                                .setSeconds(price.getLastUpdated().getEpochSecond())
+                                .setNanos(price.getLastUpdated().getNano())))
+                .setUpdateType(UpdateType.UPDATED)
+                .setSequence(price.getSequence())
+                .build();
+    }
+}
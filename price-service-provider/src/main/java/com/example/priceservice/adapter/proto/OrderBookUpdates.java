@@ -0,0 +1,47 @@
+package com.example.priceservice.adapter.proto;
+
+import com.example.priceservice.domain.model.OrderBookEvent;
+import com.example.priceservice.grpc.BookSide;
+import com.example.priceservice.grpc.LevelChangeType;
+import com.example.priceservice.grpc.OrderBookLevel;
+import com.example.priceservice.grpc.OrderBookLevelChange;
+import com.example.priceservice.grpc.OrderBookUpdate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Conversion of order book events to the protobuf {@code OrderBookUpdate} shared by the Kafka topic and gRPC streams.
+ */
+public final class OrderBookUpdates {
+
+    private OrderBookUpdates() {
+    }
+
+    public static OrderBookUpdate toOrderBookUpdate(OrderBookEvent event) {
+        OrderBookUpdate.Builder update = OrderBookUpdate.newBuilder()
+                .setInstrumentId(event.getInstrumentId())
+                .setSequence(event.getSequence())
+                .setSnapshot(event.isSnapshot())
+                .setTimestampMicros(ChronoUnit.MICROS.between(Instant.EPOCH, event.getTimestamp()));
+        event.getBids().forEach(level -> update.addBids(toLevel(level)));
+        event.getAsks().forEach(level -> update.addAsks(toLevel(level)));
+        event.getChanges().forEach(change -> update.addChanges(OrderBookLevelChange.newBuilder()
+                .setSide(change.getSide() == OrderBookEvent.Side.BID ? BookSide.BID : BookSide.ASK)
+                .setType(switch (change.getType()) {
+                    case ADDED -> LevelChangeType.LEVEL_ADDED;
+                    case CHANGED -> LevelChangeType.LEVEL_CHANGED;
+                    case REMOVED -> LevelChangeType.LEVEL_REMOVED;
+                })
+                .setPrice(change.getPrice().doubleValue())
+                .setVolume(change.getVolume().doubleValue())));
+        return update.build();
+    }
+
+    private static OrderBookLevel toLevel(OrderBookEvent.Level level) {
+        return OrderBookLevel.newBuilder()
+                .setPrice(level.getPrice().doubleValue())
+                .setVolume(level.getVolume().doubleValue())
+                .build();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.priceservice.adapter.proto;
+
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.grpc.PriceDelta;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes price events as {@code PriceDelta} messages relative to the previous event of the same instrument.
+ * <p>
+ * A delta is only produced when the previous event of the instrument, with sequence - 1, went through this tracker;
+ * otherwise, and after {@code snapshotInterval} consecutive deltas, the event is encoded as a snapshot. The message
+ * for an event is encoded once and returned again for the same event instance, so it can be shared by every stream
+ * that sends it. Events are expected in sequence order per instrument; an event older than the last one seen is
+ * encoded as a snapshot and does not change the state.
+ * <p>
+ * Instrument refs are numbered by each tracker in the order it first sees the instruments, so a ref only identifies
+ * an instrument among the messages of one tracker: within one gRPC stream, which is served by one tracker of one
+ * provider process, a ref resolves to the instrument of the last snapshot that carried it. On Kafka the record key
+ * is the authoritative instrument ID, as the relay may move to another provider instance with other refs.
+ */
+public class PriceDeltaTracker {
+
+    private final int snapshotInterval;
+    private final AtomicInteger nextRef = new AtomicInteger();
+    private final ConcurrentHashMap<String, InstrumentState> instruments = new ConcurrentHashMap<>();
+
+    /**
+     * @param snapshotInterval maximum number of consecutive deltas of an instrument before a snapshot is sent
+     */
+    public PriceDeltaTracker(int snapshotInterval) {
+        this.snapshotInterval = Math.max(snapshotInterval, 1);
+    }
+
+    /**
+     * @return the event as a delta on top of the previous event of its instrument, or as a snapshot
+     */
+    public EncodedPriceDelta delta(PriceEvent event) {
+        InstrumentState state = instruments.computeIfAbsent(event.getInstrumentId(),
+                id -> new InstrumentState(nextRef.incrementAndGet()));
+        synchronized (state) {
+            if (state.lastEvent == event) {
+                return state.lastDelta;
+            }
+            if (event.getType() == PriceEvent.Type.DELETED) {
+                EncodedPriceDelta deletion = encodeDeletion(state.ref, event);
+                state.remember(event, deletion, 0);
+                return deletion;
+            }
+            Price price = event.getPrice();
+            if (state.lastEvent != null && price.getSequence() != 0 && price.getSequence() <= state.lastSequence()) {
+                return encodeSnapshot(state.ref, price);
+            }
+            boolean consecutive = state.lastEvent != null && state.lastEvent.getType() == PriceEvent.Type.UPDATED
+                    && price.getSequence() != 0 && price.getSequence() == state.lastSequence() + 1;
+            if (consecutive && state.deltasSinceSnapshot < snapshotInterval) {
+                EncodedPriceDelta delta = encodeDelta(state.ref, state.lastEvent.getPrice(), price);
+                state.remember(event, delta, state.deltasSinceSnapshot + 1);
+                return delta;
+            }
+            EncodedPriceDelta snapshot = encodeSnapshot(state.ref, price);
+            state.remember(event, snapshot, 0);
+            return snapshot;
+        }
+    }
+
+    /**
+     * @return the event as a snapshot, for receivers that cannot have the previous event
+     */
+    public EncodedPriceDelta snapshot(PriceEvent event) {
+        InstrumentState state = instruments.computeIfAbsent(event.getInstrumentId(),
+                id -> new InstrumentState(nextRef.incrementAndGet()));
+        synchronized (state) {
+            if (state.lastEvent == event && (state.lastDelta.isSnapshot() || state.lastDelta.isDeletion())) {
+                return state.lastDelta;
+            }
+            if (state.snapshotEvent == event) {
+                return state.snapshot;
+            }
+            EncodedPriceDelta snapshot = event.getType() == PriceEvent.Type.DELETED
+                    ? encodeDeletion(state.ref, event)
+                    : encodeSnapshot(state.ref, event.getPrice());
+            state.snapshotEvent = event;
+            state.snapshot = snapshot;
+            return snapshot;
+        }
+    }
+
+    private static EncodedPriceDelta encodeSnapshot(int ref, Price price) {
+        PriceDelta message = PriceDelta.newBuilder()
+                .setInstrumentRef(ref)
+                .setInstrumentId(price.getInstrumentId())
+                .setSequence(price.getSequence())
+                .setSnapshot(true)
+                .setBidPrice(price.getBidPrice().doubleValue())
+                .setAskPrice(price.getAskPrice().doubleValue())
+                .setTimestampMicros(toMicros(price.getLastUpdated()))
+                .build();
+        return new EncodedPriceDelta(price.getInstrumentId(), price.getSequence(), true, false, message.toByteArray());
+    }
+
+    private static EncodedPriceDelta encodeDelta(int ref, Price previous, Price price) {
+        PriceDelta.Builder message = PriceDelta.newBuilder()
+                .setInstrumentRef(ref)
+                .setSequence(price.getSequence())
+                .setTimestampDeltaMicros(toMicros(price.getLastUpdated()) - toMicros(previous.getLastUpdated()));
+        if (price.getBidPrice().compareTo(previous.getBidPrice()) != 0) {
+            message.setBidPrice(price.getBidPrice().doubleValue());
+        }
+        if (price.getAskPrice().compareTo(previous.getAskPrice()) != 0) {
+            message.setAskPrice(price.getAskPrice().doubleValue());
+        }
+        return new EncodedPriceDelta(price.getInstrumentId(), price.getSequence(), false, false,
+                message.build().toByteArray());
+    }
+
+    private static EncodedPriceDelta encodeDeletion(int ref, PriceEvent event) {
+        PriceDelta message = PriceDelta.newBuilder()
+                .setInstrumentRef(ref)
+                .setInstrumentId(event.getInstrumentId())
+                .setSequence(event.getPrice().getSequence())
+                .setDeleted(true)
+                .setTimestampMicros(toMicros(event.getPrice().getLastUpdated()))
+                .build();
+        return new EncodedPriceDelta(event.getInstrumentId(), event.getPrice().getSequence(), false, true,
+                message.toByteArray());
+    }
+
+    private static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    /**
+     * Last event of one instrument that went through {@link #delta(PriceEvent)}
+     */
+    private static final class InstrumentState {
+
+        private final int ref;
+        // guarded by this
+        private PriceEvent lastEvent;
+        private EncodedPriceDelta lastDelta;
+        private int deltasSinceSnapshot;
+        private PriceEvent snapshotEvent;
+        private EncodedPriceDelta snapshot;
+
+        InstrumentState(int ref) {
+            this.ref = ref;
+        }
+
+        long lastSequence() {
+            return lastEvent.getPrice().getSequence();
+        }
+
+        void remember(PriceEvent event, EncodedPriceDelta delta, int deltasSinceSnapshot) {
+            this.lastEvent = event;
+            this.lastDelta = delta;
+            this.deltasSinceSnapshot = deltasSinceSnapshot;
+        }
+    }
+}
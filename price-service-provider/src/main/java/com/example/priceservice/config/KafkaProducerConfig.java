@@ -1,12 +1,16 @@
 package com.example.priceservice.config;
 
 import com.example.priceservice.domain.model.PriceUpdateMessage;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -21,11 +25,39 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
+    // Let the producer collect records of a burst into larger batches
+    @Value("${price.kafka.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${price.kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${price.kafka.producer.compression-type:none}")
+    private String compressionType;
+
+    // Upper bound for the producer's own retries of a record, after which its send fails
+    @Value("${price.kafka.producer.delivery-timeout-ms:120000}")
+    private int deliveryTimeoutMs;
+
+    /**
+     * Compacted topic keeping the latest protobuf price per instrument, deleted instruments become tombstones.
+     * Created on startup by the auto-configured KafkaAdmin if it does not exist yet.
+     */
+    @Bean
+    @ConditionalOnProperty(value = "price.kafka.latest.create-topic", matchIfMissing = true)
+    public NewTopic latestPriceTopic(@Value("${price.kafka.latest.topic:price-latest}") String topic,
+                                     @Value("${price.kafka.latest.partitions:3}") int partitions) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .compact()
+                .config(TopicConfig.MIN_CLEANABLE_DIRTY_RATIO_CONFIG, "0.1")
+                .config(TopicConfig.SEGMENT_MS_CONFIG, "3600000")
+                .build();
+    }
+
     @Bean
     public ProducerFactory<String, PriceUpdateMessage> producerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        Map<String, Object> props = producerProps();
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
         return new DefaultKafkaProducerFactory<>(props);
     }
@@ -37,9 +69,7 @@ public class KafkaProducerConfig {
 
     @Bean
     public ProducerFactory<String, byte[]> protoProducerFactory() {
-        Map<String, Object> props = new HashMap<>();
-        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        Map<String, Object> props = producerProps();
         props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
         return new DefaultKafkaProducerFactory<>(props);
     }
@@ -48,4 +78,24 @@ public class KafkaProducerConfig {
     public KafkaTemplate<String, byte[]> protoKafkaTemplate() {
         return new KafkaTemplate<>(protoProducerFactory());
     }
+
+    /**
+     * Settings shared by all producers. Records are keyed by instrument and consumers rely on their order per key,
+     * so the producer is idempotent: it retries failed batches itself without duplicating or reordering them,
+     * which holds for up to five requests in flight per connection.
+     */
+    private Map<String, Object> producerProps() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION_CONFIG, 5);
+        props.put(ProducerConfig.RETRIES_CONFIG, Integer.MAX_VALUE);
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeoutMs);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return props;
+    }
 }
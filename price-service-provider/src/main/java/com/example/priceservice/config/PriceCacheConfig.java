@@ -0,0 +1,32 @@
+package com.example.priceservice.config;
+
+import com.example.priceservice.adapter.persistence.CachingPriceRepository;
+import com.example.priceservice.adapter.persistence.JpaPriceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the in-memory price cache.
+ * When enabled, the cache becomes the primary PriceRepository and wraps the JPA adapter.
+ * Prices written by other provider instances are seen within {@code price.cache.refresh-interval-ms};
+ * refreshing may only be disabled when a single instance writes the prices.
+ */
+@Configuration
+public class PriceCacheConfig {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "price.cache.enabled", havingValue = "true", matchIfMissing = true)
+    public CachingPriceRepository cachingPriceRepository(JpaPriceRepository jpaPriceRepository,
+                                                         MeterRegistry meterRegistry,
+                                                         @Value("${price.cache.max-size:0}") long maxSize,
+                                                         @Value("${price.cache.refresh-interval-ms:5000}") long refreshIntervalMillis) {
+        return new CachingPriceRepository(jpaPriceRepository, maxSize, Duration.ofMillis(refreshIntervalMillis), meterRegistry);
+    }
+}
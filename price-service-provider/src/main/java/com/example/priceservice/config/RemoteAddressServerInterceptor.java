@@ -0,0 +1,25 @@
+package com.example.priceservice.config;
+
+import io.grpc.*;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+import java.net.SocketAddress;
+
+/**
+ * gRPC interceptor exposing the remote address of the call through the gRPC {@link Context},
+ * so that service implementations can tell which client they are serving.
+ */
+@GrpcGlobalServerInterceptor
+public class RemoteAddressServerInterceptor implements ServerInterceptor {
+
+    public static final Context.Key<SocketAddress> REMOTE_ADDRESS = Context.key("remote-address");
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                 Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        SocketAddress remoteAddress = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+        Context context = Context.current().withValue(REMOTE_ADDRESS, remoteAddress);
+        return Contexts.interceptCall(context, call, headers, next);
+    }
+}
@@ -34,7 +34,7 @@ public class SecurityConfig {
             .authorizeHttpRequests(authorize -> authorize
                 // Secure DELETE and POST methods
                 .requestMatchers(HttpMethod.DELETE, "/prices/**").authenticated()
-                .requestMatchers(HttpMethod.POST, "/prices/**").authenticated()
+                .requestMatchers(HttpMethod.POST, "/prices", "/prices/**").authenticated()
                 .requestMatchers(HttpMethod.POST, "/orderbook/**").authenticated()
                 // Allow all other requests without authentication
                 .anyRequest().permitAll()
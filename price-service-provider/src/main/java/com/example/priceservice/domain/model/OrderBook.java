@@ -22,6 +22,10 @@ public class OrderBook {
     private List<Order> bidOrders;
     private List<Order> askOrders;
     private Instant lastUpdated;
+    /**
+     * Per instrument sequence, increased by one on every save and assigned when the order book is saved
+     */
+    private long sequence;
 
     /**
      * Represents a single order in the order book
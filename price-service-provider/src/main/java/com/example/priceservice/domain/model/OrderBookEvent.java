@@ -0,0 +1,120 @@
+package com.example.priceservice.domain.model;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Domain event describing a change of the order book of a financial instrument.
+ * <p>
+ * A snapshot carries every price level of the book, a diff only the levels that were added, changed or removed
+ * since the book with the previous sequence. Orders at the same price are aggregated into one level.
+ */
+@Value
+public class OrderBookEvent {
+    String instrumentId;
+    long sequence;
+    boolean snapshot;
+    /**
+     * Snapshots only: bid levels from the highest price
+     */
+    List<Level> bids;
+    /**
+     * Snapshots only: ask levels from the lowest price
+     */
+    List<Level> asks;
+    /**
+     * Diffs only: changed levels
+     */
+    List<LevelChange> changes;
+    Instant timestamp;
+
+    public static OrderBookEvent snapshot(OrderBook book) {
+        return new OrderBookEvent(book.getInstrumentId(), book.getSequence(), true,
+                toLevels(levels(book.getBidOrders(), Side.BID)),
+                toLevels(levels(book.getAskOrders(), Side.ASK)),
+                List.of(), book.getLastUpdated());
+    }
+
+    /**
+     * @param previous the book with the previous sequence of the same instrument
+     */
+    public static OrderBookEvent diff(OrderBook previous, OrderBook book) {
+        List<LevelChange> changes = new ArrayList<>();
+        diff(Side.BID, levels(previous.getBidOrders(), Side.BID), levels(book.getBidOrders(), Side.BID), changes);
+        diff(Side.ASK, levels(previous.getAskOrders(), Side.ASK), levels(book.getAskOrders(), Side.ASK), changes);
+        return new OrderBookEvent(book.getInstrumentId(), book.getSequence(), false, List.of(), List.of(),
+                List.copyOf(changes), book.getLastUpdated());
+    }
+
+    /**
+     * Aggregates the orders into price levels sorted from the best price
+     */
+    private static NavigableMap<BigDecimal, BigDecimal> levels(List<OrderBook.Order> orders, Side side) {
+        NavigableMap<BigDecimal, BigDecimal> levels = new TreeMap<>(
+                side == Side.BID ? Comparator.reverseOrder() : Comparator.naturalOrder());
+        if (orders != null) {
+            orders.forEach(order -> levels.merge(order.getPrice(), order.getVolume(), BigDecimal::add));
+        }
+        return levels;
+    }
+
+    private static List<Level> toLevels(NavigableMap<BigDecimal, BigDecimal> levels) {
+        return levels.entrySet().stream()
+                .map(level -> new Level(level.getKey(), level.getValue()))
+                .toList();
+    }
+
+    private static void diff(Side side,
+                             NavigableMap<BigDecimal, BigDecimal> previous,
+                             NavigableMap<BigDecimal, BigDecimal> current,
+                             List<LevelChange> changes) {
+        current.forEach((price, volume) -> {
+            BigDecimal previousVolume = previous.get(price);
+            if (previousVolume == null) {
+                changes.add(new LevelChange(side, ChangeType.ADDED, price, volume));
+            } else if (previousVolume.compareTo(volume) != 0) {
+                changes.add(new LevelChange(side, ChangeType.CHANGED, price, volume));
+            }
+        });
+        previous.keySet().stream()
+                .filter(price -> !current.containsKey(price))
+                .forEach(price -> changes.add(new LevelChange(side, ChangeType.REMOVED, price, BigDecimal.ZERO)));
+    }
+
+    /**
+     * Side of the order book
+     */
+    public enum Side {
+        BID, ASK
+    }
+
+    /**
+     * Kind of change of a price level
+     */
+    public enum ChangeType {
+        ADDED, CHANGED, REMOVED
+    }
+
+    /**
+     * Aggregated volume at one price
+     */
+    @Value
+    public static class Level {
+        BigDecimal price;
+        BigDecimal volume;
+    }
+
+    /**
+     * Change of one price level, the volume is zero for removed levels
+     */
+    @Value
+    public static class LevelChange {
+        Side side;
+        ChangeType type;
+        BigDecimal price;
+        BigDecimal volume;
+    }
+}
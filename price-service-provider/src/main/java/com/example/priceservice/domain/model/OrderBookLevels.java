@@ -0,0 +1,96 @@
+package com.example.priceservice.domain.model;
+
+/**
+ * One side of an order book as sorted price levels in parallel primitive arrays of fixed-point ticks.
+ * <p>
+ * Levels are kept sorted with the best price at the end of the arrays, so levels are read from the best one on
+ * by rank. A side is replaced as a whole from orders that are already ordered from the best price on, which
+ * fills the arrays in one pass. Not thread safe.
+ */
+public final class OrderBookLevels {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean bids;
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] volumes = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param bids true for the bid side, where the highest price is the best, false for asks
+     */
+    public OrderBookLevels(boolean bids) {
+        this.bids = bids;
+    }
+
+    /**
+     * Replaces all levels with the given orders in one pass. Orders at the same price are merged into one level
+     * and orders without volume are skipped.
+     *
+     * @param orderPrices  prices in ticks, ordered from the best price on, as books are stored
+     * @param orderVolumes volumes in ticks
+     * @param count        number of orders
+     * @throws IllegalArgumentException if the orders are not ordered from the best price on, or the volumes of the
+     *                                  side do not fit into a {@code long} when summed; the side is left empty
+     */
+    public void load(long[] orderPrices, long[] orderVolumes, int count) {
+        size = 0;
+        if (prices.length < count) {
+            prices = new long[count];
+            volumes = new long[count];
+        }
+        int levels = 0;
+        long total = 0;
+        try {
+            // Worst order first, so that the best level ends up at the end of the arrays without shifting
+            for (int i = count - 1; i >= 0; i--) {
+                long price = orderPrices[i];
+                long volume = orderVolumes[i];
+                // Bounds the sum of any run of levels, e.g. a price bucket
+                total = Math.addExact(total, Math.absExact(volume));
+                if (volume == 0) {
+                    continue;
+                }
+                if (levels > 0 && prices[levels - 1] == price) {
+                    volumes[levels - 1] = Math.addExact(volumes[levels - 1], volume);
+                    continue;
+                }
+                if (levels > 0 && (bids ? prices[levels - 1] > price : prices[levels - 1] < price)) {
+                    throw new IllegalArgumentException("Orders are not ordered from the best price on");
+                }
+                prices[levels] = price;
+                volumes[levels] = volume;
+                levels++;
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Volume of the side is out of the supported range", e);
+        }
+        size = levels;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param rank 0 for the best level
+     */
+    public long priceAtRank(int rank) {
+        return prices[size - 1 - rank];
+    }
+
+    /**
+     * @param rank 0 for the best level
+     */
+    public long volumeAtRank(int rank) {
+        return volumes[size - 1 - rank];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -13,7 +13,7 @@ import java.time.Instant;
  * This is the internal representation used within the provider service.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Price {
@@ -21,4 +21,8 @@ public class Price {
     private BigDecimal bidPrice;
     private BigDecimal askPrice;
     private Instant lastUpdated;
+    /**
+     * Per instrument sequence, increased by one on every change and assigned when the price is saved
+     */
+    private long sequence;
 }
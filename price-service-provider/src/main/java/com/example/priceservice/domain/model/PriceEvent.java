@@ -0,0 +1,59 @@
+package com.example.priceservice.domain.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Domain event describing a change of the price of a financial instrument.
+ * Events are immutable because a single instance is shared by every subscriber it is fanned out to.
+ */
+@Value
+public class PriceEvent {
+    Type type;
+    Price price;
+    /**
+     * Serialized form of the event, attached when the outbox records it so that publishers reuse the bytes instead
+     * of encoding the event again; null for events that were not recorded. Shared, must not be modified.
+     */
+    byte[] payload;
+
+    public PriceEvent(Type type, Price price) {
+        this(type, price, null);
+    }
+
+    public PriceEvent(Type type, Price price, byte[] payload) {
+        this.type = type;
+        this.price = price;
+        this.payload = payload;
+    }
+
+    /**
+     * @return the same event carrying the given serialized form
+     */
+    public PriceEvent withPayload(byte[] payload) {
+        return new PriceEvent(type, price, payload);
+    }
+
+    public static PriceEvent updated(Price price) {
+        return new PriceEvent(Type.UPDATED, price);
+    }
+
+    public static PriceEvent deleted(String instrumentId) {
+        return new PriceEvent(Type.DELETED, Price.builder()
+                .instrumentId(instrumentId)
+                .lastUpdated(Instant.now())
+                .build());
+    }
+
+    public String getInstrumentId() {
+        return price.getInstrumentId();
+    }
+
+    /**
+     * Kind of change carried by the event
+     */
+    public enum Type {
+        UPDATED, DELETED
+    }
+}
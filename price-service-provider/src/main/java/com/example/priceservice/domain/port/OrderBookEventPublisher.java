@@ -0,0 +1,21 @@
+package com.example.priceservice.domain.port;
+
+import com.example.priceservice.domain.model.OrderBookEvent;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publisher of order book changes to the message broker.
+ * This port lets the domain push order book diffs to consumers as soon as they are committed.
+ */
+public interface OrderBookEventPublisher {
+
+    /**
+     * Publishes an event without waiting for the broker. Events of one instrument are passed in sequence order
+     * and must be published in that order.
+     *
+     * @param event the event to publish
+     * @return future completed once the broker acknowledged the event, or exceptionally if it was not published
+     */
+    CompletableFuture<?> publish(OrderBookEvent event);
+}
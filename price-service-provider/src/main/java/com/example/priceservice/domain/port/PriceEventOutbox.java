@@ -0,0 +1,21 @@
+package com.example.priceservice.domain.port;
+
+import com.example.priceservice.domain.model.PriceEvent;
+
+import java.util.List;
+
+/**
+ * Outbox for price events that have to reach the message broker.
+ * This port lets the domain record events in the same transaction as the change they describe.
+ */
+public interface PriceEventOutbox {
+
+    /**
+     * Records events to be published once the surrounding transaction commits
+     *
+     * @param events the events to record
+     * @return the recorded events with their serialized payload attached, in the same order, to be passed on to
+     * in-process subscribers
+     */
+    List<PriceEvent> append(List<PriceEvent> events);
+}
@@ -28,6 +28,14 @@ public interface PriceRepository {
      */
     Price save(Price price);
 
+    /**
+     * Saves several prices in one transaction, inserting new instruments and updating existing ones
+     *
+     * @param prices the prices to save, with at most one price per instrument
+     * @return the saved prices
+     */
+    List<Price> saveAll(List<Price> prices);
+
     /**
      * Deletes a price by instrument ID
      *
@@ -43,6 +51,31 @@ public interface PriceRepository {
      */
     List<Price> findAll();
 
+    /**
+     * Finds prices ordered by instrument ID, starting right after the given instrument (keyset pagination)
+     *
+     * @param afterInstrumentId the last instrument ID of the previous page, or null for the first page
+     * @param limit             the maximum number of prices to return
+     * @return prices ordered by instrument ID
+     */
+    List<Price> findPageAfter(String afterInstrumentId, int limit);
+
+    /**
+     * Finds one page of prices ordered by instrument ID
+     *
+     * @param page zero-based page index
+     * @param size page size
+     * @return prices ordered by instrument ID
+     */
+    List<Price> findPage(int page, int size);
+
+    /**
+     * Counts all prices without loading them
+     *
+     * @return number of stored prices
+     */
+    long count();
+
     /**
      * Finds an order book by instrument ID
      *
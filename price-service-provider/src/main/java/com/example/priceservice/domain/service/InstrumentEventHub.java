@@ -0,0 +1,92 @@
+package com.example.priceservice.domain.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-process fan-out of events to listeners subscribed by instrument ID.
+ * <p>
+ * Listeners are indexed per instrument in a {@link ConcurrentHashMap}, so publishing and
+ * (un)subscribing only contend on the instrument they touch and never on a global lock.
+ * Events are delivered on the publishing thread, so listeners must hand them off quickly
+ * and must not throw; a failing listener is logged and skipped.
+ *
+ * @param <E> type of the published events
+ */
+@Slf4j
+public class InstrumentEventHub<E> {
+
+    private final ConcurrentHashMap<String, Set<Consumer<? super E>>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Subscribes a listener to events of one instrument
+     *
+     * @param instrumentId the unique identifier of the instrument
+     * @param listener     the listener to notify
+     */
+    public void subscribe(String instrumentId, Consumer<? super E> listener) {
+        listeners.compute(instrumentId, (id, current) -> {
+            Set<Consumer<? super E>> set = current != null ? current : ConcurrentHashMap.newKeySet();
+            set.add(listener);
+            return set;
+        });
+    }
+
+    /**
+     * Subscribes a listener to events of several instruments
+     *
+     * @param instrumentIds the instruments to subscribe to
+     * @param listener      the listener to notify
+     * @return handle that removes all of these subscriptions when run
+     */
+    public Runnable subscribe(Collection<String> instrumentIds, Consumer<? super E> listener) {
+        List<String> ids = List.copyOf(instrumentIds);
+        ids.forEach(id -> subscribe(id, listener));
+        return () -> ids.forEach(id -> unsubscribe(id, listener));
+    }
+
+    /**
+     * Removes a listener from one instrument, dropping the instrument entry once nobody listens to it
+     *
+     * @param instrumentId the unique identifier of the instrument
+     * @param listener     the listener to remove
+     */
+    public void unsubscribe(String instrumentId, Consumer<? super E> listener) {
+        listeners.computeIfPresent(instrumentId, (id, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Delivers an event to every listener of the instrument
+     *
+     * @param instrumentId the unique identifier of the instrument
+     * @param event        the event to deliver
+     */
+    public void publish(String instrumentId, E event) {
+        Set<Consumer<? super E>> subscribers = listeners.get(instrumentId);
+        if (subscribers == null) {
+            return;
+        }
+        for (Consumer<? super E> listener : subscribers) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Listener failed for instrument {}", instrumentId, e);
+            }
+        }
+    }
+
+    /**
+     * @return number of instruments that currently have at least one listener
+     */
+    public int subscribedInstrumentCount() {
+        return listeners.size();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.OrderBookEvent;
+import com.example.priceservice.domain.port.OrderBookEventPublisher;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns committed order books into diffs against the previous book of the same instrument and publishes them.
+ * <p>
+ * A diff is only published when the book with the previous sequence was seen by this instance; otherwise, after
+ * {@code snapshotInterval} consecutive diffs, once {@code snapshotMaxAge} passed since the last snapshot and after
+ * a failed publish, the whole book is published as a snapshot. A book older than the last one published, e.g. when
+ * commit callbacks of one instrument race, is skipped since a newer one already went out.
+ * <p>
+ * The last book is kept for at most {@code maxBooks} instruments; the next book of an evicted instrument is
+ * published as a snapshot.
+ * <p>
+ * Events are handed to the publisher by a single background thread, so a send blocked by the broker never holds up
+ * the committing thread. At most {@code publishQueueSize} events wait for it; an event that does not fit is dropped
+ * and counts as a failed publish.
+ */
+@Component
+@Slf4j
+public class OrderBookDiffTracker {
+
+    private final OrderBookEventPublisher publisher;
+    private final int snapshotInterval;
+    private final long snapshotMaxAgeNanos;
+    private final Cache<String, BookState> books;
+    private final LongSupplier nanoTime;
+    private final Executor publishExecutor;
+
+    @Autowired
+    public OrderBookDiffTracker(OrderBookEventPublisher publisher,
+                                @Value("${price.orderbook.snapshot-interval:50}") int snapshotInterval,
+                                @Value("${price.orderbook.snapshot-max-age-ms:10000}") long snapshotMaxAgeMillis,
+                                @Value("${price.orderbook.diff.max-books:10000}") long maxBooks,
+                                @Value("${price.orderbook.publish-queue-size:10000}") int publishQueueSize) {
+        this(publisher, snapshotInterval, Duration.ofMillis(snapshotMaxAgeMillis), maxBooks, System::nanoTime,
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(publishQueueSize),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "order-book-publisher");
+                            thread.setDaemon(true);
+                            return thread;
+                        }));
+    }
+
+    OrderBookDiffTracker(OrderBookEventPublisher publisher, int snapshotInterval, Duration snapshotMaxAge,
+                         long maxBooks, LongSupplier nanoTime, Executor publishExecutor) {
+        this.publisher = publisher;
+        this.snapshotInterval = Math.max(snapshotInterval, 1);
+        this.snapshotMaxAgeNanos = snapshotMaxAge.toNanos();
+        this.books = Caffeine.newBuilder().maximumSize(maxBooks).executor(Runnable::run).build();
+        this.nanoTime = nanoTime;
+        this.publishExecutor = publishExecutor;
+    }
+
+    /**
+     * Publishes the change of a committed order book
+     *
+     * @param book the saved book, with its sequence assigned
+     */
+    public void onSaved(OrderBook book) {
+        BookState state = books.get(book.getInstrumentId(), id -> new BookState());
+        synchronized (state) {
+            if (state.last != null && book.getSequence() <= state.last.getSequence()) {
+                log.debug("Skipping order book {} sequence {}, {} was already published",
+                        book.getInstrumentId(), book.getSequence(), state.last.getSequence());
+                return;
+            }
+            long now = nanoTime.getAsLong();
+            boolean consecutive = state.last != null && book.getSequence() == state.last.getSequence() + 1;
+            boolean snapshotDue = state.publishFailed
+                    || state.diffsSinceSnapshot >= snapshotInterval
+                    || now - state.lastSnapshotAt >= snapshotMaxAgeNanos;
+            OrderBookEvent event;
+            if (consecutive && !snapshotDue) {
+                event = OrderBookEvent.diff(state.last, book);
+                state.diffsSinceSnapshot++;
+            } else {
+                event = OrderBookEvent.snapshot(book);
+                state.diffsSinceSnapshot = 0;
+                state.lastSnapshotAt = now;
+                state.publishFailed = false;
+            }
+            state.last = book;
+            // Enqueued under the lock so that events of one instrument reach the broker in sequence order
+            try {
+                publishExecutor.execute(() -> publish(state, event));
+            } catch (RejectedExecutionException e) {
+                onPublishFailed(state, event);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (publishExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private void publish(BookState state, OrderBookEvent event) {
+        CompletableFuture<?> published;
+        try {
+            published = publisher.publish(event);
+        } catch (RuntimeException e) {
+            published = CompletableFuture.failedFuture(e);
+        }
+        published.whenComplete((result, error) -> {
+            if (error != null) {
+                onPublishFailed(state, event);
+            }
+        });
+    }
+
+    /**
+     * Makes the next book of the instrument a snapshot: consumers missed the failed event and wait for one
+     */
+    private static void onPublishFailed(BookState state, OrderBookEvent event) {
+        synchronized (state) {
+            state.publishFailed = true;
+        }
+        log.warn("Order book {} sequence {} was not published, the next book is published as a snapshot",
+                event.getInstrumentId(), event.getSequence());
+    }
+
+    /**
+     * Last published book of one instrument
+     */
+    private static final class BookState {
+        // guarded by this
+        private OrderBook last;
+        private int diffsSinceSnapshot;
+        private long lastSnapshotAt;
+        private boolean publishFailed;
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.OrderBookLevels;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory hot copy of the order books, held as sorted fixed-point price levels.
+ * <p>
+ * Prices and volumes are stored as {@code long} ticks of {@value #SCALE} decimal places, the precision of the
+ * database columns, in {@link OrderBookLevels}, so only values up to {@link #MAX_VALUE} in magnitude are supported.
+ * Books are replaced as a whole whenever they are saved or read from the database, in linear time for books ordered
+ * from the best price on. Orders at the same price are aggregated into one level, and books are returned with bids
+ * from the highest and asks from the lowest price. The orders are also kept as loaded, sorted but neither merged nor
+ * filtered, for {@link #getOrders(String, int)}.
+ * <p>
+ * Views limited in depth or aggregated into price buckets are built from the best level on and stop once they
+ * have enough levels, so deeper levels are never copied. Up to {@value #MAX_CACHED_VIEWS} views per book are
+ * cached until the book next changes; cached views are shared between callers and must be treated as read-only.
+ * <p>
+ * A held book is served for at most {@code price.orderbook.engine.max-age-ms} after it was loaded; afterwards it reads
+ * as not held, so the caller loads it again from the database and books saved by other instances are picked up
+ * within that time. At most {@code price.orderbook.engine.max-books} books are held, the least used are evicted.
+ * Every book has its own lock, different instruments never contend.
+ */
+@Component
+public class OrderBookEngine {
+
+    /**
+     * Decimal places of the fixed-point ticks
+     */
+    public static final int SCALE = 4;
+
+    /**
+     * Largest magnitude of a price or volume that fits into the ticks
+     */
+    public static final BigDecimal MAX_VALUE = BigDecimal.valueOf(Long.MAX_VALUE, SCALE);
+
+    private static final int MAX_CACHED_VIEWS = 8;
+
+    private static final Comparator<OrderBook.Order> BY_PRICE = Comparator.comparing(OrderBook.Order::getPrice);
+
+    private final Cache<String, Book> books;
+    private final long maxAgeNanos;
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public OrderBookEngine(@Value("${price.orderbook.engine.max-books:10000}") long maxBooks,
+                           @Value("${price.orderbook.engine.max-age-ms:1000}") long maxAgeMillis) {
+        this(maxBooks, Duration.ofMillis(maxAgeMillis), System::nanoTime);
+    }
+
+    OrderBookEngine(long maxBooks, Duration maxAge, LongSupplier nanoTime) {
+        // Evictions run on the writing thread, a book is only ever evicted when another one is added
+        this.books = Caffeine.newBuilder().maximumSize(maxBooks).executor(Runnable::run).build();
+        this.maxAgeNanos = maxAge.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Replaces the book of the instrument, unless a book with a higher sequence is already held.
+     * Either way the held book counts as fresh again, as it is at least as recent as the given one.
+     * Books ordered from the best price on, as the repository returns them, are loaded in linear time.
+     *
+     * @throws IllegalArgumentException if the book is not {@link #isSupported(OrderBook) supported};
+     *                                  the instrument is then no longer held
+     */
+    public void load(OrderBook orderBook) {
+        Book book = books.get(orderBook.getInstrumentId(), id -> new Book());
+        synchronized (book) {
+            book.loadedAt = nanoTime.getAsLong();
+            if (book.loaded && orderBook.getSequence() < book.sequence) {
+                return;
+            }
+            book.views.clear();
+            try {
+                book.bidOrders = loadSide(book.bids, orderBook.getBidOrders(), true);
+                book.askOrders = loadSide(book.asks, orderBook.getAskOrders(), false);
+            } catch (IllegalArgumentException e) {
+                book.loaded = false;
+                books.invalidate(orderBook.getInstrumentId());
+                throw e;
+            }
+            book.sequence = orderBook.getSequence();
+            book.lastUpdated = orderBook.getLastUpdated();
+            book.loaded = true;
+        }
+    }
+
+    /**
+     * @return the whole book, if held
+     */
+    public Optional<OrderBook> get(String instrumentId) {
+        return getView(instrumentId, Integer.MAX_VALUE, 1);
+    }
+
+    /**
+     * Returns the book with the levels of each side aggregated into price buckets: bids are grouped down and asks
+     * up to a multiple of {@code bucketTicks}, and each bucket holds the volume of all levels it covers.
+     *
+     * @param depth       maximum number of levels per side
+     * @param bucketTicks bucket size in ticks, 1 for no aggregation
+     * @return the view of the book, if held and not too old; shared and not to be modified
+     */
+    public Optional<OrderBook> getView(String instrumentId, int depth, long bucketTicks) {
+        if (depth < 1 || bucketTicks < 1) {
+            throw new IllegalArgumentException("Invalid depth " + depth + " or bucket " + bucketTicks);
+        }
+        return view(instrumentId, new ViewKey(depth, bucketTicks, true));
+    }
+
+    /**
+     * Returns the book with the orders as loaded, from the best price on: orders at the same price are not merged
+     * and orders without volume are kept.
+     *
+     * @param depth maximum number of orders per side
+     * @return the view of the book, if held and not too old; shared and not to be modified
+     */
+    public Optional<OrderBook> getOrders(String instrumentId, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid depth " + depth);
+        }
+        return view(instrumentId, new ViewKey(depth, 1, false));
+    }
+
+    private Optional<OrderBook> view(String instrumentId, ViewKey key) {
+        Book book = books.getIfPresent(instrumentId);
+        if (book == null) {
+            return Optional.empty();
+        }
+        synchronized (book) {
+            if (!isFresh(book)) {
+                return Optional.empty();
+            }
+            OrderBook view = book.views.get(key);
+            if (view == null) {
+                view = OrderBook.builder()
+                        .instrumentId(instrumentId)
+                        .bidOrders(key.aggregated()
+                                ? toOrders(book.bids, key.depth(), key.bucketTicks(), true)
+                                : firstOrders(book.bidOrders, key.depth()))
+                        .askOrders(key.aggregated()
+                                ? toOrders(book.asks, key.depth(), key.bucketTicks(), false)
+                                : firstOrders(book.askOrders, key.depth()))
+                        .lastUpdated(book.lastUpdated)
+                        .sequence(book.sequence)
+                        .build();
+                if (book.views.size() < MAX_CACHED_VIEWS) {
+                    book.views.put(key, view);
+                }
+            }
+            return Optional.of(view);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is larger than {@link #MAX_VALUE} in magnitude
+     */
+    public static long toTicks(BigDecimal value) {
+        BigInteger ticks = value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue();
+        if (ticks.bitLength() >= Long.SIZE) {
+            throw new IllegalArgumentException("Value " + value + " is out of the supported range of ±" + MAX_VALUE);
+        }
+        return ticks.longValue();
+    }
+
+    /**
+     * @return true if the value can be converted to ticks
+     */
+    public static boolean isSupported(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().bitLength() < Long.SIZE;
+    }
+
+    /**
+     * @return true if every price and volume of the book can be converted to ticks and the volumes of each side
+     * can be summed in ticks, as levels and price buckets do
+     */
+    public static boolean isSupported(OrderBook orderBook) {
+        return isSupported(orderBook.getBidOrders()) && isSupported(orderBook.getAskOrders());
+    }
+
+    public static BigDecimal fromTicks(long ticks) {
+        return BigDecimal.valueOf(ticks, SCALE);
+    }
+
+    // Called with the book locked
+    private boolean isFresh(Book book) {
+        return book.loaded && nanoTime.getAsLong() - book.loadedAt <= maxAgeNanos;
+    }
+
+    private static boolean isSupported(List<OrderBook.Order> orders) {
+        if (orders == null) {
+            return true;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderBook.Order order : orders) {
+            if (!isSupported(order.getPrice()) || !isSupported(order.getVolume())) {
+                return false;
+            }
+            total = total.add(order.getVolume().abs());
+        }
+        return isSupported(total);
+    }
+
+    /**
+     * @return copies of the orders from the best price on
+     */
+    private static List<OrderBook.Order> loadSide(OrderBookLevels levels, List<OrderBook.Order> orders, boolean bids) {
+        if (orders == null) {
+            levels.clear();
+            return List.of();
+        }
+        List<OrderBook.Order> sorted = orders;
+        for (int i = 1; i < orders.size(); i++) {
+            int cmp = BY_PRICE.compare(orders.get(i - 1), orders.get(i));
+            if (bids ? cmp < 0 : cmp > 0) {
+                sorted = new ArrayList<>(orders);
+                sorted.sort(bids ? BY_PRICE.reversed() : BY_PRICE);
+                break;
+            }
+        }
+        long[] prices = new long[sorted.size()];
+        long[] volumes = new long[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            prices[i] = toTicks(sorted.get(i).getPrice());
+            volumes[i] = toTicks(sorted.get(i).getVolume());
+        }
+        levels.load(prices, volumes, prices.length);
+        List<OrderBook.Order> copies = new ArrayList<>(sorted.size());
+        for (OrderBook.Order order : sorted) {
+            copies.add(new OrderBook.Order(order.getPrice(), order.getVolume()));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    private static List<OrderBook.Order> firstOrders(List<OrderBook.Order> orders, int depth) {
+        return orders.size() <= depth ? orders : orders.subList(0, depth);
+    }
+
+    private static List<OrderBook.Order> toOrders(OrderBookLevels levels, int depth, long bucketTicks, boolean bids) {
+        int count = Math.min(depth, levels.size());
+        List<OrderBook.Order> orders = new ArrayList<>(count);
+        if (bucketTicks == 1) {
+            for (int rank = 0; rank < count; rank++) {
+                orders.add(new OrderBook.Order(fromTicks(levels.priceAtRank(rank)), fromTicks(levels.volumeAtRank(rank))));
+            }
+            return Collections.unmodifiableList(orders);
+        }
+        long bucket = 0;
+        long volume = 0;
+        for (int rank = 0; rank < levels.size(); rank++) {
+            // Bids round down and asks up, so a bucket never shows a better price than its levels
+            long price = bids
+                    ? Math.floorDiv(levels.priceAtRank(rank), bucketTicks) * bucketTicks
+                    : -Math.floorDiv(-levels.priceAtRank(rank), bucketTicks) * bucketTicks;
+            if (rank > 0 && price != bucket) {
+                orders.add(new OrderBook.Order(fromTicks(bucket), fromTicks(volume)));
+                if (orders.size() == depth) {
+                    return Collections.unmodifiableList(orders);
+                }
+                volume = 0;
+            }
+            bucket = price;
+            // Cannot overflow for a loaded book, whose side volume fits into a long
+            volume = Math.addExact(volume, levels.volumeAtRank(rank));
+        }
+        if (!levels.isEmpty()) {
+            orders.add(new OrderBook.Order(fromTicks(bucket), fromTicks(volume)));
+        }
+        return Collections.unmodifiableList(orders);
+    }
+
+    /**
+     * Levels of one instrument
+     */
+    private static final class Book {
+        // guarded by this
+        private final OrderBookLevels bids = new OrderBookLevels(true);
+        private final OrderBookLevels asks = new OrderBookLevels(false);
+        private List<OrderBook.Order> bidOrders = List.of();
+        private List<OrderBook.Order> askOrders = List.of();
+        private long sequence;
+        private Instant lastUpdated;
+        private boolean loaded;
+        private long loadedAt;
+        // Views built since the last change, dropped whenever the levels change
+        private final Map<ViewKey, OrderBook> views = new HashMap<>();
+    }
+
+    private record ViewKey(int depth, long bucketTicks, boolean aggregated) {
+    }
+}
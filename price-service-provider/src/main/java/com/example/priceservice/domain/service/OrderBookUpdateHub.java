@@ -0,0 +1,21 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.OrderBook;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hub that fans out committed order books to in-process subscribers such as gRPC streams.
+ * Books are published once the hot copy in the {@link OrderBookEngine} holds them.
+ */
+@Component
+public class OrderBookUpdateHub extends InstrumentEventHub<OrderBook> {
+
+    /**
+     * Publishes a saved order book to the subscribers of its instrument
+     *
+     * @param orderBook the saved book, with its sequence assigned
+     */
+    public void publish(OrderBook orderBook) {
+        publish(orderBook.getInstrumentId(), orderBook);
+    }
+}
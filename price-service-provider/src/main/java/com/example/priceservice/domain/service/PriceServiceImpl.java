@@ -1,16 +1,22 @@
 package com.example.priceservice.domain.service;
 
-import com.example.priceservice.adapter.kafka.PriceKafkaProducer;
-import com.example.priceservice.adapter.kafka.ProtoPriceKafkaProducer;
 import com.example.priceservice.domain.model.OrderBook;
 import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.domain.port.PriceEventOutbox;
 import com.example.priceservice.domain.port.PriceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -23,8 +29,17 @@ import java.util.Optional;
 public class PriceServiceImpl {
 
     private final PriceRepository priceRepository;
-    private final PriceKafkaProducer priceKafkaProducer;
-    private final ProtoPriceKafkaProducer protoPriceKafkaProducer;
+    private final PriceEventOutbox priceEventOutbox;
+    private final PriceUpdateHub priceUpdateHub;
+    private final OrderBookDiffTracker orderBookDiffTracker;
+    private final OrderBookEngine orderBookEngine;
+    private final OrderBookUpdateHub orderBookUpdateHub;
+
+    /**
+     * Whether saving an order book also sets the price of the instrument to the best bid and ask of the book
+     */
+    @Value("${price.orderbook.derive-price:false}")
+    private boolean derivePriceFromOrderBook;
 
     /**
      * Retrieves the price for a specific instrument
@@ -48,18 +63,66 @@ public class PriceServiceImpl {
     }
 
     /**
-     * Creates or updates the price for a specific instrument
+     * Retrieves a page of prices ordered by instrument ID, continuing after the given instrument
+     *
+     * @param afterInstrumentId the last instrument of the previous page, or null for the first page
+     * @param limit             the maximum number of prices to return
+     * @return prices ordered by instrument ID
+     */
+    public List<Price> getPricesAfter(String afterInstrumentId, int limit) {
+        log.debug("Getting {} prices after instrument: {}", limit, afterInstrumentId);
+        return priceRepository.findPageAfter(afterInstrumentId, limit);
+    }
+
+    /**
+     * Retrieves a page of prices ordered by instrument ID
+     *
+     * @param page zero-based page index
+     * @param size page size
+     * @return prices ordered by instrument ID
+     */
+    public List<Price> getPricesPage(int page, int size) {
+        log.debug("Getting prices page {} of size {}", page, size);
+        return priceRepository.findPage(page, size);
+    }
+
+    /**
+     * Counts all available prices
+     *
+     * @return number of prices
+     */
+    public long countPrices() {
+        return priceRepository.count();
+    }
+
+    /**
+     * Creates or updates the price for a specific instrument.
+     * The update event is recorded in the outbox in the same transaction and published to Kafka by the relay.
      *
      * @param price the price to save
      * @return the saved price
      */
+    @Transactional
     public Price savePrice(Price price) {
         log.debug("Saving price for instrument: {}", price.getInstrumentId());
-        price.setLastUpdated(Instant.now());
-        Price saved = priceRepository.save(price);
-        // Publish update event to Kafka
-        priceKafkaProducer.sendPriceUpdate(saved);
-        protoPriceKafkaProducer.sendPriceUpdate(saved);
+        return saveAndPublish(price);
+    }
+
+    /**
+     * Creates or updates the prices of several instruments in one transaction.
+     * When an instrument occurs more than once only its last price is kept.
+     *
+     * @param prices the prices to save
+     * @return the saved prices
+     */
+    @Transactional
+    public List<Price> savePrices(List<Price> prices) {
+        log.debug("Saving {} prices", prices.size());
+        Map<String, Price> latestByInstrument = new LinkedHashMap<>();
+        prices.forEach(price -> latestByInstrument.put(price.getInstrumentId(), price));
+        List<Price> saved = priceRepository.saveAll(List.copyOf(latestByInstrument.values()));
+        List<PriceEvent> events = priceEventOutbox.append(saved.stream().map(PriceEvent::updated).toList());
+        AfterCommit.run(() -> events.forEach(priceUpdateHub::publish));
         return saved;
     }
 
@@ -69,31 +132,127 @@ public class PriceServiceImpl {
      * @param instrumentId the unique identifier of the instrument
      * @return true if deleted successfully
      */
+    @Transactional
     public boolean deletePrice(String instrumentId) {
         log.debug("Deleting price for instrument: {}", instrumentId);
-        return priceRepository.deleteByInstrumentId(instrumentId);
+        boolean deleted = priceRepository.deleteByInstrumentId(instrumentId);
+        if (deleted) {
+            PriceEvent event = priceEventOutbox.append(List.of(PriceEvent.deleted(instrumentId))).get(0);
+            AfterCommit.run(() -> priceUpdateHub.publish(event));
+        }
+        return deleted;
     }
 
     /**
-     * Retrieves the order book for a specific instrument
+     * Retrieves the order book for a specific instrument.
+     * Served from the in-memory {@link OrderBookEngine}; a book it does not hold, or has held for longer than its
+     * maximum age, is read from the repository and loaded into it.
      *
      * @param instrumentId the unique identifier of the instrument
-     * @return the order book if available
+     * @return the order book if available, with its orders as saved, bids from the highest and asks from the lowest price
      */
     public Optional<OrderBook> getOrderBook(String instrumentId) {
-        log.debug("Getting order book for instrument: {}", instrumentId);
-        return priceRepository.findOrderBookByInstrumentId(instrumentId);
+        return getOrderBook(instrumentId, Integer.MAX_VALUE, null, false);
+    }
+
+    /**
+     * Retrieves a view of the order book for a specific instrument, limited in depth and optionally aggregated
+     * into price levels or buckets. Views are built and cached by the {@link OrderBookEngine} until the book changes.
+     *
+     * @param instrumentId the unique identifier of the instrument
+     * @param depth        the maximum number of orders per side, or of levels if aggregated
+     * @param bucket       the price step to aggregate levels by, or null for levels of one price
+     * @param aggregate    whether to merge orders into price levels, implied by a bucket; otherwise the orders are
+     *                     returned as saved
+     * @return the order book view if available, shared and not to be modified
+     */
+    public Optional<OrderBook> getOrderBook(String instrumentId, int depth, BigDecimal bucket, boolean aggregate) {
+        log.debug("Getting order book for instrument: {}, depth: {}, bucket: {}, aggregate: {}",
+                instrumentId, depth, bucket, aggregate);
+        long bucketTicks = bucket != null ? OrderBookEngine.toTicks(bucket) : 1;
+        boolean aggregated = aggregate || bucket != null;
+        Optional<OrderBook> hot = aggregated
+                ? orderBookEngine.getView(instrumentId, depth, bucketTicks)
+                : orderBookEngine.getOrders(instrumentId, depth);
+        if (hot.isPresent()) {
+            return hot;
+        }
+        Optional<OrderBook> stored = priceRepository.findOrderBookByInstrumentId(instrumentId);
+        stored.ifPresent(orderBookEngine::load);
+        return stored.flatMap(book -> aggregated
+                ? orderBookEngine.getView(instrumentId, depth, bucketTicks)
+                : orderBookEngine.getOrders(instrumentId, depth));
     }
     
     /**
-     * Creates or updates the order book for a specific instrument
+     * Creates or updates the order book for a specific instrument.
+     * Once committed, the book replaces the hot copy, which drops its cached views, the change is published to Kafka
+     * as a diff against the previous book and live gRPC order book streams are notified.
+     * When {@code price.orderbook.derive-price} is enabled, the price of the instrument is set to the best bid and
+     * ask of the book in the same transaction; the price is only saved and published if the top of the book
+     * differs from it, and left alone if either side of the book is empty.
      *
      * @param orderBook the order book to save
      * @return the saved order book
      */
+    @Transactional
     public OrderBook saveOrderBook(OrderBook orderBook) {
         log.debug("Saving order book for instrument: {}", orderBook.getInstrumentId());
         orderBook.setLastUpdated(Instant.now());
-        return priceRepository.saveOrderBook(orderBook);
+        OrderBook saved = priceRepository.saveOrderBook(orderBook);
+        if (derivePriceFromOrderBook) {
+            deriveTopOfBookPrice(saved);
+        }
+        AfterCommit.run(() -> {
+            orderBookEngine.load(saved);
+            orderBookDiffTracker.onSaved(saved);
+            orderBookUpdateHub.publish(saved);
+        });
+        return saved;
+    }
+
+    /**
+     * Saves the price and records its update event, to be called within a transaction
+     */
+    private Price saveAndPublish(Price price) {
+        price.setLastUpdated(Instant.now());
+        Price saved = priceRepository.save(price);
+        PriceEvent event = priceEventOutbox.append(List.of(PriceEvent.updated(saved))).get(0);
+        // Push to live in-process subscribers (gRPC streams) once the change is visible
+        AfterCommit.run(() -> priceUpdateHub.publish(event));
+        return saved;
+    }
+
+    private void deriveTopOfBookPrice(OrderBook orderBook) {
+        Optional<BigDecimal> bestBid = bestPrice(orderBook.getBidOrders(), Comparator.naturalOrder());
+        Optional<BigDecimal> bestAsk = bestPrice(orderBook.getAskOrders(), Comparator.reverseOrder());
+        if (bestBid.isEmpty() || bestAsk.isEmpty()) {
+            log.debug("Order book of {} has an empty side, price not derived", orderBook.getInstrumentId());
+            return;
+        }
+        Optional<Price> current = priceRepository.findByInstrumentId(orderBook.getInstrumentId());
+        if (current.isPresent()
+                && current.get().getBidPrice().compareTo(bestBid.get()) == 0
+                && current.get().getAskPrice().compareTo(bestAsk.get()) == 0) {
+            return;
+        }
+        saveAndPublish(Price.builder()
+                .instrumentId(orderBook.getInstrumentId())
+                .bidPrice(bestBid.get())
+                .askPrice(bestAsk.get())
+                .build());
+    }
+
+    /**
+     * @return the greatest price by the comparator among orders with volume
+     */
+    private static Optional<BigDecimal> bestPrice(List<OrderBook.Order> orders, Comparator<BigDecimal> comparator) {
+        if (orders == null) {
+            return Optional.empty();
+        }
+        return orders.stream()
+                .filter(order -> order.getVolume().signum() > 0)
+                .map(OrderBook.Order::getPrice)
+                .max(comparator);
     }
 }
@@ -0,0 +1,20 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.PriceEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hub that fans out committed price changes to in-process subscribers such as gRPC streams.
+ */
+@Component
+public class PriceUpdateHub extends InstrumentEventHub<PriceEvent> {
+
+    /**
+     * Publishes a price event to the subscribers of its instrument
+     *
+     * @param event the event to publish
+     */
+    public void publish(PriceEvent event) {
+        publish(event.getInstrumentId(), event);
+    }
+}
@@ -0,0 +1,13 @@
+-- Price events written in the same transaction as the price and relayed to Kafka in the background
+CREATE TABLE price_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    instrument_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(16) NOT NULL,
+    bid_price NUMERIC(19, 4),
+    ask_price NUMERIC(19, 4),
+    last_updated TIMESTAMP NOT NULL,
+    -- Sequence of the price the event describes
+    sequence_number BIGINT NOT NULL,
+    -- Protobuf PriceUpdate serialized when the event is written, relayed to Kafka as-is
+    proto_payload BYTEA NOT NULL
+);
@@ -0,0 +1,2 @@
+-- Per instrument sequence, increased by one on every change of the price
+ALTER TABLE prices ADD COLUMN sequence_number BIGINT NOT NULL DEFAULT 0;
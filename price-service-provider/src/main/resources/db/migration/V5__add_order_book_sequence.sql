@@ -0,0 +1,2 @@
+-- Per instrument sequence of the order book, increased by one on every save
+ALTER TABLE order_books ADD COLUMN sequence_number BIGINT NOT NULL DEFAULT 0;
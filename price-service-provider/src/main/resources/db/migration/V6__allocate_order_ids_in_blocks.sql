@@ -0,0 +1,2 @@
+-- Order ids are allocated by Hibernate in blocks of 50 (pooled optimizer), so that order inserts can be batched
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
@@ -0,0 +1,2 @@
+-- Levels of the book packed into one value when the packed storage mode is used, null for books stored as order rows
+ALTER TABLE order_books ADD COLUMN packed_levels BYTEA;
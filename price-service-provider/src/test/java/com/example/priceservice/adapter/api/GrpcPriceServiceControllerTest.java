@@ -0,0 +1,130 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.adapter.persistence.JpaPriceRepository;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.grpc.GetAllPricesRequest;
+import com.example.priceservice.grpc.GetAllPricesResponse;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests of the paging of gRPC GetAllPrices against the test database.
+ * <p>
+ * Тесты постраничного чтения gRPC GetAllPrices на тестовой базе данных.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "grpc.prices.default-page-size=2")
+class GrpcPriceServiceControllerTest {
+
+    @Autowired
+    private GrpcPriceServiceController controller;
+    @Autowired
+    private JpaPriceRepository repository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM prices");
+        repository.saveAll(Stream.of("TSLA", "AAPL", "MSFT", "GOOG", "AMZN").map(id -> Price.builder()
+                .instrumentId(id)
+                .bidPrice(new BigDecimal("100.00"))
+                .askPrice(new BigDecimal("100.50"))
+                .build()).toList());
+    }
+
+    /**
+     * A request without size and token gets every price in one response, as before paging was added.
+     * <p>
+     * Запрос без размера и токена получает все цены одним ответом, как до появления постраничного чтения.
+     */
+    @Test
+    void returnsEveryPriceWithoutSizeAndToken() {
+        GetAllPricesResponse response = getAllPrices(GetAllPricesRequest.getDefaultInstance()).response();
+
+        assertThat(response.getPricesList()).extracting(com.example.priceservice.grpc.Price::getInstrumentId)
+                .containsExactly("AAPL", "AMZN", "GOOG", "MSFT", "TSLA");
+        assertThat(response.getSize()).isEqualTo(5);
+        assertThat(response.getTotalCount()).isEqualTo(5);
+        assertThat(response.getNextPageToken()).isEmpty();
+    }
+
+    /**
+     * Following the tokens lists every price once, in instrument order, and the last page has no token.
+     * Continuation pages without size use the default size and do not count the prices.
+     * <p>
+     * Переход по токенам перечисляет каждую цену один раз в порядке инструментов, у последней страницы нет токена.
+     * Страницы продолжения без размера используют размер по умолчанию и не подсчитывают цены.
+     */
+    @Test
+    void continuesAfterNextPageToken() {
+        List<String> instruments = new ArrayList<>();
+        GetAllPricesResponse response = getAllPrices(GetAllPricesRequest.newBuilder().setSize(2).build()).response();
+        assertThat(response.getTotalCount()).isEqualTo(5);
+        response.getPricesList().forEach(price -> instruments.add(price.getInstrumentId()));
+        int pages = 1;
+        while (!response.getNextPageToken().isEmpty()) {
+            response = getAllPrices(GetAllPricesRequest.newBuilder().setPageToken(response.getNextPageToken()).build())
+                    .response();
+            assertThat(response.getTotalCount()).isZero();
+            response.getPricesList().forEach(price -> instruments.add(price.getInstrumentId()));
+            pages++;
+        }
+
+        assertThat(instruments).containsExactly("AAPL", "AMZN", "GOOG", "MSFT", "TSLA");
+        assertThat(pages).isEqualTo(3);
+    }
+
+    /**
+     * A token that cannot be decoded is rejected as an invalid argument.
+     * <p>
+     * Токен, который не удается декодировать, отклоняется как неверный аргумент.
+     */
+    @Test
+    void rejectsInvalidPageToken() {
+        Result result = getAllPrices(GetAllPricesRequest.newBuilder().setPageToken("not a token!").build());
+
+        assertThat(result.responses()).isEmpty();
+        assertThat(Status.fromThrowable(result.error()).getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+    private Result getAllPrices(GetAllPricesRequest request) {
+        List<GetAllPricesResponse> responses = new ArrayList<>();
+        Throwable[] error = new Throwable[1];
+        controller.getAllPrices(request, new StreamObserver<>() {
+            @Override
+            public void onNext(GetAllPricesResponse value) {
+                responses.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error[0] = t;
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+        return new Result(responses, error[0]);
+    }
+
+    private record Result(List<GetAllPricesResponse> responses, Throwable error) {
+        GetAllPricesResponse response() {
+            assertThat(error).isNull();
+            assertThat(responses).hasSize(1);
+            return responses.get(0);
+        }
+    }
+}
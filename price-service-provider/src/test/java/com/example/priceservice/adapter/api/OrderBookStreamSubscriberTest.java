@@ -0,0 +1,116 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.grpc.LevelChangeType;
+import com.example.priceservice.grpc.OrderBookUpdate;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the gRPC order book stream subscriber.
+ * <p>
+ * Модульные тесты для подписчика потока стакана заявок gRPC.
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderBookStreamSubscriberTest {
+
+    @Mock
+    private ServerCallStreamObserver<OrderBookUpdate> observer;
+
+    private final AtomicReference<OrderBook> current = new AtomicReference<>();
+
+    private OrderBookStreamSubscriber subscriber;
+    private Runnable onReady;
+
+    @BeforeEach
+    void setUp() {
+        subscriber = new OrderBookStreamSubscriber(observer, () -> Optional.ofNullable(current.get()));
+        ArgumentCaptor<Runnable> onReadyCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(observer).setOnReadyHandler(onReadyCaptor.capture());
+        onReady = onReadyCaptor.getValue();
+    }
+
+    /**
+     * The first message is a snapshot and later ones carry only the changed levels.
+     * <p>
+     * Первое сообщение является снимком, а последующие содержат только измененные уровни.
+     */
+    @Test
+    void sendsSnapshotThenDiffs() {
+        when(observer.isReady()).thenReturn(true);
+        current.set(book(1, "100", "1"));
+        subscriber.start();
+
+        OrderBook changed = book(2, "100", "3");
+        current.set(changed);
+        subscriber.onEvent(changed);
+
+        ArgumentCaptor<OrderBookUpdate> sent = ArgumentCaptor.forClass(OrderBookUpdate.class);
+        verify(observer, times(2)).onNext(sent.capture());
+        assertThat(sent.getAllValues().get(0).getSnapshot()).isTrue();
+        assertThat(sent.getAllValues().get(0).getBidsList()).hasSize(1);
+        OrderBookUpdate diff = sent.getAllValues().get(1);
+        assertThat(diff.getSnapshot()).isFalse();
+        assertThat(diff.getSequence()).isEqualTo(2);
+        assertThat(diff.getChangesList()).singleElement()
+                .satisfies(change -> {
+                    assertThat(change.getType()).isEqualTo(LevelChangeType.LEVEL_CHANGED);
+                    assertThat(change.getVolume()).isEqualTo(3.0);
+                });
+    }
+
+    /**
+     * While the client is not ready saved books are folded into one diff against the last book sent.
+     * <p>
+     * Пока клиент не готов, сохраненные стаканы объединяются в один дифф относительно последнего отправленного.
+     */
+    @Test
+    void foldsBooksSavedWhileClientIsNotReady() {
+        when(observer.isReady()).thenReturn(true);
+        current.set(book(1, "100", "1"));
+        subscriber.start();
+
+        when(observer.isReady()).thenReturn(false);
+        for (int sequence = 2; sequence <= 4; sequence++) {
+            OrderBook book = book(sequence, "100", String.valueOf(sequence));
+            current.set(book);
+            subscriber.onEvent(book);
+        }
+        verify(observer, times(1)).onNext(any());
+
+        when(observer.isReady()).thenReturn(true);
+        onReady.run();
+
+        ArgumentCaptor<OrderBookUpdate> sent = ArgumentCaptor.forClass(OrderBookUpdate.class);
+        verify(observer, times(2)).onNext(sent.capture());
+        OrderBookUpdate diff = sent.getAllValues().get(1);
+        assertThat(diff.getSequence()).isEqualTo(4);
+        assertThat(diff.getChangesList()).singleElement()
+                .satisfies(change -> assertThat(change.getVolume()).isEqualTo(4.0));
+    }
+
+    private static OrderBook book(long sequence, String bidPrice, String bidVolume) {
+        return OrderBook.builder()
+                .instrumentId("AAPL")
+                .bidOrders(List.of(new OrderBook.Order(new BigDecimal(bidPrice), new BigDecimal(bidVolume))))
+                .askOrders(List.of())
+                .lastUpdated(Instant.now())
+                .sequence(sequence)
+                .build();
+    }
+}
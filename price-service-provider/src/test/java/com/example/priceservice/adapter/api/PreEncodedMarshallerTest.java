@@ -0,0 +1,97 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.grpc.PriceUpdate;
+import com.example.priceservice.grpc.SubscriptionUpdate;
+import com.example.priceservice.grpc.UpdateType;
+import io.grpc.Drainable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for writing pre-encoded price updates to gRPC streams.
+ * <p>
+ * Модульные тесты для записи заранее сериализованных обновлений цен в потоки gRPC.
+ */
+class PreEncodedMarshallerTest {
+
+    private final PreEncodedMarshaller<EncodedSubscriptionUpdate> marshaller =
+            new PreEncodedMarshaller<>(EncodedSubscriptionUpdate::toByteArray, EncodedSubscriptionUpdate::parse);
+
+    /**
+     * An event carrying the payload attached by the outbox is not encoded again, every call shares its bytes.
+     * <p>
+     * Событие с сериализованной формой, приложенной outbox, не сериализуется повторно, все обращения используют её байты.
+     */
+    @Test
+    void reusesAttachedPayload() {
+        PriceEvent unencoded = PriceEvent.updated(price("AAPL", "175.50"));
+        PriceEvent event = unencoded.withPayload(EncodedPriceUpdate.encode(unencoded).toByteArray());
+
+        assertThat(EncodedPriceUpdate.of(event).toByteArray()).isSameAs(event.getPayload());
+        assertThat(EncodedPriceUpdate.of(event).toByteArray()).isSameAs(EncodedPriceUpdate.of(event).toByteArray());
+        PriceUpdate decoded = EncodedPriceUpdate.of(event).toPriceUpdate();
+        assertThat(decoded.getUpdateType()).isEqualTo(UpdateType.UPDATED);
+        assertThat(decoded.getPrice().getInstrumentId()).isEqualTo("AAPL");
+        assertThat(decoded.getPrice().getBidPrice()).isEqualTo(175.5);
+    }
+
+    /**
+     * A subscription update built from the shared bytes has the wire format of the generated message.
+     * <p>
+     * Обновление подписки из общих байтов имеет тот же формат, что и сгенерированное сообщение.
+     */
+    @Test
+    void writesSubscriptionUpdateInGeneratedWireFormat() throws Exception {
+        PriceEvent event = PriceEvent.updated(price("MSFT", "330.25"));
+        SubscriptionUpdate expected = SubscriptionUpdate.newBuilder()
+                .setPriceUpdate(EncodedPriceUpdate.of(event).toPriceUpdate())
+                .addAllSubscriptionIds(List.of("tech", "watchlist"))
+                .build();
+
+        InputStream stream = marshaller.stream(
+                EncodedSubscriptionUpdate.of(EncodedPriceUpdate.of(event), List.of("tech", "watchlist")));
+        assertThat(stream.available()).isEqualTo(expected.getSerializedSize());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int drained = ((Drainable) stream).drainTo(out);
+
+        assertThat(drained).isEqualTo(expected.getSerializedSize());
+        assertThat(out.toByteArray()).isEqualTo(expected.toByteArray());
+        assertThat(SubscriptionUpdate.parseFrom(out.toByteArray())).isEqualTo(expected);
+    }
+
+    /**
+     * Deletions carry only the instrument, the DELETED type and the time of the deletion.
+     * <p>
+     * Удаления содержат только инструмент, тип DELETED и время удаления.
+     */
+    @Test
+    void encodesDeletion() {
+        PriceEvent event = PriceEvent.deleted("AAPL");
+
+        assertThat(EncodedPriceUpdate.of(event).isDeletion()).isTrue();
+        assertThat(EncodedPriceUpdate.of(event).toPriceUpdate().getUpdateType()).isEqualTo(UpdateType.DELETED);
+        assertThat(EncodedPriceUpdate.of(event).toPriceUpdate().getPrice().getInstrumentId()).isEqualTo("AAPL");
+        assertThat(EncodedPriceUpdate.of(event).toPriceUpdate().getPrice().getLastUpdated().getSeconds())
+                .isEqualTo(event.getPrice().getLastUpdated().getEpochSecond());
+        assertThat(EncodedPriceUpdate.of(event).toPriceUpdate().getPrice().getBidPrice()).isZero();
+    }
+
+    private static Price price(String instrumentId, String bid) {
+        return Price.builder()
+                .instrumentId(instrumentId)
+                .bidPrice(new BigDecimal(bid))
+                .askPrice(new BigDecimal(bid).add(BigDecimal.ONE))
+                .lastUpdated(Instant.now())
+                .build();
+    }
+}
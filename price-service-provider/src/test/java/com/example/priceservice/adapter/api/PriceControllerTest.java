@@ -0,0 +1,93 @@
+package com.example.priceservice.adapter.api;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests of the batch price endpoint against the test database.
+ * <p>
+ * Тесты пакетного эндпоинта цен на тестовой базе данных.
+ */
+@SpringBootTest(properties = "price.batch.max-size=3")
+@AutoConfigureMockMvc
+class PriceControllerTest {
+
+    private static final String BATCH = """
+            [
+              {"instrumentId": "AAPL", "bidPrice": 175.50, "askPrice": 175.75, "lastUpdated": "2023-01-01T12:00:00.000Z"},
+              {"instrumentId": "MSFT", "bidPrice": 330.25, "askPrice": 330.50, "lastUpdated": "2023-01-01T12:00:00.000Z"},
+              {"instrumentId": "AAPL", "bidPrice": 176.00, "askPrice": 176.25, "lastUpdated": "2023-01-01T12:00:00.000Z"}
+            ]
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM prices");
+        jdbcTemplate.update("DELETE FROM price_outbox");
+    }
+
+    /**
+     * The batch is saved in one request, an instrument given twice keeps its last price, and one outbox event
+     * is recorded per saved price.
+     * <p>
+     * Пакет сохраняется одним запросом, инструмент, указанный дважды, получает последнюю цену,
+     * и для каждой сохранённой цены записывается одно событие outbox.
+     */
+    @Test
+    void savesPricesInBatch() throws Exception {
+        mockMvc.perform(post("/prices").with(httpBasic("admin", "password"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BATCH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].instrumentId").value("AAPL"))
+                .andExpect(jsonPath("$[0].bidPrice").value(176.00))
+                .andExpect(jsonPath("$[1].instrumentId").value("MSFT"));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT bid_price FROM prices WHERE instrument_id = 'AAPL'",
+                BigDecimal.class)).isEqualByComparingTo("176.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM price_outbox", Integer.class)).isEqualTo(2);
+    }
+
+    /**
+     * Batches require authentication and are rejected above the configured size.
+     * <p>
+     * Пакеты требуют аутентификации и отклоняются сверх настроенного размера.
+     */
+    @Test
+    void rejectsUnauthenticatedAndOversizedBatches() throws Exception {
+        mockMvc.perform(post("/prices")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BATCH))
+                .andExpect(status().isUnauthorized());
+
+        String price = "{\"instrumentId\": \"AAPL\", \"bidPrice\": 1, \"askPrice\": 2, \"lastUpdated\": \"2023-01-01T12:00:00.000Z\"}";
+        String oversized = "[" + String.join(",", Collections.nCopies(4, price)) + "]";
+        mockMvc.perform(post("/prices").with(httpBasic("admin", "password"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(oversized))
+                .andExpect(status().isBadRequest());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM prices", Integer.class)).isZero();
+    }
+}
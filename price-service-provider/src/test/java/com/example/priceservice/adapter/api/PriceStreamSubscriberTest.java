@@ -0,0 +1,160 @@
+package com.example.priceservice.adapter.api;
+
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.grpc.PriceUpdate;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the conflating gRPC price stream subscriber.
+ * <p>
+ * Модульные тесты для подписчика потока цен gRPC с объединением обновлений.
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceStreamSubscriberTest {
+
+    @Mock
+    private ServerCallStreamObserver<PriceUpdate> observer;
+
+    private final Counter conflatedTotal = Counter.builder("price.stream.conflated").register(new SimpleMeterRegistry());
+
+    private final Queue<Runnable> drainTasks = new ArrayDeque<>();
+
+    private PriceStreamSubscriber<PriceUpdate> subscriber;
+    private Runnable onReady;
+
+    @BeforeEach
+    void setUp() {
+        subscriber = new PriceStreamSubscriber<>("test", observer, PriceStreamSubscriberTest::encode, conflatedTotal,
+                drainTasks::add);
+        ArgumentCaptor<Runnable> onReadyCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(observer).setOnReadyHandler(onReadyCaptor.capture());
+        onReady = onReadyCaptor.getValue();
+    }
+
+    /**
+     * While the client is not ready only the latest update per instrument is kept and sent once it is.
+     * <p>
+     * Пока клиент не готов, хранится только последнее обновление по инструменту, которое отправляется после готовности.
+     */
+    @Test
+    void conflatesUpdatesWhileClientIsNotReady() {
+        when(observer.isReady()).thenReturn(false);
+        subscriber.beginSnapshot(List.of("AAPL", "MSFT"));
+        subscriber.completeSnapshot(List.of("AAPL", "MSFT"), List.of(price("AAPL", "175.00")));
+        subscriber.onEvent(PriceEvent.updated(price("AAPL", "175.10")));
+        subscriber.onEvent(PriceEvent.updated(price("MSFT", "330.00")));
+        subscriber.onEvent(PriceEvent.updated(price("AAPL", "175.20")));
+        runDrainTasks();
+        verify(observer, never()).onNext(any());
+
+        when(observer.isReady()).thenReturn(true);
+        onReady.run();
+
+        ArgumentCaptor<PriceUpdate> sent = ArgumentCaptor.forClass(PriceUpdate.class);
+        verify(observer, times(2)).onNext(sent.capture());
+        assertThat(sent.getAllValues())
+                .extracting(update -> update.getPrice().getInstrumentId() + "@" + update.getPrice().getBidPrice())
+                .containsExactly("AAPL@175.2", "MSFT@330.0");
+
+        PriceStreamStats stats = subscriber.stats();
+        assertThat(stats.getConflated()).isEqualTo(2);
+        assertThat(stats.getSent()).isEqualTo(2);
+        assertThat(stats.getPending()).isZero();
+        assertThat(conflatedTotal.count()).isEqualTo(2);
+    }
+
+    /**
+     * Updates received before the snapshot win over the older snapshot values.
+     * <p>
+     * Обновления, полученные до снимка, имеют приоритет над более старыми значениями снимка.
+     */
+    @Test
+    void holdsBackUpdatesUntilSnapshotIsQueued() {
+        when(observer.isReady()).thenReturn(true);
+        subscriber.beginSnapshot(List.of("AAPL"));
+        subscriber.onEvent(PriceEvent.updated(price("AAPL", "176.00")));
+        verify(observer, never()).onNext(any());
+
+        subscriber.completeSnapshot(List.of("AAPL"), List.of(price("AAPL", "175.00")));
+        runDrainTasks();
+
+        ArgumentCaptor<PriceUpdate> sent = ArgumentCaptor.forClass(PriceUpdate.class);
+        verify(observer).onNext(sent.capture());
+        assertThat(sent.getValue().getPrice().getBidPrice()).isEqualTo(176.00);
+    }
+
+    /**
+     * Publishing only enqueues, the updates are written by a single drain task on the drain executor.
+     * <p>
+     * Публикация только ставит обновления в очередь, их записывает одна задача на исполнителе отправки.
+     */
+    @Test
+    void writesOnDrainExecutorOnly() {
+        when(observer.isReady()).thenReturn(true);
+        subscriber.onEvent(PriceEvent.updated(price("AAPL", "175.10")));
+        subscriber.onEvent(PriceEvent.updated(price("MSFT", "330.00")));
+        verify(observer, never()).onNext(any());
+        assertThat(drainTasks).hasSize(1);
+
+        runDrainTasks();
+        verify(observer, times(2)).onNext(any());
+        assertThat(subscriber.stats().getPending()).isZero();
+    }
+
+    /**
+     * Updates of unsubscribed instruments are dropped from the queue.
+     * <p>
+     * Обновления инструментов, от которых отписались, удаляются из очереди.
+     */
+    @Test
+    void discardsUpdatesOfReleasedInstruments() {
+        when(observer.isReady()).thenReturn(false);
+        subscriber.onEvent(PriceEvent.updated(price("AAPL", "176.00")));
+        subscriber.discard(List.of("AAPL"));
+
+        assertThat(subscriber.stats().getPending()).isZero();
+    }
+
+    private void runDrainTasks() {
+        Runnable task;
+        while ((task = drainTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static PriceUpdate encode(PriceEvent event) {
+        return PriceUpdate.newBuilder()
+                .setPrice(com.example.priceservice.grpc.Price.newBuilder()
+                        .setInstrumentId(event.getInstrumentId())
+                        .setBidPrice(event.getPrice().getBidPrice().doubleValue()))
+                .build();
+    }
+
+    private static Price price(String instrumentId, String bid) {
+        return Price.builder()
+                .instrumentId(instrumentId)
+                .bidPrice(new BigDecimal(bid))
+                .askPrice(new BigDecimal(bid).add(BigDecimal.ONE))
+                .lastUpdated(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.priceservice.adapter.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.NotLeaderOrFollowerException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the asynchronous Kafka publisher.
+ * <p>
+ * Модульные тесты для асинхронного издателя Kafka.
+ */
+@ExtendWith(MockitoExtension.class)
+class KafkaPublisherTest {
+
+    @Mock
+    private KafkaTemplate<String, String> template;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final KafkaPublisher publisher = new KafkaPublisher(meterRegistry, 1);
+
+    /**
+     * A failed send is not resent, so it cannot overtake later records of the same key; the future fails instead.
+     * <p>
+     * Неудачная отправка не повторяется, чтобы не обогнать более поздние записи того же ключа; вместо этого
+     * future завершается ошибкой.
+     */
+    @Test
+    void failsWithoutResending() {
+        when(template.send("prices", "AAPL", "v1"))
+                .thenReturn(CompletableFuture.failedFuture(new NotLeaderOrFollowerException("moved")));
+
+        CompletableFuture<SendResult<String, String>> result = publisher.send(template, "prices", "AAPL", "v1");
+
+        assertThat(result).isCompletedExceptionally();
+        verify(template, times(1)).send("prices", "AAPL", "v1");
+        assertThat(meterRegistry.get("price.kafka.send").tag("outcome", "failure").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("price.kafka.send.in-flight").tag("topic", "prices").gauge().value()).isZero();
+    }
+
+    /**
+     * Sends beyond the in-flight limit fail immediately instead of blocking the caller.
+     * <p>
+     * Отправки сверх лимита незавершенных записей сразу завершаются ошибкой, не блокируя вызывающего.
+     */
+    @Test
+    void rejectsSendsBeyondInFlightLimit() {
+        when(template.send("prices", "AAPL", "v1")).thenReturn(new CompletableFuture<>());
+
+        publisher.send(template, "prices", "AAPL", "v1");
+        CompletableFuture<SendResult<String, String>> rejected = publisher.send(template, "prices", "MSFT", "v2");
+
+        assertThat(rejected).isCompletedExceptionally();
+        verify(template, never()).send("prices", "MSFT", "v2");
+        assertThat(meterRegistry.get("price.kafka.send.rejected").tag("topic", "prices").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.priceservice.adapter.kafka;
+
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.domain.port.PriceEventOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests of the price outbox relay against the test database, with the Kafka producers mocked.
+ * <p>
+ * Тесты ретранслятора исходящих событий цен на тестовой базе данных с замоканными продюсерами Kafka.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "price.outbox.relay.enabled=true",
+        "price.outbox.relay.batch-size=2",
+        // Relayed only when the tests call the relay
+        "price.outbox.relay.poll-interval-ms=3600000",
+})
+class PriceOutboxRelayTest {
+
+    @MockBean
+    private PriceKafkaProducer priceKafkaProducer;
+    @MockBean
+    private ProtoPriceKafkaProducer protoPriceKafkaProducer;
+    @MockBean
+    private LatestPriceKafkaProducer latestPriceKafkaProducer;
+
+    @Autowired
+    private PriceOutboxRelay relay;
+    @Autowired
+    private PriceEventOutbox outbox;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM price_outbox");
+        CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
+        when(priceKafkaProducer.sendPriceUpdates(anyList())).thenReturn(acknowledged);
+        when(protoPriceKafkaProducer.sendPriceUpdates(anyList())).thenReturn(acknowledged);
+        when(protoPriceKafkaProducer.sendPriceDeltas(anyList())).thenReturn(acknowledged);
+        when(latestPriceKafkaProducer.sendLatest(anyList())).thenReturn(acknowledged);
+    }
+
+    /**
+     * Entries are sent to every topic in batches, in outbox order, and deleted once acknowledged.
+     * Deletions reach every protobuf topic, the JSON topic only carries updates.
+     * <p>
+     * Записи отправляются во все топики пакетами в порядке outbox и удаляются после подтверждения.
+     * Удаления попадают во все protobuf топики, JSON топик содержит только обновления.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void relaysBatchesToAllTopicsAndDeletesThem() {
+        append(PriceEvent.updated(price("AAPL", "175.50", 1)),
+                PriceEvent.updated(price("MSFT", "330.25", 1)),
+                PriceEvent.deleted("AAPL"));
+
+        relay.relay();
+
+        ArgumentCaptor<List<EncodedPriceUpdate>> latest = ArgumentCaptor.forClass(List.class);
+        verify(latestPriceKafkaProducer, times(2)).sendLatest(latest.capture());
+        assertThat(latest.getAllValues()).extracting(List::size).containsExactly(2, 1);
+        assertThat(latest.getAllValues().get(1).get(0).isDeletion()).isTrue();
+
+        ArgumentCaptor<List<PriceEvent>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(protoPriceKafkaProducer, times(2)).sendPriceDeltas(deltas.capture());
+        assertThat(deltas.getAllValues().stream().flatMap(List::stream))
+                .extracting(event -> event.getInstrumentId() + ":" + event.getType())
+                .containsExactly("AAPL:UPDATED", "MSFT:UPDATED", "AAPL:DELETED");
+
+        ArgumentCaptor<List<EncodedPriceUpdate>> proto = ArgumentCaptor.forClass(List.class);
+        verify(protoPriceKafkaProducer, times(2)).sendPriceUpdates(proto.capture());
+        assertThat(proto.getAllValues().stream().flatMap(List::stream))
+                .extracting(update -> update.getInstrumentId() + ":" + update.isDeletion())
+                .containsExactly("AAPL:false", "MSFT:false", "AAPL:true");
+
+        ArgumentCaptor<List<Price>> json = ArgumentCaptor.forClass(List.class);
+        verify(priceKafkaProducer, times(2)).sendPriceUpdates(json.capture());
+        assertThat(json.getAllValues().stream().flatMap(List::stream))
+                .extracting(Price::getInstrumentId)
+                .containsExactly("AAPL", "MSFT");
+        assertThat(outboxSize()).isZero();
+    }
+
+    /**
+     * A batch whose sends are not all acknowledged stays in the outbox for the next round.
+     * <p>
+     * Пакет, отправки которого подтверждены не полностью, остается в outbox до следующего раунда.
+     */
+    @Test
+    void keepsEntriesWhenASendFails() {
+        when(latestPriceKafkaProducer.sendLatest(anyList()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        append(PriceEvent.updated(price("AAPL", "175.50", 1)));
+
+        relay.relay();
+
+        verify(protoPriceKafkaProducer).sendPriceUpdates(anyList());
+        assertThat(outboxSize()).isEqualTo(1);
+    }
+
+    /**
+     * While another relay holds the lock nothing is sent, so the events of an instrument cannot be interleaved.
+     * <p>
+     * Пока другой ретранслятор держит блокировку, ничего не отправляется, и события инструмента не перемешиваются.
+     */
+    @Test
+    void skipsRoundsWhileAnotherRelayHoldsTheLock() throws Exception {
+        append(PriceEvent.updated(price("AAPL", "175.50", 1)));
+
+        try (Connection otherRelay = dataSource.getConnection()) {
+            otherRelay.setAutoCommit(false);
+            try (PreparedStatement lock = otherRelay.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+                lock.setLong(1, PriceOutboxRelay.RELAY_LOCK_KEY);
+                lock.execute();
+            }
+
+            relay.relay();
+
+            verify(latestPriceKafkaProducer, never()).sendLatest(any());
+            assertThat(outboxSize()).isEqualTo(1);
+            otherRelay.rollback();
+        }
+
+        relay.relay();
+        assertThat(outboxSize()).isZero();
+    }
+
+    private void append(PriceEvent... events) {
+        transactionTemplate.executeWithoutResult(status -> outbox.append(List.of(events)));
+    }
+
+    private int outboxSize() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM price_outbox", Integer.class);
+    }
+
+    private static Price price(String instrumentId, String bid, long sequence) {
+        return Price.builder()
+                .instrumentId(instrumentId)
+                .bidPrice(new BigDecimal(bid))
+                .askPrice(new BigDecimal(bid).add(BigDecimal.ONE))
+                .lastUpdated(Instant.now())
+                .sequence(sequence)
+                .build();
+    }
+}
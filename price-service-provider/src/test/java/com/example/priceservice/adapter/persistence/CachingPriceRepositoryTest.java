@@ -0,0 +1,165 @@
+package com.example.priceservice.adapter.persistence;
+
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.port.PriceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the write-through price cache.
+ * <p>
+ * Модульные тесты для кэша цен со сквозной записью.
+ */
+@ExtendWith(MockitoExtension.class)
+class CachingPriceRepositoryTest {
+
+    @Mock
+    private PriceRepository delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * In unbounded mode reads are served from memory after the initial load.
+     * <p>
+     * В неограниченном режиме чтения обслуживаются из памяти после начальной загрузки.
+     */
+    @Test
+    void servesReadsFromMemoryAfterLoad() {
+        when(delegate.findAll()).thenReturn(List.of(price("AAPL", "175.50"), price("MSFT", "330.25")));
+        var cache = new CachingPriceRepository(delegate, 0, Duration.ZERO, meterRegistry);
+        cache.load();
+
+        assertThat(cache.findByInstrumentId("AAPL")).map(Price::getBidPrice).contains(new BigDecimal("175.50"));
+        assertThat(cache.findByInstrumentId("UNKNOWN")).isEmpty();
+        assertThat(cache.findAll()).extracting(Price::getInstrumentId).containsExactly("AAPL", "MSFT");
+        verify(delegate, times(1)).findAll();
+        verify(delegate, never()).findByInstrumentId(any());
+        assertThat(meterRegistry.get("price.cache.gets").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("price.cache.gets").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Saves and deletes update the cached values in place.
+     * <p>
+     * Сохранение и удаление обновляют значения в кэше на месте.
+     */
+    @Test
+    void writesUpdateCacheInPlace() {
+        when(delegate.findAll()).thenReturn(List.of());
+        var cache = new CachingPriceRepository(delegate, 0, Duration.ZERO, meterRegistry);
+        cache.load();
+
+        Price saved = price("AAPL", "176.00");
+        when(delegate.save(any())).thenReturn(saved);
+        when(delegate.deleteByInstrumentId("AAPL")).thenReturn(true);
+
+        cache.save(saved);
+        assertThat(cache.findByInstrumentId("AAPL")).contains(saved);
+        assertThat(cache.deleteByInstrumentId("AAPL")).isTrue();
+        assertThat(cache.findByInstrumentId("AAPL")).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * In bounded mode misses read through and the least recently used prices are evicted.
+     * <p>
+     * В ограниченном режиме промахи читаются из делегата, а давно неиспользуемые цены вытесняются.
+     */
+    @Test
+    void boundedModeReadsThroughOnMiss() {
+        var cache = new CachingPriceRepository(delegate, 100, Duration.ZERO, meterRegistry);
+        cache.load();
+        when(delegate.findByInstrumentId("AAPL")).thenReturn(Optional.of(price("AAPL", "175.50")));
+
+        assertThat(cache.findByInstrumentId("AAPL")).isPresent();
+        assertThat(cache.findByInstrumentId("AAPL")).isPresent();
+        verify(delegate, times(1)).findByInstrumentId("AAPL");
+        verify(delegate, never()).findAll();
+    }
+
+    /**
+     * A refresh picks up prices saved and deleted by other instances.
+     * <p>
+     * Обновление подхватывает цены, сохранённые и удалённые другими экземплярами.
+     */
+    @Test
+    void refreshPicksUpChangesOfOtherInstances() {
+        when(delegate.findAll()).thenReturn(List.of(price("AAPL", "175.50"), price("MSFT", "330.25")));
+        var cache = new CachingPriceRepository(delegate, 0, Duration.ZERO, meterRegistry);
+        cache.load();
+
+        Price changed = price("AAPL", "176.00");
+        changed.setSequence(2);
+        when(delegate.findAll()).thenReturn(List.of(changed, price("GOOG", "140.10")));
+        cache.refresh();
+
+        assertThat(cache.findByInstrumentId("AAPL")).contains(changed);
+        assertThat(cache.findAll()).extracting(Price::getInstrumentId).containsExactly("AAPL", "GOOG");
+    }
+
+    /**
+     * A price with a lower sequence never replaces the cached one, whatever its update time.
+     * <p>
+     * Цена с меньшим номером последовательности не заменяет закэшированную, независимо от времени обновления.
+     */
+    @Test
+    void keepsPriceWithHigherSequence() {
+        when(delegate.findAll()).thenReturn(List.of());
+        var cache = new CachingPriceRepository(delegate, 0, Duration.ZERO, meterRegistry);
+        cache.load();
+
+        Price current = price("AAPL", "176.00");
+        current.setSequence(2);
+        Price stale = price("AAPL", "175.50");
+        stale.setSequence(1);
+        stale.setLastUpdated(current.getLastUpdated().plusSeconds(60));
+        when(delegate.save(any())).then(invocation -> invocation.getArgument(0));
+
+        cache.save(current);
+        cache.save(stale);
+
+        assertThat(cache.findByInstrumentId("AAPL")).contains(current);
+    }
+
+    /**
+     * A read-through that raced with a deletion does not put the deleted price back into the cache.
+     * <p>
+     * Чтение из делегата, совпавшее по времени с удалением, не возвращает удалённую цену в кэш.
+     */
+    @Test
+    void boundedModeDoesNotCachePriceDeletedDuringReadThrough() {
+        var cache = new CachingPriceRepository(delegate, 100, Duration.ZERO, meterRegistry);
+        cache.load();
+        when(delegate.deleteByInstrumentId("AAPL")).thenReturn(true);
+        when(delegate.findByInstrumentId("AAPL")).then(invocation -> {
+            cache.deleteByInstrumentId("AAPL");
+            return Optional.of(price("AAPL", "175.50"));
+        }).thenReturn(Optional.empty());
+
+        assertThat(cache.findByInstrumentId("AAPL")).isPresent();
+        assertThat(cache.findByInstrumentId("AAPL")).isEmpty();
+        verify(delegate, times(2)).findByInstrumentId("AAPL");
+    }
+
+    private static Price price(String instrumentId, String bid) {
+        return Price.builder()
+                .instrumentId(instrumentId)
+                .bidPrice(new BigDecimal(bid))
+                .askPrice(new BigDecimal(bid).add(BigDecimal.ONE))
+                .lastUpdated(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.priceservice.adapter.persistence;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.Price;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Tests of the JPA repository against the test database.
+ * <p>
+ * Тесты JPA репозитория на тестовой базе данных.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class JpaPriceRepositoryTest {
+
+    @Autowired
+    private JpaPriceRepository repository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM order_books");
+        jdbcTemplate.update("DELETE FROM prices");
+    }
+
+    /**
+     * A batch inserts new prices, updates existing ones and returns the sequence the database assigned to each.
+     * <p>
+     * Пакет вставляет новые цены, обновляет существующие и возвращает последовательность, назначенную базой каждой.
+     */
+    @Test
+    void savesPricesInBatch() {
+        repository.save(price("AAPL", "175.50"));
+
+        List<Price> saved = repository.saveAll(List.of(price("AAPL", "176.00"), price("MSFT", "330.25")));
+
+        assertThat(saved).extracting(Price::getInstrumentId, Price::getSequence)
+                .containsExactly(tuple("AAPL", 2L), tuple("MSFT", 1L));
+        assertThat(saved).allSatisfy(price -> assertThat(price.getLastUpdated()).isNotNull());
+        assertThat(repository.findByInstrumentId("AAPL")).get()
+                .satisfies(price -> assertThat(price.getBidPrice()).isEqualByComparingTo("176.00"))
+                .extracting(Price::getSequence).isEqualTo(2L);
+        assertThat(repository.findByInstrumentId("MSFT")).get()
+                .extracting(Price::getSequence).isEqualTo(1L);
+    }
+
+    /**
+     * An instrument occurring twice in one batch ends with the last price, and both entries report
+     * the sequence read back after the batch.
+     * <p>
+     * Инструмент, встречающийся в пакете дважды, получает последнюю цену, и обе записи содержат
+     * последовательность, прочитанную после пакета.
+     */
+    @Test
+    void keepsLastPriceOfDuplicateInstrument() {
+        List<Price> saved = repository.saveAll(List.of(price("AAPL", "175.50"), price("AAPL", "176.00")));
+
+        assertThat(saved).extracting(Price::getSequence).containsExactly(2L, 2L);
+        assertThat(repository.findByInstrumentId("AAPL")).get()
+                .satisfies(price -> assertThat(price.getBidPrice()).isEqualByComparingTo("176.00"));
+    }
+
+    /**
+     * Saving a book keeps the rows of unchanged orders, updates changed volumes, deletes missing orders
+     * and inserts new ones, and returns the book sorted from the best price on each side.
+     * <p>
+     * Сохранение стакана сохраняет строки неизменных заявок, обновляет изменённые объёмы, удаляет отсутствующие
+     * заявки и вставляет новые, и возвращает стакан, отсортированный от лучшей цены на каждой стороне.
+     */
+    @Test
+    void savesOnlyChangedOrders() {
+        repository.saveOrderBook(book(List.of(order("100", "1"), order("99", "2"), order("98", "3")),
+                List.of(order("101", "4"))));
+        Map<String, Long> idsBefore = orderIds();
+
+        OrderBook saved = repository.saveOrderBook(book(
+                List.of(order("97", "5"), order("99", "20"), order("100", "1")),
+                List.of(order("102", "6"), order("101", "4"))));
+
+        assertThat(saved.getSequence()).isEqualTo(2);
+        assertThat(saved.getBidOrders()).extracting(OrderBook.Order::getPrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("100"), new BigDecimal("99"), new BigDecimal("97"));
+        assertThat(saved.getAskOrders()).extracting(OrderBook.Order::getPrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("101"), new BigDecimal("102"));
+        Map<String, Long> idsAfter = orderIds();
+        assertThat(idsAfter).containsKeys("BID:100.0000", "BID:99.0000", "BID:97.0000", "ASK:101.0000", "ASK:102.0000")
+                .doesNotContainKey("BID:98.0000");
+        assertThat(idsAfter.get("BID:100.0000")).isEqualTo(idsBefore.get("BID:100.0000"));
+        assertThat(idsAfter.get("BID:99.0000")).isEqualTo(idsBefore.get("BID:99.0000"));
+        assertThat(idsAfter.get("ASK:101.0000")).isEqualTo(idsBefore.get("ASK:101.0000"));
+        assertThat(jdbcTemplate.queryForObject("SELECT volume FROM orders WHERE order_type = 'BID' AND price = 99",
+                BigDecimal.class)).isEqualByComparingTo("20");
+        assertThat(repository.findOrderBookByInstrumentId("AAPL")).get()
+                .extracting(OrderBook::getSequence).isEqualTo(2L);
+    }
+
+    /**
+     * Orders at the same price on one side are kept as separate rows and matched one by one.
+     * <p>
+     * Заявки по одной цене на одной стороне хранятся отдельными строками и сопоставляются по одной.
+     */
+    @Test
+    void keepsOrdersWithDuplicatePrices() {
+        repository.saveOrderBook(book(List.of(order("100", "1"), order("100", "2")), List.of()));
+        assertThat(orderCount()).isEqualTo(2);
+
+        OrderBook saved = repository.saveOrderBook(book(List.of(order("100", "2")), List.of()));
+
+        assertThat(saved.getBidOrders()).extracting(OrderBook.Order::getVolume)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("2"));
+        assertThat(orderCount()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT volume FROM orders", BigDecimal.class)).isEqualByComparingTo("2");
+    }
+
+    /**
+     * A book stored in packed mode is written as rows by the next save in row mode and loses its packed levels.
+     * <p>
+     * Стакан, сохранённый в упакованном виде, записывается строками при следующем сохранении в строковом режиме
+     * и теряет упакованные уровни.
+     */
+    @Test
+    void switchesPackedBookToRows() {
+        jdbcTemplate.update("INSERT INTO order_books (instrument_id, last_updated, sequence_number, packed_levels) "
+                        + "VALUES ('AAPL', ?, 3, ?)", Instant.now().atOffset(ZoneOffset.UTC),
+                PackedOrderBookLevels.encode(List.of(order("100", "1")), List.of(order("101", "2"))));
+
+        OrderBook saved = repository.saveOrderBook(book(List.of(order("100", "1")), List.of(order("101", "2"))));
+
+        assertThat(saved.getSequence()).isEqualTo(4);
+        assertThat(orderCount()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT packed_levels IS NULL FROM order_books", Boolean.class)).isTrue();
+        assertThat(repository.findOrderBookByInstrumentId("AAPL").orElseThrow().getAskOrders())
+                .extracting(OrderBook.Order::getPrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("101"));
+    }
+
+    /**
+     * A save racing with the first save of a book waits for it and is assigned the next sequence
+     * instead of failing on the primary key.
+     * <p>
+     * Сохранение, конкурирующее с первым сохранением стакана, ждёт его и получает следующую последовательность,
+     * а не падает на первичном ключе.
+     */
+    @Test
+    void serializesConcurrentFirstSaves() throws Exception {
+        CountDownLatch firstSaved = new CountDownLatch(1);
+        CountDownLatch commitFirst = new CountDownLatch(1);
+        CompletableFuture<OrderBook> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            OrderBook saved = repository.saveOrderBook(book(List.of(order("100", "1")), List.of()));
+            firstSaved.countDown();
+            await(commitFirst);
+            return saved;
+        }));
+        await(firstSaved);
+
+        CompletableFuture<OrderBook> second = CompletableFuture.supplyAsync(() ->
+                repository.saveOrderBook(book(List.of(order("100", "2")), List.of())));
+        Thread.sleep(200);
+        assertThat(second).isNotDone();
+        commitFirst.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS).getSequence()).isEqualTo(1);
+        assertThat(second.get(10, TimeUnit.SECONDS).getSequence()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT volume FROM orders", BigDecimal.class)).isEqualByComparingTo("2");
+    }
+
+    private Map<String, Long> orderIds() {
+        return jdbcTemplate.queryForList("SELECT id, order_type, price FROM orders").stream()
+                .collect(Collectors.toMap(row -> row.get("order_type") + ":" + row.get("price"),
+                        row -> ((Number) row.get("id")).longValue()));
+    }
+
+    private int orderCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM orders", Integer.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Price price(String instrumentId, String bid) {
+        return Price.builder()
+                .instrumentId(instrumentId)
+                .bidPrice(new BigDecimal(bid))
+                .askPrice(new BigDecimal(bid).add(BigDecimal.ONE))
+                .build();
+    }
+
+    private static OrderBook book(List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
+        return OrderBook.builder()
+                .instrumentId("AAPL")
+                .bidOrders(bids)
+                .askOrders(asks)
+                .lastUpdated(Instant.now())
+                .build();
+    }
+
+    private static OrderBook.Order order(String price, String volume) {
+        return new OrderBook.Order(new BigDecimal(price), new BigDecimal(volume));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.priceservice.adapter.persistence;
+
+import com.example.priceservice.domain.model.OrderBook;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the packed order book storage encoding.
+ * <p>
+ * Модульные тесты для упакованного формата хранения стакана заявок.
+ */
+class PackedOrderBookLevelsTest {
+
+    /**
+     * Orders read back in the order they were written with the same prices and volumes.
+     * <p>
+     * Заявки читаются в порядке записи с теми же ценами и объемами.
+     */
+    @Test
+    void roundTripsOrders() {
+        List<OrderBook.Order> bids = List.of(order("150.25", "100"), order("150.20", "0.5"));
+        List<OrderBook.Order> asks = List.of(order("150.30", "75.1234"));
+
+        byte[] packed = PackedOrderBookLevels.encode(bids, asks);
+        PackedOrderBookLevels.Decoded decoded = PackedOrderBookLevels.decode(packed);
+
+        assertThat(packed).hasSize(9 + 3 * 16);
+        assertThat(decoded.bids()).extracting(OrderBook.Order::getPrice)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("150.25"), new BigDecimal("150.20"));
+        assertThat(decoded.bids()).extracting(OrderBook.Order::getVolume)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("100"), new BigDecimal("0.5"));
+        assertThat(decoded.asks()).singleElement()
+                .satisfies(ask -> assertThat(ask.getVolume()).isEqualByComparingTo("75.1234"));
+    }
+
+    /**
+     * Truncated or unknown values are rejected instead of being read as a wrong book.
+     * <p>
+     * Усеченные или неизвестные значения отклоняются, а не читаются как неверный стакан.
+     */
+    @Test
+    void rejectsMalformedValues() {
+        byte[] packed = PackedOrderBookLevels.encode(List.of(order("1", "1")), List.of());
+
+        assertThatThrownBy(() -> PackedOrderBookLevels.decode(Arrays.copyOf(packed, packed.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        packed[0] = 42;
+        assertThatThrownBy(() -> PackedOrderBookLevels.decode(packed))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static OrderBook.Order order(String price, String volume) {
+        return new OrderBook.Order(new BigDecimal(price), new BigDecimal(volume));
+    }
+}
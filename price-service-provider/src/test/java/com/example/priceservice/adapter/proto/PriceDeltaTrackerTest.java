@@ -0,0 +1,86 @@
+package com.example.priceservice.adapter.proto;
+
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import com.example.priceservice.grpc.PriceDelta;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the price delta encoder.
+ * <p>
+ * Модульные тесты для кодировщика дельт цен.
+ */
+class PriceDeltaTrackerTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T10:00:00Z");
+
+    private final PriceDeltaTracker tracker = new PriceDeltaTracker(2);
+
+    /**
+     * The first event is a snapshot and a consecutive one only carries the changed fields.
+     * <p>
+     * Первое событие кодируется снимком, а следующее за ним содержит только изменившиеся поля.
+     */
+    @Test
+    void encodesConsecutiveEventAsDelta() throws Exception {
+        PriceDelta snapshot = decode(tracker.delta(event(1, "100.00", "100.50", 0)));
+        PriceDelta delta = decode(tracker.delta(event(2, "100.10", "100.50", 1500)));
+
+        assertThat(snapshot.getSnapshot()).isTrue();
+        assertThat(snapshot.getInstrumentId()).isEqualTo("AAPL");
+        assertThat(snapshot.getBidPrice()).isEqualTo(100.00);
+        assertThat(delta.getSnapshot()).isFalse();
+        assertThat(delta.getInstrumentRef()).isEqualTo(snapshot.getInstrumentRef());
+        assertThat(delta.getInstrumentId()).isEmpty();
+        assertThat(delta.getBidPrice()).isEqualTo(100.10);
+        assertThat(delta.hasAskPrice()).isFalse();
+        assertThat(delta.getTimestampDeltaMicros()).isEqualTo(1500);
+    }
+
+    /**
+     * A sequence gap and the snapshot interval both force a snapshot.
+     * <p>
+     * Пропуск в последовательности и интервал снимков приводят к отправке снимка.
+     */
+    @Test
+    void sendsSnapshotAfterGapAndInterval() {
+        assertThat(tracker.delta(event(1, "1", "2", 0)).isSnapshot()).isTrue();
+        assertThat(tracker.delta(event(3, "1", "3", 1)).isSnapshot()).isTrue();
+        assertThat(tracker.delta(event(4, "1", "4", 2)).isSnapshot()).isFalse();
+        assertThat(tracker.delta(event(5, "1", "5", 3)).isSnapshot()).isFalse();
+        assertThat(tracker.delta(event(6, "1", "6", 4)).isSnapshot()).isTrue();
+    }
+
+    /**
+     * The same event instance is encoded once.
+     * <p>
+     * Один и тот же экземпляр события кодируется один раз.
+     */
+    @Test
+    void reusesEncodingOfSameEvent() {
+        PriceEvent event = event(1, "1", "2", 0);
+
+        assertThat(tracker.delta(event)).isSameAs(tracker.delta(event));
+        assertThat(tracker.snapshot(event)).isSameAs(tracker.delta(event));
+    }
+
+    private static PriceEvent event(long sequence, String bid, String ask, long micros) {
+        return PriceEvent.updated(Price.builder()
+                .instrumentId("AAPL")
+                .bidPrice(new BigDecimal(bid))
+                .askPrice(new BigDecimal(ask))
+                .lastUpdated(NOW.plusNanos(micros * 1000))
+                .sequence(sequence)
+                .build());
+    }
+
+    private static PriceDelta decode(EncodedPriceDelta delta) throws InvalidProtocolBufferException {
+        return PriceDelta.parseFrom(delta.toByteArray());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.priceservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes benchmark results as JSON so that runs can be compared by tools.
+ * <p>
+ * Записывает результаты бенчмарков в JSON, чтобы запуски можно было сравнивать инструментами.
+ */
+final class BenchmarkReport {
+
+    private BenchmarkReport() {
+    }
+
+    /**
+     * Writes one report file named after the benchmark and the start time of the run
+     * <p>
+     * Записывает файл отчета с именем бенчмарка и временем запуска
+     */
+    static Path write(String benchmark, Map<String, Object> parameters, List<Map<String, Object>> results) throws IOException {
+        Path directory = Path.of(System.getProperty("benchmark.output.dir", "build/reports/benchmarks"));
+        Files.createDirectories(directory);
+        Instant now = Instant.now();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("benchmark", benchmark);
+        report.put("timestamp", now.toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("parameters", parameters);
+        report.put("results", results);
+        Path file = directory.resolve(benchmark + "-" + now.toEpochMilli() + ".json");
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+        results.forEach(result -> System.out.println(benchmark + " " + result));
+        System.out.println("Benchmark results written to " + file);
+        return file;
+    }
+
+    /**
+     * Registry whose timers keep p50 and p99 over every sample of a run instead of a sliding window
+     * <p>
+     * Реестр, таймеры которого считают p50 и p99 по всем замерам запуска, а не по скользящему окну
+     */
+    static SimpleMeterRegistry meterRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentiles(0.5, 0.99)
+                        .expiry(Duration.ofDays(1))
+                        .bufferLength(1)
+                        .build()
+                        .merge(config);
+            }
+        });
+        return registry;
+    }
+
+    /**
+     * Adds the percentiles of the timer as {@code <prefix>P50Ms} and {@code <prefix>P99Ms}
+     */
+    static void putPercentiles(Map<String, Object> result, String prefix, Timer timer) {
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            result.put(prefix + "P" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    static List<Integer> intList(String property, String defaultValue) {
+        return stringList(property, defaultValue).stream().map(Integer::valueOf).toList();
+    }
+
+    static List<String> stringList(String property, String defaultValue) {
+        return Arrays.stream(System.getProperty(property, defaultValue).split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.priceservice.benchmark;
+
+import com.example.priceservice.adapter.kafka.KafkaPublisher;
+import com.example.priceservice.adapter.kafka.PriceKafkaProducer;
+import com.example.priceservice.adapter.kafka.ProtoPriceKafkaProducer;
+import com.example.priceservice.adapter.proto.EncodedPriceUpdate;
+import com.example.priceservice.config.KafkaProducerConfig;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.model.PriceEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Throughput benchmark of the JSON and protobuf price producers against an embedded broker.
+ * <p>
+ * Every combination of encoding, batch size, linger and compression publishes the same prices through
+ * {@link PriceKafkaProducer} or {@link ProtoPriceKafkaProducer} and reports msgs/sec, record and wire bytes per
+ * message, p50/p99 send latency and allocation rate. Each combination is configured through the producer
+ * properties of its own application context, which holds only the Kafka producer beans. Run with {@code ./gradlew :price-service-provider:benchmark}
+ * and tune with {@code -Pbenchmark.kafka.*} properties.
+ * <p>
+ * Бенчмарк пропускной способности JSON и protobuf продюсеров цен на встроенном брокере.
+ * Для каждой комбинации кодировки, размера пакета, задержки и сжатия публикуются одни и те же цены
+ * и измеряются сообщения в секунду, байты на сообщение, задержка p50/p99 и скорость выделения памяти.
+ */
+@Tag("benchmark")
+@EmbeddedKafka(partitions = 3, topics = {KafkaProducerBenchmark.JSON_TOPIC, KafkaProducerBenchmark.PROTO_TOPIC})
+class KafkaProducerBenchmark {
+
+    static final String JSON_TOPIC = "benchmark-price-updates";
+    static final String PROTO_TOPIC = "benchmark-price-updates.proto";
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.kafka.messages", 50_000);
+    private static final int WARMUP_MESSAGES = Integer.getInteger("benchmark.kafka.warmup-messages", 10_000);
+    // Target rate in messages per second, 0 publishes as fast as possible
+    private static final int RATE = Integer.getInteger("benchmark.kafka.rate", 0);
+    private static final int INSTRUMENTS = Integer.getInteger("benchmark.kafka.instruments", 1_000);
+    // Prices handed to a producer per sendPriceUpdates call, like one outbox relay batch
+    private static final int BURST = Integer.getInteger("benchmark.kafka.burst", 100);
+    private static final List<String> ENCODINGS = BenchmarkReport.stringList("benchmark.kafka.encodings", "json,proto");
+    private static final List<Integer> BATCH_SIZES = BenchmarkReport.intList("benchmark.kafka.batch-sizes", "16384,65536");
+    private static final List<Integer> LINGER_MS = BenchmarkReport.intList("benchmark.kafka.linger-ms", "0,5");
+    private static final List<String> COMPRESSION = BenchmarkReport.stringList("benchmark.kafka.compression", "none,lz4");
+
+    /**
+     * Runs the whole parameter matrix and writes one JSON report
+     * <p>
+     * Запускает всю матрицу параметров и записывает один JSON-отчет
+     */
+    @Test
+    void publishThroughput(EmbeddedKafkaBroker broker) throws Exception {
+        List<Price> prices = prices();
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String encoding : ENCODINGS) {
+            for (int batchSize : BATCH_SIZES) {
+                for (int lingerMs : LINGER_MS) {
+                    for (String compression : COMPRESSION) {
+                        results.add(run(broker, encoding, batchSize, lingerMs, compression, prices));
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("messages", MESSAGES);
+        parameters.put("warmupMessages", WARMUP_MESSAGES);
+        parameters.put("targetRate", RATE);
+        parameters.put("instruments", INSTRUMENTS);
+        parameters.put("burst", BURST);
+        BenchmarkReport.write("kafka-producer", parameters, results);
+    }
+
+    private Map<String, Object> run(EmbeddedKafkaBroker broker, String encoding, int batchSize, int lingerMs,
+                                    String compression, List<Price> prices) {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(KafkaProducerConfig.class, KafkaPublisher.class,
+                        PriceKafkaProducer.class, ProtoPriceKafkaProducer.class)
+                .withPropertyValues(
+                        "spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "price.kafka.producer.batch-size=" + batchSize,
+                        "price.kafka.producer.linger-ms=" + lingerMs,
+                        "price.kafka.producer.compression-type=" + compression,
+                        "price.kafka.latest.create-topic=false",
+                        "price.kafka.publisher.max-in-flight=" + Integer.MAX_VALUE,
+                        "price.kafka.topic=" + JSON_TOPIC,
+                        "price.kafka.proto.topic=" + PROTO_TOPIC);
+
+        // The warmup gets its own context, so that its sends are not part of the measured latency
+        runner.withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .run(context -> publish(sender(context, encoding), prices, WARMUP_MESSAGES, 0));
+
+        SimpleMeterRegistry meterRegistry = BenchmarkReport.meterRegistry();
+        Map<String, Object> result = new LinkedHashMap<>();
+        runner.withBean(MeterRegistry.class, () -> meterRegistry).run(context -> {
+            KafkaTemplate<?, ?> template = context.getBean("json".equals(encoding) ? "kafkaTemplate" : "protoKafkaTemplate",
+                    KafkaTemplate.class);
+            Function<List<Price>, CompletableFuture<Void>> send = sender(context, encoding);
+
+            double wireBytesBefore = producerMetric(template, "outgoing-byte-total");
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            publish(send, prices, MESSAGES, RATE);
+            long elapsedNanos = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+            double wireBytes = producerMetric(template, "outgoing-byte-total") - wireBytesBefore;
+
+            result.put("encoding", encoding);
+            result.put("batchSize", batchSize);
+            result.put("lingerMs", lingerMs);
+            result.put("compression", compression);
+            result.put("messages", MESSAGES);
+            result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            result.put("msgsPerSec", Math.round(MESSAGES / (elapsedNanos / 1e9)));
+            result.put("recordBytesAvg", producerMetric(template, "record-size-avg"));
+            result.put("wireBytesPerMsg", wireBytes / MESSAGES);
+            BenchmarkReport.putPercentiles(result, "sendLatency",
+                    meterRegistry.get("price.kafka.send").tag("outcome", "success").timer());
+            result.put("allocatedBytesPerMsg", allocated / MESSAGES);
+            result.put("allocationRateMBPerSec", allocated / 1_048_576.0 / (elapsedNanos / 1e9));
+        });
+        return result;
+    }
+
+    private static Function<List<Price>, CompletableFuture<Void>> sender(ApplicationContext context, String encoding) {
+        if ("json".equals(encoding)) {
+            return context.getBean(PriceKafkaProducer.class)::sendPriceUpdates;
+        }
+        ProtoPriceKafkaProducer producer = context.getBean(ProtoPriceKafkaProducer.class);
+        // Encoding is part of the measured work, as it is for a price change written to the outbox
+        return batch -> producer.sendPriceUpdates(batch.stream()
+                .map(price -> EncodedPriceUpdate.of(PriceEvent.updated(price)))
+                .toList());
+    }
+
+    /**
+     * Publishes {@code messages} prices in bursts, paced to {@code rate} messages per second when positive,
+     * and waits until all of them are acknowledged
+     */
+    private static void publish(Function<List<Price>, CompletableFuture<Void>> send, List<Price> prices, int messages, int rate)
+            throws Exception {
+        List<CompletableFuture<Void>> bursts = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int sent = 0; sent < messages; sent += BURST) {
+            if (rate > 0) {
+                long due = start + (long) (sent * 1e9 / rate);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            int from = sent % prices.size();
+            int size = Math.min(BURST, Math.min(messages - sent, prices.size() - from));
+            bursts.add(send.apply(prices.subList(from, from + size)));
+        }
+        CompletableFuture.allOf(bursts.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+    }
+
+    private static List<Price> prices() {
+        Random random = new Random(42);
+        List<Price> prices = new ArrayList<>(INSTRUMENTS);
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            BigDecimal bid = BigDecimal.valueOf(10_000 + random.nextInt(90_000_000), 4);
+            prices.add(Price.builder()
+                    .instrumentId("INSTR" + i)
+                    .bidPrice(bid)
+                    .askPrice(bid.add(BigDecimal.valueOf(1 + random.nextInt(100), 4)))
+                    .lastUpdated(Instant.now())
+                    .build());
+        }
+        return prices;
+    }
+
+    private static double producerMetric(KafkaTemplate<?, ?> template, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> metric : template.metrics().entrySet()) {
+            if (metric.getKey().name().equals(name) && metric.getKey().group().equals("producer-metrics")
+                    && metric.getValue().metricValue() instanceof Double value) {
+                return value.isNaN() ? 0 : value;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return bytes allocated so far by all live threads, which includes the producer I/O thread
+     */
+    private static long allocatedBytes() {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+                .filter(bytes -> bytes > 0)
+                .sum();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.priceservice.benchmark;
+
+import com.example.priceservice.adapter.persistence.JpaPriceRepository;
+import com.example.priceservice.domain.model.OrderBook;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Latency benchmark of the order book read paths against the test database.
+ * <p>
+ * Books stored as order rows are read through {@link JpaPriceRepository} either by loading the JPA entity and its
+ * order collections or by the single ordered SQL query. Reports p50/p99 read latency, reads per second and
+ * allocated bytes per read for every depth. Every read path is a nested class that sets
+ * {@code price.orderbook.read-path} for its own application context and writes its own report. Needs the test Postgres, run with
+ * {@code ./gradlew :price-service-provider:benchmark} and tune with {@code -Pbenchmark.orderbook.*} properties.
+ * <p>
+ * Бенчмарк задержки способов чтения стакана заявок на тестовой базе данных.
+ * Стаканы, хранящиеся строками заявок, читаются через JPA-сущность с коллекциями заявок или одним
+ * упорядоченным SQL-запросом. Измеряются задержки чтения p50/p99, чтения в секунду и выделяемая память на чтение.
+ * Каждый способ чтения - вложенный класс, задающий {@code price.orderbook.read-path} для своего контекста приложения.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Statement logging would dominate the measured latency
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.com.example.priceservice=INFO",
+        "price.orderbook.storage=rows",
+})
+abstract class OrderBookReadBenchmark {
+
+    private static final int READS = Integer.getInteger("benchmark.orderbook.reads", 2_000);
+    private static final int WARMUP_READS = Integer.getInteger("benchmark.orderbook.warmup-reads", 500);
+    private static final List<String> READ_PATHS = BenchmarkReport.stringList("benchmark.orderbook.read-paths", "entity,query");
+    private static final List<Integer> LEVELS = BenchmarkReport.intList("benchmark.orderbook.read-levels", "10,100,1000");
+
+    private final String readPath;
+
+    @Autowired
+    private JpaPriceRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    OrderBookReadBenchmark(String readPath) {
+        this.readPath = readPath;
+    }
+
+    @TestPropertySource(properties = "price.orderbook.read-path=entity")
+    static class Entity extends OrderBookReadBenchmark {
+        Entity() {
+            super("entity");
+        }
+    }
+
+    @TestPropertySource(properties = "price.orderbook.read-path=query")
+    static class Query extends OrderBookReadBenchmark {
+        Query() {
+            super("query");
+        }
+    }
+
+    /**
+     * Runs every depth with the read path of the class and writes one JSON report
+     * <p>
+     * Запускает все глубины со способом чтения класса и записывает один JSON-отчет
+     */
+    @Test
+    void readLatency() throws Exception {
+        Assumptions.assumeTrue(READ_PATHS.contains(readPath), "read path " + readPath + " not selected");
+        for (int levels : LEVELS) {
+            save(instrumentId(levels), levels);
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int levels : LEVELS) {
+            results.add(run(levels));
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("readPath", readPath);
+        parameters.put("reads", READS);
+        parameters.put("warmupReads", WARMUP_READS);
+        BenchmarkReport.write("order-book-read-" + readPath, parameters, results);
+    }
+
+    private Map<String, Object> run(int levels) {
+        String instrumentId = instrumentId(levels);
+        for (int i = 0; i < WARMUP_READS; i++) {
+            read(instrumentId, levels);
+        }
+
+        Timer readTimer = BenchmarkReport.meterRegistry().timer("orderbook.read");
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            readTimer.record(() -> read(instrumentId, levels));
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("readPath", readPath);
+        result.put("levelsPerSide", levels);
+        BenchmarkReport.putPercentiles(result, "read", readTimer);
+        result.put("readsPerSec", Math.round(READS / (elapsedNanos / 1e9)));
+        result.put("allocatedBytesPerRead", allocated / READS);
+        return result;
+    }
+
+    private void save(String instrumentId, int levels) {
+        List<OrderBook.Order> bids = new ArrayList<>(levels);
+        List<OrderBook.Order> asks = new ArrayList<>(levels);
+        for (int i = 0; i < levels; i++) {
+            bids.add(new OrderBook.Order(BigDecimal.valueOf(10_000 - i, 2), BigDecimal.valueOf(100 + i)));
+            asks.add(new OrderBook.Order(BigDecimal.valueOf(10_001 + i, 2), BigDecimal.valueOf(100 + i)));
+        }
+        OrderBook book = OrderBook.builder()
+                .instrumentId(instrumentId)
+                .bidOrders(bids)
+                .askOrders(asks)
+                .build();
+        transactionTemplate.executeWithoutResult(status -> repository.saveOrderBook(book));
+    }
+
+    private void read(String instrumentId, int levels) {
+        // The service reads outside of a transaction, the repository opens its own read-only one
+        OrderBook book = repository.findOrderBookByInstrumentId(instrumentId).orElseThrow();
+        if (book.getBidOrders().size() != levels || book.getAskOrders().size() != levels) {
+            throw new IllegalStateException("Read back " + book.getBidOrders().size() + " bids and "
+                    + book.getAskOrders().size() + " asks instead of " + levels);
+        }
+    }
+
+    private static String instrumentId(int levels) {
+        return "BENCH-READ-" + levels;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or 0 if the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean) {
+            return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
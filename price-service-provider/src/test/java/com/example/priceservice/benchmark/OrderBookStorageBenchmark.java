@@ -0,0 +1,171 @@
+package com.example.priceservice.benchmark;
+
+import com.example.priceservice.adapter.persistence.JpaPriceRepository;
+import com.example.priceservice.domain.model.OrderBook;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Latency benchmark of the order book storage modes against the test database.
+ * <p>
+ * For every storage mode and book depth one book is written, then repeatedly rewritten with a share of its
+ * volumes changed and read back through {@link JpaPriceRepository}. Reports p50/p99 write and read latency and
+ * the size of the stored book. Every storage mode is a nested class that sets {@code price.orderbook.storage}
+ * for its own application context and writes its own report. Needs the test Postgres, run with {@code ./gradlew :price-service-provider:benchmark}
+ * and tune with {@code -Pbenchmark.orderbook.*} properties.
+ * <p>
+ * Бенчмарк задержки режимов хранения стакана заявок на тестовой базе данных.
+ * Для каждого режима хранения и глубины стакана один стакан записывается, затем многократно перезаписывается
+ * с изменением части объемов и читается обратно. Измеряются задержки записи и чтения p50/p99 и размер стакана в базе.
+ * Каждый режим хранения - вложенный класс, задающий {@code price.orderbook.storage} для своего контекста приложения.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Statement logging would dominate the measured latency
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.com.example.priceservice=INFO",
+})
+abstract class OrderBookStorageBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("benchmark.orderbook.iterations", 500);
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("benchmark.orderbook.warmup-iterations", 100);
+    // Percentage of the levels whose volume changes between two writes of a book
+    private static final int CHANGED_PERCENT = Integer.getInteger("benchmark.orderbook.changed-percent", 10);
+    private static final List<String> STORAGE = BenchmarkReport.stringList("benchmark.orderbook.storage", "rows,packed");
+    private static final List<Integer> LEVELS = BenchmarkReport.intList("benchmark.orderbook.levels", "10,100,500");
+
+    private final String storage;
+
+    @Autowired
+    private JpaPriceRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    OrderBookStorageBenchmark(String storage) {
+        this.storage = storage;
+    }
+
+    @TestPropertySource(properties = "price.orderbook.storage=rows")
+    static class Rows extends OrderBookStorageBenchmark {
+        Rows() {
+            super("rows");
+        }
+    }
+
+    @TestPropertySource(properties = "price.orderbook.storage=packed")
+    static class Packed extends OrderBookStorageBenchmark {
+        Packed() {
+            super("packed");
+        }
+    }
+
+    /**
+     * Runs every depth in the storage mode of the class and writes one JSON report
+     * <p>
+     * Запускает все глубины в режиме хранения класса и записывает один JSON-отчет
+     */
+    @Test
+    void storageLatency() throws Exception {
+        Assumptions.assumeTrue(STORAGE.contains(storage), "storage mode " + storage + " not selected");
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int levels : LEVELS) {
+            results.add(run(levels));
+        }
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("storage", storage);
+        parameters.put("iterations", ITERATIONS);
+        parameters.put("warmupIterations", WARMUP_ITERATIONS);
+        parameters.put("changedPercent", CHANGED_PERCENT);
+        BenchmarkReport.write("order-book-storage-" + storage, parameters, results);
+    }
+
+    private Map<String, Object> run(int levels) {
+        String instrumentId = "BENCH-" + storage.toUpperCase() + "-" + levels;
+        Random random = new Random(42);
+        List<OrderBook.Order> bids = orders(levels, 10_000, -1);
+        List<OrderBook.Order> asks = orders(levels, 10_001, 1);
+        save(instrumentId, bids, asks);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            change(bids, random);
+            change(asks, random);
+            save(instrumentId, bids, asks);
+            read(instrumentId);
+        }
+        SimpleMeterRegistry meterRegistry = BenchmarkReport.meterRegistry();
+        Timer writeTimer = meterRegistry.timer("orderbook.write");
+        Timer readTimer = meterRegistry.timer("orderbook.read");
+        for (int i = 0; i < ITERATIONS; i++) {
+            change(bids, random);
+            change(asks, random);
+            writeTimer.record(() -> save(instrumentId, bids, asks));
+            OrderBook book = readTimer.record(() -> read(instrumentId));
+            if (book.getBidOrders().size() != levels || book.getAskOrders().size() != levels) {
+                throw new IllegalStateException("Read back " + book.getBidOrders().size() + " bids and "
+                        + book.getAskOrders().size() + " asks instead of " + levels);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("storage", storage);
+        result.put("levelsPerSide", levels);
+        BenchmarkReport.putPercentiles(result, "write", writeTimer);
+        BenchmarkReport.putPercentiles(result, "read", readTimer);
+        result.put("orderRows", jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM orders WHERE order_book_id = ?", Long.class, instrumentId));
+        result.put("storedBytes", jdbcTemplate.queryForObject(
+                "SELECT coalesce(pg_column_size(b.*), 0) + coalesce((SELECT sum(pg_column_size(o.*)) FROM orders o"
+                        + " WHERE o.order_book_id = b.instrument_id), 0) FROM order_books b WHERE b.instrument_id = ?",
+                Long.class, instrumentId));
+        return result;
+    }
+
+    private void save(String instrumentId, List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
+        OrderBook book = OrderBook.builder()
+                .instrumentId(instrumentId)
+                .bidOrders(List.copyOf(bids))
+                .askOrders(List.copyOf(asks))
+                .build();
+        transactionTemplate.executeWithoutResult(status -> repository.saveOrderBook(book));
+    }
+
+    private OrderBook read(String instrumentId) {
+        return transactionTemplate.execute(status -> repository.findOrderBookByInstrumentId(instrumentId).orElseThrow());
+    }
+
+    /**
+     * Levels one cent apart from {@code firstCents} in {@code direction}
+     */
+    private static List<OrderBook.Order> orders(int levels, int firstCents, int direction) {
+        List<OrderBook.Order> orders = new ArrayList<>(levels);
+        for (int i = 0; i < levels; i++) {
+            orders.add(new OrderBook.Order(BigDecimal.valueOf(firstCents + (long) direction * i, 2), BigDecimal.valueOf(100 + i)));
+        }
+        return orders;
+    }
+
+    private static void change(List<OrderBook.Order> orders, Random random) {
+        int changes = Math.max(1, orders.size() * CHANGED_PERCENT / 100);
+        for (int i = 0; i < changes; i++) {
+            int level = random.nextInt(orders.size());
+            orders.set(level, new OrderBook.Order(orders.get(level).getPrice(), BigDecimal.valueOf(1 + random.nextInt(10_000))));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.priceservice.domain.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the per-instrument event fan-out hub.
+ * <p>
+ * Модульные тесты для хаба рассылки событий по инструментам.
+ */
+class InstrumentEventHubTest {
+
+    private final InstrumentEventHub<String> hub = new InstrumentEventHub<>();
+
+    /**
+     * Events reach only the listeners of their instrument.
+     * <p>
+     * События доходят только до подписчиков своего инструмента.
+     */
+    @Test
+    void deliversEventsByInstrument() {
+        List<String> apple = new ArrayList<>();
+        List<String> all = new ArrayList<>();
+        hub.subscribe("AAPL", apple::add);
+        hub.subscribe(List.of("AAPL", "MSFT"), all::add);
+
+        hub.publish("AAPL", "a1");
+        hub.publish("MSFT", "m1");
+        hub.publish("GOOG", "g1");
+
+        assertThat(apple).containsExactly("a1");
+        assertThat(all).containsExactly("a1", "m1");
+    }
+
+    /**
+     * Cancelling a subscription removes the listener and empty instrument entries.
+     * <p>
+     * Отмена подписки удаляет подписчика и пустые записи инструментов.
+     */
+    @Test
+    void cancelRemovesListenerAndEmptyEntries() {
+        List<String> received = new ArrayList<>();
+        Runnable cancel = hub.subscribe(List.of("AAPL", "MSFT"), received::add);
+        assertThat(hub.subscribedInstrumentCount()).isEqualTo(2);
+
+        cancel.run();
+        hub.publish("AAPL", "a1");
+
+        assertThat(received).isEmpty();
+        assertThat(hub.subscribedInstrumentCount()).isZero();
+    }
+
+    /**
+     * A failing listener does not stop delivery to the others.
+     * <p>
+     * Ошибка одного подписчика не мешает доставке остальным.
+     */
+    @Test
+    void failingListenerIsIsolated() {
+        List<String> received = new ArrayList<>();
+        Consumer<String> failing = event -> {
+            throw new IllegalStateException("boom");
+        };
+        hub.subscribe("AAPL", failing);
+        hub.subscribe("AAPL", received::add);
+
+        hub.publish("AAPL", "a1");
+
+        assertThat(received).containsExactly("a1");
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.OrderBookEvent;
+import com.example.priceservice.domain.model.OrderBookEvent.ChangeType;
+import com.example.priceservice.domain.model.OrderBookEvent.LevelChange;
+import com.example.priceservice.domain.model.OrderBookEvent.Side;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for publishing order book diffs.
+ * <p>
+ * Модульные тесты для публикации изменений стакана заявок.
+ */
+class OrderBookDiffTrackerTest {
+
+    private final List<OrderBookEvent> published = new ArrayList<>();
+    private final List<CompletableFuture<Void>> acknowledgements = new ArrayList<>();
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final OrderBookDiffTracker tracker = new OrderBookDiffTracker(event -> {
+        published.add(event);
+        CompletableFuture<Void> acknowledgement = new CompletableFuture<>();
+        acknowledgements.add(acknowledgement);
+        return acknowledgement;
+    }, 2, Duration.ofSeconds(10), 100, nanoTime::get, Runnable::run);
+
+    /**
+     * The first book is a snapshot with aggregated levels and the next one a diff of the changed levels.
+     * <p>
+     * Первый стакан публикуется снимком с агрегированными уровнями, следующий — изменениями уровней.
+     */
+    @Test
+    void publishesSnapshotThenDiff() {
+        tracker.onSaved(book(1, List.of(order("100", "5"), order("100", "1"), order("99", "2")), List.of(order("101", "3"))));
+        tracker.onSaved(book(2, List.of(order("100", "6"), order("98", "4")), List.of(order("101", "1"))));
+
+        OrderBookEvent snapshot = published.get(0);
+        assertThat(snapshot.isSnapshot()).isTrue();
+        assertThat(snapshot.getBids()).extracting(OrderBookEvent.Level::getPrice)
+                .containsExactly(new BigDecimal("100"), new BigDecimal("99"));
+        assertThat(snapshot.getBids().get(0).getVolume()).isEqualByComparingTo("6");
+
+        OrderBookEvent diff = published.get(1);
+        assertThat(diff.isSnapshot()).isFalse();
+        assertThat(diff.getChanges()).containsExactlyInAnyOrder(
+                new LevelChange(Side.BID, ChangeType.ADDED, new BigDecimal("98"), new BigDecimal("4")),
+                new LevelChange(Side.BID, ChangeType.REMOVED, new BigDecimal("99"), BigDecimal.ZERO),
+                new LevelChange(Side.ASK, ChangeType.CHANGED, new BigDecimal("101"), new BigDecimal("1")));
+    }
+
+    /**
+     * Gaps and the snapshot interval lead to snapshots, older books are skipped.
+     * <p>
+     * Пропуски и интервал снимков приводят к снимкам, более старые стаканы пропускаются.
+     */
+    @Test
+    void publishesSnapshotsAfterGapAndIntervalAndSkipsStaleBooks() {
+        tracker.onSaved(book(1, List.of(), List.of()));
+        tracker.onSaved(book(3, List.of(), List.of()));
+        tracker.onSaved(book(2, List.of(), List.of()));
+        tracker.onSaved(book(4, List.of(), List.of()));
+        tracker.onSaved(book(5, List.of(), List.of()));
+        tracker.onSaved(book(6, List.of(), List.of()));
+
+        assertThat(published).extracting(OrderBookEvent::getSequence).containsExactly(1L, 3L, 4L, 5L, 6L);
+        assertThat(published).extracting(OrderBookEvent::isSnapshot).containsExactly(true, true, false, false, true);
+    }
+
+    /**
+     * A failed publish and the snapshot age lead to snapshots.
+     * <p>
+     * Неудачная публикация и возраст снимка приводят к снимкам.
+     */
+    @Test
+    void publishesSnapshotsAfterFailureAndMaxAge() {
+        tracker.onSaved(book(1, List.of(), List.of()));
+        tracker.onSaved(book(2, List.of(), List.of()));
+        acknowledgements.get(1).completeExceptionally(new IllegalStateException("broker unavailable"));
+        tracker.onSaved(book(3, List.of(), List.of()));
+        tracker.onSaved(book(4, List.of(), List.of()));
+        nanoTime.addAndGet(Duration.ofSeconds(10).toNanos());
+        tracker.onSaved(book(5, List.of(), List.of()));
+
+        assertThat(published).extracting(OrderBookEvent::getSequence).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(published).extracting(OrderBookEvent::isSnapshot).containsExactly(true, false, true, false, true);
+    }
+
+    private static OrderBook book(long sequence, List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
+        return OrderBook.builder()
+                .instrumentId("AAPL")
+                .bidOrders(bids)
+                .askOrders(asks)
+                .lastUpdated(Instant.now())
+                .sequence(sequence)
+                .build();
+    }
+
+    private static OrderBook.Order order(String price, String volume) {
+        return new OrderBook.Order(new BigDecimal(price), new BigDecimal(volume));
+    }
+}
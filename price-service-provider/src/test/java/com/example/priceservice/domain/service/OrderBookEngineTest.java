@@ -0,0 +1,208 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.OrderBook;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the fixed-point in-memory order book engine.
+ * <p>
+ * Модульные тесты для движка стаканов заявок в памяти с фиксированной точкой.
+ */
+class OrderBookEngineTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final OrderBookEngine engine = new OrderBookEngine(2, Duration.ofSeconds(1), nanoTime::get);
+
+    /**
+     * Loaded orders are aggregated per price and sorted from the best price on each side.
+     * <p>
+     * Загруженные заявки агрегируются по цене и сортируются от лучшей цены на каждой стороне.
+     */
+    @Test
+    void sortsAndAggregatesLevels() {
+        engine.load(book(1,
+                List.of(order("175.40", "300"), order("175.50", "100"), order("175.40", "50")),
+                List.of(order("175.85", "350"), order("175.75", "150"))));
+
+        OrderBook book = engine.get("AAPL").orElseThrow();
+        assertThat(book.getBidOrders()).extracting(OrderBook.Order::getPrice)
+                .containsExactly(new BigDecimal("175.5000"), new BigDecimal("175.4000"));
+        assertThat(book.getBidOrders().get(1).getVolume()).isEqualByComparingTo("350");
+        assertThat(book.getAskOrders()).extracting(OrderBook.Order::getPrice)
+                .containsExactly(new BigDecimal("175.7500"), new BigDecimal("175.8500"));
+    }
+
+    /**
+     * A reloaded book replaces all levels, dropping those without volume, and depth views hold only the best levels.
+     * <p>
+     * Повторно загруженный стакан заменяет все уровни, отбрасывая уровни без объёма,
+     * а представления глубины содержат только лучшие уровни.
+     */
+    @Test
+    void replacesLevelsAndLimitsDepth() {
+        engine.load(book(1, List.of(order("100", "1"), order("99", "2"), order("98", "3")), List.of(order("101", "1"))));
+
+        engine.load(book(2, List.of(order("100.5", "4"), order("100", "1"), order("99", "0"), order("98", "7")),
+                List.of()));
+
+        OrderBook top = engine.getView("AAPL", 2, 1).orElseThrow();
+        assertThat(top.getBidOrders()).extracting(OrderBook.Order::getPrice)
+                .containsExactly(new BigDecimal("100.5000"), new BigDecimal("100.0000"));
+        assertThat(engine.get("AAPL").orElseThrow().getBidOrders()).hasSize(3);
+        assertThat(engine.get("AAPL").orElseThrow().getAskOrders()).isEmpty();
+        assertThat(engine.get("MSFT")).isEmpty();
+    }
+
+    /**
+     * Order views keep the orders as loaded, unmerged and with zero volumes, sorted and limited to depth per side.
+     * <p>
+     * Представления заявок сохраняют заявки как загружены, без объединения и с нулевыми объёмами,
+     * отсортированными и ограниченными глубиной на каждой стороне.
+     */
+    @Test
+    void keepsOrdersAsLoaded() {
+        engine.load(book(1,
+                List.of(order("175.40", "300"), order("175.50", "100"), order("175.40", "0"), order("175.30", "5")),
+                List.of(order("175.75", "150"))));
+
+        OrderBook orders = engine.getOrders("AAPL", 3).orElseThrow();
+        assertThat(orders.getBidOrders()).extracting(OrderBook.Order::getPrice)
+                .containsExactly(new BigDecimal("175.50"), new BigDecimal("175.40"), new BigDecimal("175.40"));
+        assertThat(orders.getBidOrders()).extracting(OrderBook.Order::getVolume)
+                .containsExactly(new BigDecimal("100"), new BigDecimal("300"), new BigDecimal("0"));
+        assertThat(orders.getAskOrders()).hasSize(1);
+        assertThat(engine.get("AAPL").orElseThrow().getBidOrders()).hasSize(3);
+    }
+
+    /**
+     * Bucketed views sum the levels of each bucket, rounding bids down and asks up, and are rebuilt after a change.
+     * <p>
+     * Представления с группировкой суммируют уровни каждой группы, округляя биды вниз, а аски вверх,
+     * и перестраиваются после изменения.
+     */
+    @Test
+    void aggregatesLevelsIntoBuckets() {
+        engine.load(book(1, List.of(order("100.05", "1"), order("100.01", "2"), order("99.95", "3"), order("99.80", "4")),
+                List.of(order("100.11", "5"), order("100.19", "6"), order("100.25", "7"))));
+        long bucket = OrderBookEngine.toTicks(new BigDecimal("0.1"));
+
+        OrderBook view = engine.getView("AAPL", 2, bucket).orElseThrow();
+        assertThat(view.getBidOrders()).extracting(OrderBook.Order::getPrice)
+                .containsExactly(new BigDecimal("100.0000"), new BigDecimal("99.9000"));
+        assertThat(view.getBidOrders()).extracting(OrderBook.Order::getVolume)
+                .containsExactly(new BigDecimal("3.0000"), new BigDecimal("3.0000"));
+        assertThat(view.getAskOrders()).extracting(OrderBook.Order::getPrice)
+                .containsExactly(new BigDecimal("100.2000"), new BigDecimal("100.3000"));
+        assertThat(view.getAskOrders()).extracting(OrderBook.Order::getVolume)
+                .containsExactly(new BigDecimal("11.0000"), new BigDecimal("7.0000"));
+        assertThat(engine.getView("AAPL", 2, bucket)).containsSame(view);
+
+        engine.load(book(2, List.of(order("100.05", "10"), order("100.01", "2")), List.of()));
+        assertThat(engine.getView("AAPL", 2, bucket).orElseThrow().getBidOrders().get(0).getVolume())
+                .isEqualByComparingTo("12");
+    }
+
+    /**
+     * A book older than the one held does not replace it.
+     * <p>
+     * Более старый стакан не заменяет уже загруженный.
+     */
+    @Test
+    void keepsNewerBook() {
+        engine.load(book(2, List.of(order("100", "1")), List.of()));
+        engine.load(book(1, List.of(order("90", "1")), List.of()));
+
+        assertThat(engine.get("AAPL").orElseThrow().getSequence()).isEqualTo(2);
+    }
+
+    /**
+     * A book held for longer than the maximum age reads as not held until it is loaded again,
+     * so books saved by other instances are picked up.
+     * <p>
+     * Стакан, хранящийся дольше максимального возраста, считается отсутствующим, пока не будет загружен снова,
+     * поэтому стаканы, сохранённые другими экземплярами, подхватываются.
+     */
+    @Test
+    void expiresBooksAfterMaxAge() {
+        engine.load(book(1, List.of(order("100", "1")), List.of()));
+        nanoTime.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertThat(engine.get("AAPL")).isEmpty();
+
+        engine.load(book(2, List.of(order("101", "1")), List.of()));
+        assertThat(engine.get("AAPL").orElseThrow().getBidOrders()).extracting(OrderBook.Order::getPrice)
+                .containsExactly(new BigDecimal("101.0000"));
+    }
+
+    /**
+     * No more books than the size bound are held.
+     * <p>
+     * Хранится не больше стаканов, чем позволяет ограничение размера.
+     */
+    @Test
+    void boundsHeldBooks() {
+        for (String instrumentId : List.of("AAPL", "MSFT", "GOOG")) {
+            OrderBook book = book(1, List.of(order("100", "1")), List.of());
+            book.setInstrumentId(instrumentId);
+            engine.load(book);
+        }
+
+        assertThat(Stream.of("AAPL", "MSFT", "GOOG").filter(id -> engine.get(id).isPresent())).hasSize(2);
+    }
+
+    /**
+     * Values beyond the range of the ticks are rejected with an IllegalArgumentException.
+     * <p>
+     * Значения вне диапазона тиков отклоняются с IllegalArgumentException.
+     */
+    @Test
+    void rejectsValuesOutOfRange() {
+        BigDecimal tooLarge = OrderBookEngine.MAX_VALUE.add(BigDecimal.ONE);
+
+        assertThat(OrderBookEngine.isSupported(OrderBookEngine.MAX_VALUE)).isTrue();
+        assertThat(OrderBookEngine.isSupported(tooLarge)).isFalse();
+        assertThat(OrderBookEngine.isSupported(new BigDecimal("999999999999999.9999"))).isFalse();
+        assertThatThrownBy(() -> OrderBookEngine.toTicks(tooLarge)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * A book whose volumes overflow when summed is rejected, and a previously held copy is dropped.
+     * <p>
+     * Стакан, объёмы которого переполняются при суммировании, отклоняется, а ранее загруженная копия удаляется.
+     */
+    @Test
+    void rejectsBooksWithOverflowingVolume() {
+        engine.load(book(1, List.of(order("100", "1")), List.of()));
+        OrderBook overflowing = book(2, List.of(order("100", OrderBookEngine.MAX_VALUE.toPlainString()),
+                order("99", "1")), List.of());
+
+        assertThat(OrderBookEngine.isSupported(overflowing)).isFalse();
+        assertThatThrownBy(() -> engine.load(overflowing)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(engine.get("AAPL")).isEmpty();
+        assertThat(OrderBookEngine.isSupported(book(1, List.of(order("100", "1")), List.of()))).isTrue();
+    }
+
+    private static OrderBook book(long sequence, List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
+        return OrderBook.builder()
+                .instrumentId("AAPL")
+                .bidOrders(bids)
+                .askOrders(asks)
+                .lastUpdated(Instant.now())
+                .sequence(sequence)
+                .build();
+    }
+
+    private static OrderBook.Order order(String price, String volume) {
+        return new OrderBook.Order(new BigDecimal(price), new BigDecimal(volume));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.priceservice.domain.service;
+
+import com.example.priceservice.domain.model.OrderBook;
+import com.example.priceservice.domain.model.Price;
+import com.example.priceservice.domain.port.PriceEventOutbox;
+import com.example.priceservice.domain.port.PriceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for deriving the price of an instrument from its saved order book.
+ * <p>
+ * Модульные тесты для вычисления цены инструмента из сохраненного стакана заявок.
+ */
+@ExtendWith(MockitoExtension.class)
+class PriceServiceImplTest {
+
+    @Mock
+    private PriceRepository priceRepository;
+    @Mock
+    private PriceEventOutbox priceEventOutbox;
+    @Mock
+    private PriceUpdateHub priceUpdateHub;
+    @Mock
+    private OrderBookDiffTracker orderBookDiffTracker;
+    @Mock
+    private OrderBookUpdateHub orderBookUpdateHub;
+
+    private PriceServiceImpl priceService;
+
+    @BeforeEach
+    void setUp() {
+        priceService = new PriceServiceImpl(priceRepository, priceEventOutbox, priceUpdateHub, orderBookDiffTracker,
+                new OrderBookEngine(100, 60_000), orderBookUpdateHub);
+        ReflectionTestUtils.setField(priceService, "derivePriceFromOrderBook", true);
+        when(priceRepository.saveOrderBook(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    /**
+     * The best bid and ask of the book become the price of the instrument.
+     * <p>
+     * Лучшие бид и аск стакана становятся ценой инструмента.
+     */
+    @Test
+    void savesTopOfBookAsPrice() {
+        when(priceRepository.findByInstrumentId("AAPL")).thenReturn(Optional.empty());
+        when(priceRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(priceEventOutbox.append(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        priceService.saveOrderBook(book(List.of(order("175.40", "5"), order("175.50", "1"), order("175.60", "0")),
+                List.of(order("175.80", "2"), order("175.70", "3"))));
+
+        ArgumentCaptor<Price> saved = ArgumentCaptor.forClass(Price.class);
+        verify(priceRepository).save(saved.capture());
+        assertThat(saved.getValue().getBidPrice()).isEqualByComparingTo("175.50");
+        assertThat(saved.getValue().getAskPrice()).isEqualByComparingTo("175.70");
+        verify(priceEventOutbox).append(any());
+        verify(priceUpdateHub).publish(any());
+    }
+
+    /**
+     * A book that does not move the top of the book leaves the price untouched and publishes no price event.
+     * <p>
+     * Стакан, не меняющий лучшие цены, не изменяет цену и не публикует событие цены.
+     */
+    @Test
+    void skipsUnchangedTopOfBook() {
+        when(priceRepository.findByInstrumentId("AAPL")).thenReturn(Optional.of(Price.builder()
+                .instrumentId("AAPL")
+                .bidPrice(new BigDecimal("175.5"))
+                .askPrice(new BigDecimal("175.70"))
+                .lastUpdated(Instant.now())
+                .build()));
+
+        priceService.saveOrderBook(book(List.of(order("175.50", "9")), List.of(order("175.70", "9"))));
+
+        verify(priceRepository, never()).save(any());
+        verifyNoInteractions(priceEventOutbox, priceUpdateHub);
+    }
+
+    private static OrderBook book(List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
+        return OrderBook.builder()
+                .instrumentId("AAPL")
+                .bidOrders(bids)
+                .askOrders(asks)
+                .sequence(1)
+                .build();
+    }
+
+    private static OrderBook.Order order(String price, String volume) {
+        return new OrderBook.Order(new BigDecimal(price), new BigDecimal(volume));
+    }
+}